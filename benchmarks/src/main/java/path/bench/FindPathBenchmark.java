@@ -0,0 +1,167 @@
+package path.bench;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import math.Vec2;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import path.finder.a_star.Graph;
+import path.finder.a_star.Node;
+import path.finder.a_star.SearchContext;
+import path.finder.a_star.SearchMode;
+import path.navmesh.CompactGraph;
+import path.navmesh.Face;
+import path.navmesh.NavMesh2D;
+
+/**
+ * FindPathBenchmark class.
+ *
+ * Face to face searches on the synthetic grids (see MeshGenerator):
+ *
+ * SHORT: a few cells inside the first corridor,
+ * MEDIUM: from a corner to the middle of the grid,
+ * LONG: corner to corner, through every wall gap,
+ * UNREACHABLE: to the island, so the whole grid gets expanded.
+ *
+ * The bundled meshes have no corners to aim at, so the searches start at
+ * their first face and the targets are picked by path distance: the face
+ * at a tenth (SHORT) and at half (MEDIUM) of the faces sorted by distance
+ * and the farthest one (LONG). For UNREACHABLE the edge nodes of the
+ * farthest face are blocked, which walls it in.
+ *
+ * The path is rebuilt from the back pointers inside findPath, so the
+ * LONG case also covers path retrieval.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FindPathBenchmark {
+
+    public enum Query { SHORT, MEDIUM, LONG, UNREACHABLE }
+
+    @Param({ "path_test", "path_test_2", "grid16", "grid64", "grid256" })
+    public String mesh;
+
+    @Param({ "SHORT", "MEDIUM", "LONG", "UNREACHABLE" })
+    public Query query;
+
+    private Graph<Vec2> graph;
+    private CompactGraph compactGraph;
+    private Node<Vec2> start;
+    private Node<Vec2> target;
+    private final List<Node<Vec2>> path = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        NavMesh2D navMesh = new NavMesh2D();
+        navMesh.load(new ByteArrayInputStream(MeshGenerator.getObj(mesh))
+            , 1, 0, 0);
+
+        graph = navMesh.getGraph();
+        if (mesh.startsWith("grid")) {
+            setupGrid(navMesh, Integer.parseInt(mesh.substring(4)));
+        }
+        else {
+            setupMesh(navMesh);
+        }
+        // after setupMesh, which may block nodes
+        compactGraph = CompactGraph.create(navMesh);
+    }
+
+    private void setupGrid(NavMesh2D navMesh, int size) {
+        start = MeshGenerator.getFace(navMesh, 0, 0).getNodeInsideFace();
+        int c;
+        int r;
+        switch (query) {
+            case SHORT:
+                c = 3;
+                r = 3;
+                break;
+            case MEDIUM:
+                c = size / 2;
+                r = size / 2;
+                break;
+            case LONG:
+                c = size - 1;
+                r = size - 1;
+                break;
+            default:
+                c = size + 2;
+                r = 0;
+                break;
+        }
+        if (MeshGenerator.isWall(size, c, r)) {
+            c--;
+        }
+        target = MeshGenerator.getFace(navMesh, c, r).getNodeInsideFace();
+    }
+
+    private void setupMesh(NavMesh2D navMesh) {
+        start = navMesh.getFaces().get(0).getNodeInsideFace();
+        SearchContext distances = graph.findDistances(start, null);
+        List<Face> faces = new ArrayList<>();
+        for (Face face : navMesh.getFaces()) {
+            int id = face.getNodeInsideFace().getId();
+            if (distances.getG(id) < Double.MAX_VALUE) {
+                faces.add(face);
+            }
+        }
+        faces.sort(Comparator.comparingDouble(
+            face -> distances.getG(face.getNodeInsideFace().getId())));
+
+        Face face;
+        switch (query) {
+            case SHORT:
+                face = faces.get(faces.size() / 10);
+                break;
+            case MEDIUM:
+                face = faces.get(faces.size() / 2);
+                break;
+            default:
+                face = faces.get(faces.size() - 1);
+                break;
+        }
+        if (query == Query.UNREACHABLE) {
+            for (Node<Vec2> edgeNode : face.getEdgeNodes()) {
+                edgeNode.setBlocked(true);
+            }
+        }
+        target = face.getNodeInsideFace();
+    }
+
+    @Benchmark
+    public List<Node<Vec2>> findPath() {
+        path.clear();
+        graph.findPath(start, target, path);
+        return path;
+    }
+
+    @Benchmark
+    public List<Node<Vec2>> findPathBidirectional() {
+        path.clear();
+        graph.findPath(start, target, path, SearchMode.BIDIRECTIONAL);
+        return path;
+    }
+
+    @Benchmark
+    public int[] findPathCompact() {
+        return compactGraph.findPath(start.getId(), target.getId());
+    }
+
+}
@@ -0,0 +1,71 @@
+package path.bench;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import path.navmesh.NavMesh2D;
+import path.navmesh.NavMeshFile;
+
+/**
+ * LoadBenchmark class.
+ *
+ * Mesh loading: parsing the OBJ text from memory (so disk speed doesn't
+ * count) and loading the precompiled binary form from a file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBenchmark {
+
+    @Param({ "path_test", "grid16", "grid64", "grid256" })
+    public String mesh;
+
+    private byte[] obj;
+    private Path compiled;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        obj = MeshGenerator.getObj(mesh);
+        NavMesh2D navMesh = new NavMesh2D();
+        navMesh.load(new ByteArrayInputStream(obj), 1, 0, 0);
+        compiled = Files.createTempFile(mesh, ".nav");
+        NavMeshFile.write(navMesh, compiled);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(compiled);
+    }
+
+    @Benchmark
+    public NavMesh2D loadObj() throws Exception {
+        NavMesh2D navMesh = new NavMesh2D();
+        navMesh.load(new ByteArrayInputStream(obj), 1, 0, 0);
+        return navMesh;
+    }
+
+    @Benchmark
+    public NavMesh2D loadCompiled() throws Exception {
+        NavMesh2D navMesh = new NavMesh2D();
+        navMesh.loadCompiled(compiled);
+        return navMesh;
+    }
+
+}
@@ -0,0 +1,116 @@
+package path.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import path.navmesh.Face;
+import path.navmesh.NavMesh2D;
+
+/**
+ * MeshGenerator class.
+ *
+ * Synthetic OBJ meshes for the benchmarks: a size x size grid of unit
+ * quads with vertical walls every WALL_STEP columns, each with a one cell
+ * gap alternately at the bottom and at the top, so the path from one
+ * corner to the other snakes through the whole grid. A separate 2 x 2
+ * island to the right of the grid can't be reached from it.
+ *
+ * Meshes are named "grid<size>" (e.g. "grid64"); any other name is an OBJ
+ * bundled with the demo, e.g. "path_test" for /res/path_test.obj.
+ */
+public class MeshGenerator {
+
+    public static final int WALL_STEP = 8;
+
+    private MeshGenerator() {
+    }
+
+    public static byte[] getObj(String mesh) throws IOException {
+        if (mesh.startsWith("grid")) {
+            return grid(Integer.parseInt(mesh.substring(4)));
+        }
+        try (InputStream is = NavMesh2D.class.getResourceAsStream(
+                "/res/" + mesh + ".obj")) {
+
+            if (is == null) {
+                throw new IOException("unknown mesh " + mesh);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = is.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    public static byte[] grid(int size) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("# ").append(size).append(" x ").append(size)
+            .append(" grid\n");
+
+        for (int r = 0; r <= size; r++) {
+            for (int c = 0; c <= size; c++) {
+                vertex(sb, c, r);
+            }
+        }
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                if (!isWall(size, c, r)) {
+                    int v = r * (size + 1) + c + 1;
+                    quad(sb, v, v + 1, v + size + 2, v + size + 1);
+                }
+            }
+        }
+
+        // unreachable island
+        int first = (size + 1) * (size + 1) + 1;
+        for (int r = 0; r <= 2; r++) {
+            for (int c = 0; c <= 2; c++) {
+                vertex(sb, size + 2 + c, r);
+            }
+        }
+        for (int r = 0; r < 2; r++) {
+            for (int c = 0; c < 2; c++) {
+                int v = first + r * 3 + c;
+                quad(sb, v, v + 1, v + 4, v + 3);
+            }
+        }
+        return sb.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    public static boolean isWall(int size, int c, int r) {
+        if (c % WALL_STEP != WALL_STEP - 1 || c >= size - 1) {
+            return false;
+        }
+        int wall = c / WALL_STEP;
+        int gap = wall % 2 == 0 ? size - 1 : 0;
+        return r != gap;
+    }
+
+    private static void vertex(StringBuilder sb, int x, int y) {
+        // the loader reads x and z
+        sb.append("v ").append(x).append(".0 0.0 ").append(y).append(".0\n");
+    }
+
+    private static void quad(StringBuilder sb, int a, int b, int c, int d) {
+        sb.append("f ").append(a).append(' ').append(b).append(' ')
+            .append(c).append(' ').append(d).append('\n');
+    }
+
+    /**
+     * Returns the face of the cell (c, r). The island cells are at columns
+     * size + 2 and size + 3, rows 0 and 1.
+     */
+    public static Face getFace(NavMesh2D navMesh, int c, int r) {
+        Face face = navMesh.findFace(c + 0.5, r + 0.5);
+        if (face == null) {
+            throw new IllegalArgumentException(
+                "no face at cell (" + c + ", " + r + ")");
+        }
+        return face;
+    }
+
+}
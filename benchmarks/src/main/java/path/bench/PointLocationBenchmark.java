@@ -0,0 +1,96 @@
+package path.bench;
+
+import java.io.ByteArrayInputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import math.Vec2;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import path.navmesh.Face;
+import path.navmesh.NavMesh2D;
+
+/**
+ * PointLocationBenchmark class.
+ *
+ * Face.isInside against one face and NavMesh2D.findFace over the whole
+ * mesh, for POINTS random points in the bounding box of the mesh (the
+ * reported time is per point).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PointLocationBenchmark {
+
+    private static final int POINTS = 1024;
+
+    @Param({ "path_test", "grid16", "grid64", "grid256" })
+    public String mesh;
+
+    private NavMesh2D navMesh;
+    private Face face;
+    private final double[] xs = new double[POINTS];
+    private final double[] ys = new double[POINTS];
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        navMesh = new NavMesh2D();
+        navMesh.load(new ByteArrayInputStream(MeshGenerator.getObj(mesh))
+            , 1, 0, 0);
+
+        double minX = Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
+        for (Vec2 v : navMesh.getVertices()) {
+            minX = Math.min(minX, v.x);
+            minY = Math.min(minY, v.y);
+            maxX = Math.max(maxX, v.x);
+            maxY = Math.max(maxY, v.y);
+        }
+        face = navMesh.getFaces().get(navMesh.getFaces().size() / 2);
+        Random random = new Random(1);
+        for (int i = 0; i < POINTS; i++) {
+            xs[i] = minX + random.nextDouble() * (maxX - minX);
+            ys[i] = minY + random.nextDouble() * (maxY - minY);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public int isInside() {
+        int inside = 0;
+        for (int i = 0; i < POINTS; i++) {
+            if (face.isInside(xs[i], ys[i])) {
+                inside++;
+            }
+        }
+        return inside;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public int findFace() {
+        int found = 0;
+        for (int i = 0; i < POINTS; i++) {
+            if (navMesh.findFace(xs[i], ys[i]) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+}
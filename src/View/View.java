@@ -2,6 +2,7 @@ package View;
 
 import path.navmesh.NavMesh2D;
 import path.navmesh.Face;
+import path.navmesh.Funnel;
 import math.Vec2;
 import java.awt.BasicStroke;
 import java.awt.Color;
@@ -31,21 +32,26 @@ import path.finder.a_star.Node;
 public class View extends JPanel {
     
     private NavMesh2D navMesh;
-    private Face start;
-    private Face target;
+    private Vec2 start;
+    private Vec2 target;
     private List<Node<Vec2>> path = new ArrayList<>();
+    private Funnel funnel;
+    private double[] smoothPath = new double[2048];
+    private int smoothPathSize;
 
     private Stroke stroke = new BasicStroke(10
         , BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
 
     private boolean drawLinkNodes = false;
     private boolean drawNodes = false;
+    private boolean drawSmoothPath = false;
     
     public View() {
     }
     
     public void start() {
         navMesh = new NavMesh2D();
+        funnel = new Funnel(navMesh);
         addKeyListener(new KeyHandler());
         addMouseListener(new MouseHandler());
         loadNavMesh();
@@ -140,13 +146,11 @@ public class View extends JPanel {
     public void drawStartTarget(Graphics2D g) {
         if (start != null) {
             g.setColor(Color.GREEN);
-            g.fillOval((int) (start.getPointInsideFace().x - 10)
-                , (int) (start.getPointInsideFace().y - 10), 20, 20);
+            g.fillOval((int) (start.x - 10), (int) (start.y - 10), 20, 20);
         }
         if (target != null) {
             g.setColor(Color.RED);
-            g.fillOval((int) (target.getPointInsideFace().x - 10)
-                , (int) (target.getPointInsideFace().y - 10), 20, 20);
+            g.fillOval((int) (target.x - 10), (int) (target.y - 10), 20, 20);
         }
     }
     
@@ -156,12 +160,20 @@ public class View extends JPanel {
         
         g.setColor(Color.BLUE);
         
-        for (int i = 0; i < path.size() - 1; i++) {
-            Node<Vec2> na = path.get(i);
-            Node<Vec2> nb = path.get(i + 1);
-            Vec2 a = na.getObj();
-            Vec2 b = nb.getObj();
-            g.drawLine((int) a.x, (int) a.y, (int) b.x, (int) b.y);
+        if (drawSmoothPath) {
+            for (int i = 0; i < smoothPathSize - 1; i++) {
+                g.drawLine((int) smoothPath[i * 2], (int) smoothPath[i * 2 + 1]
+                    , (int) smoothPath[i * 2 + 2], (int) smoothPath[i * 2 + 3]);
+            }
+        }
+        else {
+            for (int i = 0; i < path.size() - 1; i++) {
+                // the end nodes are faces, the path goes from the points
+                Vec2 a = i == 0 ? start : path.get(i).getObj();
+                Vec2 b = i == path.size() - 2 ? target 
+                    : path.get(i + 1).getObj();
+                g.drawLine((int) a.x, (int) a.y, (int) b.x, (int) b.y);
+            }
         }
         
         g.setStroke(os);
@@ -175,6 +187,7 @@ public class View extends JPanel {
         g.drawString("RIGHT MOUSE BUTTON = TARGET", ex, 490);
         g.drawString("'N' key - show / hide Nodes", ex, 520);
         g.drawString("'L' key - show / hide Link between Nodes", ex, 550);
+        g.drawString("'S' key - smooth path on / off", ex, 580);
     }
     
     private class KeyHandler extends KeyAdapter {
@@ -187,6 +200,9 @@ public class View extends JPanel {
             else if (e.getKeyCode() == KeyEvent.VK_N) {
                 drawNodes = !drawNodes;
             }
+            else if (e.getKeyCode() == KeyEvent.VK_S) {
+                drawSmoothPath = !drawSmoothPath;
+            }
             repaint();
         }
         
@@ -209,28 +225,14 @@ public class View extends JPanel {
     }
     
     private void selectStartNode(int x, int y) {
-        for (Face face : navMesh.getFaces()) {
-            if (face.isInside(x, y)) {
-                if (start != null) {
-                    start.updatePointInsideFaceToBarycenter();
-                }
-                start = face;
-                face.getPointInsideFace().x = x;
-                face.getPointInsideFace().y = y;
-            }
+        if (navMesh.findFace(x, y) != null) {
+            start = new Vec2(x, y);
         }
     }
 
     private void selectTargetNode(int x, int y) {
-        for (Face face : navMesh.getFaces()) {
-            if (face.isInside(x, y)) {
-                if (target != null) {
-                    target.updatePointInsideFaceToBarycenter();
-                }
-                target = face;
-                face.getPointInsideFace().x = x;
-                face.getPointInsideFace().y = y;
-            }
+        if (navMesh.findFace(x, y) != null) {
+            target = new Vec2(x, y);
         }
     }
     
@@ -238,9 +240,15 @@ public class View extends JPanel {
         if (start == null || target == null) {
             return;
         }
-        path.clear();
-        navMesh.findPath(start.getNodeInsideFace()
-            , target.getNodeInsideFace(), path);
+        navMesh.findPath(start, target, path);
+        smoothPathSize = path.isEmpty() ? 0 : funnel.stringPull(
+            start.x, start.y, target.x, target.y, path, smoothPath);
+        
+        if (2 * smoothPathSize > smoothPath.length) {
+            smoothPath = new double[2 * smoothPathSize];
+            funnel.stringPull(start.x, start.y, target.x, target.y
+                , path, smoothPath);
+        }
     }
 
     public static void main(String[] args) {
@@ -23,7 +23,14 @@ public class Edge<T> {
     }
 
     public void setG(double g) {
-        this.g = g;
+        double oldG = this.g;
+        if (oldG != g) {
+            this.g = g;
+            Graph<T> graph = a.getGraph();
+            if (graph != null) {
+                graph.fireEdgeCostChanged(this, oldG);
+            }
+        }
     }
 
     public Node<T> getA() {
@@ -0,0 +1,333 @@
+package path.finder.a_star;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * FlowField class.
+ *
+ * Shortest paths from every node of a graph to one target, for many
+ * agents walking to the same place. A Dijkstra search run backwards from
+ * the target stores, per node id, the distance to the target and the
+ * next node to go to, so an agent follows its route in O(path length)
+ * without searching. Paths follow the same rules as Graph.findPath: they
+ * never enter a blocked node, but may leave one.
+ *
+ * The field registers itself as a listener of the graph and records the
+ * nodes affected by blocked nodes and changed, added or removed edges.
+ * update() repairs only the part of the field those changes reach: the
+ * nodes whose route went through a change are reset and searched again
+ * from their still valid neighbors, and the changes that make routes
+ * shorter are propagated from where they happened. The queries call
+ * update() first if the graph changed.
+ *
+ * The graph may be changed from any thread, but the queries and update
+ * must be called by one thread at a time. Call dispose when the field is
+ * not needed anymore.
+ *
+ * @param <T>
+ */
+public class FlowField<T> implements GraphListener<T> {
+
+    private static final double INFINITY = Double.POSITIVE_INFINITY;
+
+    private final Graph<T> graph;
+    private final Node<T> target;
+    private int nodeCount = -1;
+
+    // indexed by id
+    private double[] distances = new double[0];
+    private int[] nextHops = new int[0];
+
+    private final OpenSet openNodes = new IndexedDaryHeap();
+    private int[] queue = new int[0];
+
+    // nodes whose blocked state changed and endpoints of changed edges
+    private final BitSet blockedChangedNodes = new BitSet();
+    private final BitSet edgeChangedNodes = new BitSet();
+    private volatile boolean changed;
+
+    private int expandedCount;
+
+    public FlowField(Graph<T> graph, Node<T> target) {
+        this.graph = graph;
+        this.target = target;
+        graph.addListener(this);
+        compute();
+    }
+
+    public Graph<T> getGraph() {
+        return graph;
+    }
+
+    public Node<T> getTarget() {
+        return target;
+    }
+
+    /**
+     * Returns the number of nodes expanded by the last computation or
+     * repair of the field.
+     */
+    public int getExpandedCount() {
+        return expandedCount;
+    }
+
+    /**
+     * Stops listening to the graph. The field can't be updated afterwards.
+     */
+    public void dispose() {
+        graph.removeListener(this);
+    }
+
+    @Override
+    public void nodeBlockedChanged(Node<T> node) {
+        synchronized (blockedChangedNodes) {
+            blockedChangedNodes.set(node.getId());
+            changed = true;
+        }
+    }
+
+    @Override
+    public void edgeCostChanged(Edge<T> edge, double oldG) {
+        edgeChanged(edge);
+    }
+
+    @Override
+    public void edgeAdded(Edge<T> edge) {
+        edgeChanged(edge);
+    }
+
+    @Override
+    public void edgeRemoved(Edge<T> edge) {
+        edgeChanged(edge);
+    }
+
+    private void edgeChanged(Edge<T> edge) {
+        synchronized (blockedChangedNodes) {
+            edgeChangedNodes.set(edge.getA().getId());
+            edgeChangedNodes.set(edge.getB().getId());
+            changed = true;
+        }
+    }
+
+    /**
+     * Returns the cost of the shortest path from node to the target, or
+     * Double.POSITIVE_INFINITY if the target can't be reached.
+     */
+    public double getDistance(Node<T> node) {
+        update();
+        return distances[node.getId()];
+    }
+
+    /**
+     * Returns the node following node on its shortest path to the target,
+     * or null for the target and for nodes that can't reach it.
+     */
+    public Node<T> getNextHop(Node<T> node) {
+        update();
+        int nextHop = nextHops[node.getId()];
+        return nextHop < 0 ? null : graph.getNodes().get(nextHop);
+    }
+
+    /**
+     * Fills path with the nodes from start to the target (both included),
+     * or clears it if the target can't be reached.
+     */
+    public void getPath(Node<T> start, List<Node<T>> path) {
+        update();
+        path.clear();
+        int id = start.getId();
+        if (distances[id] == INFINITY) {
+            return;
+        }
+        List<Node<T>> nodes = graph.getNodes();
+        for (; id >= 0; id = nextHops[id]) {
+            path.add(nodes.get(id));
+        }
+    }
+
+    /**
+     * Same as getPath(start, path), filling a NodePath with the node ids.
+     */
+    public void getPath(Node<T> start, NodePath path) {
+        update();
+        path.clear();
+        int id = start.getId();
+        if (distances[id] == INFINITY) {
+            return;
+        }
+        for (; id >= 0; id = nextHops[id]) {
+            path.add(id);
+        }
+    }
+
+    /**
+     * Applies the changes made to the graph since the last update. Does
+     * nothing if there are none.
+     */
+    public void update() {
+        if (!changed) {
+            return;
+        }
+        BitSet blockedChanged;
+        BitSet edgeChanged;
+        synchronized (blockedChangedNodes) {
+            blockedChanged = (BitSet) blockedChangedNodes.clone();
+            edgeChanged = (BitSet) edgeChangedNodes.clone();
+            blockedChangedNodes.clear();
+            edgeChangedNodes.clear();
+            changed = false;
+        }
+        if (graph.getNodes().size() != nodeCount) {
+            compute();
+        }
+        else {
+            repair(blockedChanged, edgeChanged);
+        }
+    }
+
+    // full reverse Dijkstra from the target
+    private void compute() {
+        nodeCount = graph.getNodes().size();
+        if (distances.length < nodeCount) {
+            distances = new double[nodeCount];
+            nextHops = new int[nodeCount];
+            queue = new int[nodeCount];
+        }
+        Arrays.fill(distances, INFINITY);
+        Arrays.fill(nextHops, -1);
+        openNodes.ensureCapacity(nodeCount);
+        openNodes.clear();
+        expandedCount = 0;
+        distances[target.getId()] = 0;
+        openNodes.add(target.getId(), 0);
+        propagate();
+    }
+
+    private void repair(BitSet blockedChanged, BitSet edgeChanged) {
+        List<Node<T>> nodes = graph.getNodes();
+        openNodes.clear();
+        expandedCount = 0;
+
+        // the nodes to check are the edge endpoints and the neighbors of
+        // the nodes that got blocked or unblocked
+        BitSet checked = (BitSet) edgeChanged.clone();
+        for (int id = blockedChanged.nextSetBit(0); id >= 0
+                ; id = blockedChanged.nextSetBit(id + 1)) {
+
+            for (Edge<T> edge : nodes.get(id).getEdges()) {
+                checked.set(edge.getOppositeNode(nodes.get(id)).getId());
+            }
+        }
+
+        // reset the nodes whose route is not valid anymore, with all the
+        // nodes routed through them
+        int queueSize = 0;
+        for (int id = checked.nextSetBit(0); id >= 0
+                ; id = checked.nextSetBit(id + 1)) {
+
+            if (distances[id] < INFINITY && !isRouteValid(nodes.get(id))) {
+                queueSize = invalidate(id, queueSize);
+            }
+        }
+
+        // the reset nodes are entered again from their valid neighbors
+        for (int i = 0; i < queueSize; i++) {
+            Node<T> node = nodes.get(queue[i]);
+            for (Edge<T> edge : node.getEdges()) {
+                Node<T> neighbor = edge.getOppositeNode(node);
+                if (!neighbor.isBlocked()) {
+                    relax(neighbor.getId(), node.getId(), edge.getG());
+                }
+            }
+        }
+
+        // and the routes that got shorter spread from the changed nodes
+        checked.or(blockedChanged);
+        for (int id = checked.nextSetBit(0); id >= 0
+                ; id = checked.nextSetBit(id + 1)) {
+
+            if (distances[id] < INFINITY && !openNodes.contains(id)) {
+                openNodes.add(id, distances[id]);
+            }
+        }
+        propagate();
+    }
+
+    // true if the node's next hop is still a neighbor that can be entered
+    // and gives the same distance
+    private boolean isRouteValid(Node<T> node) {
+        int id = node.getId();
+        int nextHop = nextHops[id];
+        if (nextHop < 0) {
+            return node == target;
+        }
+        for (Edge<T> edge : node.getEdges()) {
+            Node<T> neighbor = edge.getOppositeNode(node);
+            if (neighbor.getId() == nextHop && !neighbor.isBlocked()
+                    && distances[nextHop] + edge.getG() == distances[id]) {
+
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // resets root and every node whose route goes through it, appending
+    // them to queue. Returns the new queue size.
+    private int invalidate(int root, int queueSize) {
+        List<Node<T>> nodes = graph.getNodes();
+        int first = queueSize;
+        distances[root] = INFINITY;
+        nextHops[root] = -1;
+        queue[queueSize++] = root;
+        for (int i = first; i < queueSize; i++) {
+            Node<T> node = nodes.get(queue[i]);
+            for (Edge<T> edge : node.getEdges()) {
+                int neighborId = edge.getOppositeNode(node).getId();
+                if (nextHops[neighborId] == node.getId()) {
+                    distances[neighborId] = INFINITY;
+                    nextHops[neighborId] = -1;
+                    queue[queueSize++] = neighborId;
+                }
+            }
+        }
+        return queueSize;
+    }
+
+    // makes id go through nextHop if that is shorter
+    private void relax(int nextHop, int id, double cost) {
+        double distance = distances[nextHop] + cost;
+        if (distance < distances[id]) {
+            distances[id] = distance;
+            nextHops[id] = nextHop;
+            if (openNodes.contains(id)) {
+                openNodes.decreaseKey(id, distance);
+            }
+            else {
+                openNodes.add(id, distance);
+            }
+        }
+    }
+
+    private void propagate() {
+        List<Node<T>> nodes = graph.getNodes();
+        while (!openNodes.isEmpty()) {
+            int currentId = openNodes.poll();
+            Node<T> currentNode = nodes.get(currentId);
+            expandedCount++;
+            // routes can leave a blocked node but not enter it
+            if (currentNode.isBlocked()) {
+                continue;
+            }
+            List<Edge<T>> edges = currentNode.getEdges();
+            for (int i = 0; i < edges.size(); i++) {
+                Edge<T> edge = edges.get(i);
+                int neighborId = edge.getOppositeNode(currentNode).getId();
+                relax(currentId, neighborId, edge.getG());
+            }
+        }
+    }
+
+}
@@ -1,26 +1,49 @@
 package path.finder.a_star;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.PriorityQueue;
-import static path.finder.a_star.Node.State.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+import static path.finder.a_star.SearchContext.State.*;
 
 /**
  * Graph class.
- * 
+ *
+ * Once built, the graph can be searched by several threads at the same
+ * time: each thread keeps its own SearchContext and the nodes and edges
+ * are only read while searching.
+ *
  * @param <T>
  * @author Leonardo Ono (ono.leo80@gmail.com)
  */
 public class Graph<T> {
 
     private final List<Node<T>> nodes = new ArrayList<>();
-    private final Heuristic<T> heuristic;
-    
+    private volatile Heuristic<T> heuristic;
+    private volatile Supplier<OpenSet> openSetFactory = IndexedDaryHeap::new;
+    private volatile ThreadLocal<SearchContext> contexts = createContexts();
+    private final List<GraphListener<T>> listeners 
+        = new CopyOnWriteArrayList<>();
+    private volatile SearchListener searchListener;
+
     public Graph(Heuristic<T> heuristic) {
         this.heuristic = heuristic;
     }
 
-    public void addNode(Node n) {
+    private ThreadLocal<SearchContext> createContexts() {
+        Supplier<OpenSet> factory = openSetFactory;
+        return ThreadLocal.withInitial(() -> new SearchContext(factory.get()));
+    }
+
+    public void addNode(Node<T> n) {
+        if (n.getId() >= 0) {
+            throw new IllegalArgumentException(
+                "node already added to a graph: " + n);
+        }
+        n.setId(nodes.size());
+        n.setGraph(this);
         nodes.add(n);
     }
 
@@ -31,54 +54,600 @@ public class Graph<T> {
     public Heuristic<T> getHeuristic() {
         return heuristic;
     }
-    
-    public void link(Node a, Node b, double cost) {
-        Edge edge = new Edge(cost, a, b);
+
+    /**
+     * Replaces the heuristic used by the searches started after the call, 
+     * e.g. by a LandmarkHeuristic computed for this graph.
+     */
+    public void setHeuristic(Heuristic<T> heuristic) {
+        this.heuristic = heuristic;
+    }
+
+    public Supplier<OpenSet> getOpenSetFactory() {
+        return openSetFactory;
+    }
+
+    /**
+     * Sets the factory of the open list used by the per-thread search 
+     * contexts (IndexedDaryHeap by default). Contexts created before the 
+     * call are dropped, so every thread picks up the new open set on its 
+     * next search.
+     */
+    public void setOpenSetFactory(Supplier<OpenSet> openSetFactory) {
+        this.openSetFactory = openSetFactory;
+        this.contexts = createContexts();
+    }
+
+    public void addListener(GraphListener<T> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(GraphListener<T> listener) {
+        listeners.remove(listener);
+    }
+
+    public SearchListener getSearchListener() {
+        return searchListener;
+    }
+
+    /**
+     * Sets the listener notified after every findPath (e.g. SearchMetrics),
+     * or removes it if null.
+     */
+    public void setSearchListener(SearchListener searchListener) {
+        this.searchListener = searchListener;
+    }
+
+    void fireNodeBlockedChanged(Node<T> node) {
+        listeners.forEach(listener -> listener.nodeBlockedChanged(node));
+    }
+
+    void fireEdgeCostChanged(Edge<T> edge, double oldG) {
+        listeners.forEach(listener -> listener.edgeCostChanged(edge, oldG));
+    }
+
+    void fireEdgeAdded(Edge<T> edge) {
+        listeners.forEach(listener -> listener.edgeAdded(edge));
+    }
+
+    void fireEdgeRemoved(Edge<T> edge) {
+        listeners.forEach(listener -> listener.edgeRemoved(edge));
+    }
+
+    public void link(Node<T> a, Node<T> b, double cost) {
+        Edge<T> edge = new Edge<>(cost, a, b);
         a.addEdge(edge);
         b.addEdge(edge);
+        if (!listeners.isEmpty()) {
+            fireEdgeAdded(edge);
+        }
+    }
+
+    /**
+     * Removes the edge from both of its nodes.
+     */
+    public void unlink(Edge<T> edge) {
+        edge.getA().removeEdge(edge);
+        edge.getB().removeEdge(edge);
+        fireEdgeRemoved(edge);
     }
-    
+
     public void findPath(Node<T> start, Node<T> target, List<Node<T>> path) {
-        nodes.forEach(node -> {
-            node.setState(UNVISITED);
-            node.setBackPathNode(null);
-            node.setG(Double.MAX_VALUE);
-        });
-        
-        start.setG(0);
-        start.setH(heuristic.calculate(start, target, start));
-        
-        PriorityQueue<Node<T>> openNodes = new PriorityQueue<>();
-        openNodes.add(start);
-        
+        findPath(start, target, path, contexts.get());
+    }
+
+    /**
+     * Same as findPath(start, target, path), but uses the given context
+     * instead of the calling thread's one. After the call the context
+     * still holds the state of this search.
+     */
+    public void findPath(Node<T> start, Node<T> target
+            , List<Node<T>> path, SearchContext context) {
+
+        findPath(start, target, path, (IntPredicate) null, context);
+    }
+
+    /**
+     * Same as findPath(start, target, path), searching in the given mode.
+     */
+    public void findPath(Node<T> start, Node<T> target
+            , List<Node<T>> path, SearchMode mode) {
+
+        findPath(start, target, path, mode, contexts.get());
+    }
+
+    public void findPath(Node<T> start, Node<T> target
+            , List<Node<T>> path, SearchMode mode, SearchContext context) {
+
+        int lastId = search(start, target, null, mode, context);
+        if (lastId >= 0) {
+            path.clear();
+            retrievePath(context, mode, lastId, path);
+        }
+    }
+
+    /**
+     * Same as findPath(start, target, path), but fills a NodePath with the
+     * node ids. The path is cleared if target can't be reached.
+     */
+    public void findPath(Node<T> start, Node<T> target, NodePath path) {
+        findPath(start, target, path, SearchMode.UNIDIRECTIONAL
+            , contexts.get());
+    }
+
+    public void findPath(Node<T> start, Node<T> target, NodePath path
+            , SearchMode mode) {
+
+        findPath(start, target, path, mode, contexts.get());
+    }
+
+    public void findPath(Node<T> start, Node<T> target, NodePath path
+            , SearchMode mode, SearchContext context) {
+
+        int lastId = search(start, target, null, mode, context);
+        path.clear();
+        if (lastId >= 0) {
+            retrievePath(context, mode, lastId, path);
+        }
+    }
+
+    /**
+     * Starts an A* search that is run in slices by calling step on the
+     * returned PathSearch (e.g. from a SearchScheduler), with a new
+     * context.
+     */
+    public PathSearch<T> startSearch(Node<T> start, Node<T> target) {
+        return startSearch(start, target
+            , new SearchContext(openSetFactory.get()));
+    }
+
+    /**
+     * Same as startSearch(start, target), but the search uses the given
+     * context, which must not be used by anything else until the search is
+     * done and its path retrieved.
+     */
+    public PathSearch<T> startSearch(Node<T> start, Node<T> target
+            , SearchContext context) {
+
+        return new PathSearch<>(this, start, target, context);
+    }
+
+    /**
+     * Returns the number of nodes expanded by the last search run on the 
+     * calling thread, for comparing search modes.
+     */
+    public int getExpandedCount() {
+        return contexts.get().getExpandedCount();
+    }
+
+    /**
+     * Same as findPath(start, target, path), but the search only enters 
+     * the nodes whose id is accepted by the filter (a null filter accepts 
+     * every node). The start node is always accepted.
+     */
+    public void findPath(Node<T> start, Node<T> target
+            , List<Node<T>> path, IntPredicate filter) {
+
+        findPath(start, target, path, filter, contexts.get());
+    }
+
+    public void findPath(Node<T> start, Node<T> target, List<Node<T>> path
+            , IntPredicate filter, SearchContext context) {
+
+        int lastId = search(start, target, filter
+            , SearchMode.UNIDIRECTIONAL, context);
+
+        if (lastId >= 0) {
+            path.clear();
+            retrievePath(context, SearchMode.UNIDIRECTIONAL, lastId, path);
+        }
+    }
+
+    /**
+     * Finds the shortest path between two virtual nodes, seeding the search
+     * with the nodes linked to start (at the cost of their link) and
+     * ending it at the nodes linked to target. Fills path with the nodes
+     * from the first to the last graph node of the path (the virtual nodes
+     * are not included), or clears it if target can't be reached. The
+     * graph is only read, so threads can search from their own virtual
+     * nodes at the same time.
+     */
+    public void findPath(VirtualNode<T> start, VirtualNode<T> target
+            , List<Node<T>> path) {
+
+        findPath(start, target, path, contexts.get());
+    }
+
+    public void findPath(VirtualNode<T> start, VirtualNode<T> target
+            , List<Node<T>> path, SearchContext context) {
+
+        int lastId = search(start, target, context);
+        path.clear();
+        if (lastId >= 0) {
+            retrievePath(context, SearchMode.UNIDIRECTIONAL, lastId, path);
+        }
+    }
+
+    public void findPath(VirtualNode<T> start, VirtualNode<T> target
+            , NodePath path) {
+
+        findPath(start, target, path, contexts.get());
+    }
+
+    public void findPath(VirtualNode<T> start, VirtualNode<T> target
+            , NodePath path, SearchContext context) {
+
+        int lastId = search(start, target, context);
+        path.clear();
+        if (lastId >= 0) {
+            retrievePath(context, SearchMode.UNIDIRECTIONAL, lastId, path);
+        }
+    }
+
+    // A* between virtual nodes, notifies the search listener. Returns the
+    // id of the last graph node of the path or -1 if there is no path.
+    private int search(VirtualNode<T> start, VirtualNode<T> target
+            , SearchContext context) {
+
+        SearchListener listener = searchListener;
+        long startTime = listener == null ? 0 : System.nanoTime();
+        Heuristic<T> heuristic = this.heuristic;
+        Node<T> from = start.getNode();
+        Node<T> to = target.getNode();
+        context.prepare(nodes.size());
+
+        OpenSet openNodes = context.getOpenSet();
+        for (int i = 0; i < start.size(); i++) {
+            int id = start.getId(i);
+            Node<T> node = nodes.get(id);
+            double g = start.getCost(i);
+            if (node.isBlocked() || g >= context.getG(id)) {
+                continue;
+            }
+            context.setG(id, g);
+            context.setH(id, heuristic.calculate(from, to, node));
+            if (openNodes.contains(id)) {
+                openNodes.decreaseKey(id, context.getF(id));
+                context.incrementDecreaseKeyCount();
+            }
+            else {
+                openNodes.add(id, context.getF(id));
+                context.setState(id, OPEN);
+                context.incrementPushCount();
+            }
+        }
+
+        // the search goes on until no open node can lead to a cheaper
+        // path than the best one through a node linked to target
+        double bestG = Double.MAX_VALUE;
+        int lastId = -1;
+        while (!openNodes.isEmpty()
+                && context.getF(openNodes.peek()) < bestG) {
+
+            int currentId = expand(from, to, null, heuristic, context);
+            double g = context.getG(currentId)
+                + target.getCostTo(currentId);
+
+            if (g < bestG) {
+                bestG = g;
+                lastId = currentId;
+            }
+        }
+
+        if (listener != null) {
+            listener.searchFinished(context, lastId >= 0
+                , System.nanoTime() - startTime);
+        }
+        return lastId;
+    }
+
+    // runs the search and notifies the search listener. Returns the id of
+    // the last node of the forward path (see retrievePath), or -1 if there 
+    // is no path.
+    private int search(Node<T> start, Node<T> target, IntPredicate filter
+            , SearchMode mode, SearchContext context) {
+
+        SearchListener listener = searchListener;
+        long startTime = listener == null ? 0 : System.nanoTime();
+        int lastId = mode == SearchMode.BIDIRECTIONAL
+            ? searchBidirectional(start, target, context)
+            : search(start, target, filter, context);
+
+        if (listener != null) {
+            listener.searchFinished(context, lastId >= 0
+                , System.nanoTime() - startTime);
+        }
+        return lastId;
+    }
+
+    // A*, returns the target id or -1 if it can't be reached
+    private int search(Node<T> start, Node<T> target, IntPredicate filter
+            , SearchContext context) {
+
+        Heuristic<T> heuristic = this.heuristic;
+        begin(start, target, heuristic, context);
+        OpenSet openNodes = context.getOpenSet();
+        int targetId = target.getId();
+        while (!openNodes.isEmpty()) {
+            int currentId = expand(start, target, filter, heuristic, context);
+            if (currentId == targetId) {
+                return currentId;
+            }
+        }
+        return -1;
+    }
+
+    // starts an A* search in context, with start as the only open node
+    void begin(Node<T> start, Node<T> target, Heuristic<T> heuristic
+            , SearchContext context) {
+
+        context.prepare(nodes.size());
+
+        int startId = start.getId();
+        context.setG(startId, 0);
+        context.setH(startId, heuristic.calculate(start, target, start));
+
+        OpenSet openNodes = context.getOpenSet();
+        openNodes.add(startId, context.getF(startId));
+        context.incrementPushCount();
+    }
+
+    // expands the best open node of an A* search started with begin and 
+    // returns its id. The open set must not be empty. Nothing is expanded 
+    // beyond the target, the search is done when its id is returned.
+    int expand(Node<T> start, Node<T> target, IntPredicate filter
+            , Heuristic<T> heuristic, SearchContext context) {
+
+        OpenSet openNodes = context.getOpenSet();
+        int currentId = openNodes.poll();
+        Node<T> currentNode = nodes.get(currentId);
+        context.setState(currentId, CLOSED);
+        context.incrementExpandedCount();
+
+        // target node found !
+        if (currentNode == target) {
+            return currentId;
+        }
+
+        double currentG = context.getG(currentId);
+        List<Edge<T>> edges = currentNode.getEdges();
+        context.addRelaxationCount(edges.size());
+        for (int i = 0; i < edges.size(); i++) {
+            Edge<T> edge = edges.get(i);
+            Node<T> neighborNode = edge.getOppositeNode(currentNode);
+            int neighborId = neighborNode.getId();
+            double neighborG = currentG + edge.getG();
+            if (!neighborNode.isBlocked()
+                    && neighborG < context.getG(neighborId)
+                    && (filter == null || filter.test(neighborId))) {
+
+                context.setBackPathNode(neighborId, currentId);
+                context.setG(neighborId, neighborG);
+                double h = heuristic.calculate(start, target, neighborNode);
+                context.setH(neighborId, h);
+                if (openNodes.contains(neighborId)) {
+                    openNodes.decreaseKey(neighborId, neighborG + h);
+                    context.incrementDecreaseKeyCount();
+                }
+                else {
+                    openNodes.add(neighborId, neighborG + h);
+                    context.setState(neighborId, OPEN);
+                    context.incrementPushCount();
+                }
+            }
+        }
+        return currentId;
+    }
+
+    // bidirectional A*, the forward search uses context and the backward 
+    // one its reverse context. Both heuristics are assumed consistent, the 
+    // search stops as soon as one side can't find a meeting point cheaper 
+    // than the best one found so far. Returns the id of the meeting node or
+    // -1 if there is no path. The statistics of both sides are counted in 
+    // the forward context.
+    private int searchBidirectional(Node<T> start, Node<T> target
+            , SearchContext context) {
+
+        SearchContext forward = context;
+        SearchContext backward = context.getReverse();
+        if (backward == null) {
+            backward = new SearchContext(openSetFactory.get());
+            context.setReverse(backward);
+        }
+        forward.prepare(nodes.size());
+        backward.prepare(nodes.size());
+        Heuristic<T> heuristic = this.heuristic;
+
+        if (start == target) {
+            forward.incrementExpandedCount();
+            return start.getId();
+        }
+        if (target.isBlocked()) {
+            return -1;
+        }
+
+        int startId = start.getId();
+        int targetId = target.getId();
+        OpenSet forwardOpen = forward.getOpenSet();
+        OpenSet backwardOpen = backward.getOpenSet();
+        forward.setG(startId, 0);
+        forward.setH(startId, heuristic.calculate(start, target, start));
+        forwardOpen.add(startId, forward.getF(startId));
+        backward.setG(targetId, 0);
+        backward.setH(targetId, heuristic.calculate(target, start, target));
+        backwardOpen.add(targetId, backward.getF(targetId));
+        forward.incrementPushCount();
+        forward.incrementPushCount();
+
+        double bestG = Double.MAX_VALUE;
+        int meetingId = -1;
+
+        while (!forwardOpen.isEmpty() && !backwardOpen.isEmpty()) {
+            if (forward.getF(forwardOpen.peek()) >= bestG
+                    || backward.getF(backwardOpen.peek()) >= bestG) {
+                
+                break;
+            }
+
+            // expand the side with the smaller open list
+            boolean isForward = forwardOpen.size() <= backwardOpen.size();
+            SearchContext side = isForward ? forward : backward;
+            SearchContext otherSide = isForward ? backward : forward;
+            Node<T> from = isForward ? start : target;
+            Node<T> to = isForward ? target : start;
+            OpenSet openNodes = side.getOpenSet();
+
+            int currentId = openNodes.poll();
+            Node<T> currentNode = nodes.get(currentId);
+            side.setState(currentId, CLOSED);
+            forward.incrementExpandedCount();
+
+            // the other side already expanded it, its best meeting point 
+            // through this node is known
+            if (otherSide.getState(currentId) == CLOSED) {
+                continue;
+            }
+
+            double currentG = side.getG(currentId);
+            List<Edge<T>> edges = currentNode.getEdges();
+            forward.addRelaxationCount(edges.size());
+            for (int i = 0; i < edges.size(); i++) {
+                Edge<T> edge = edges.get(i);
+                Node<T> neighborNode = edge.getOppositeNode(currentNode);
+                int neighborId = neighborNode.getId();
+                double neighborG = currentG + edge.getG();
+                if (!neighborNode.isBlocked()
+                        && neighborG < side.getG(neighborId)) {
+
+                    side.setBackPathNode(neighborId, currentId);
+                    side.setG(neighborId, neighborG);
+                    double h = heuristic.calculate(from, to, neighborNode);
+                    side.setH(neighborId, h);
+                    if (openNodes.contains(neighborId)) {
+                        openNodes.decreaseKey(neighborId, neighborG + h);
+                        forward.incrementDecreaseKeyCount();
+                    }
+                    else if (neighborG + h < bestG) {
+                        openNodes.add(neighborId, neighborG + h);
+                        side.setState(neighborId, OPEN);
+                        forward.incrementPushCount();
+                    }
+
+                    double otherG = otherSide.getG(neighborId);
+                    if (otherG < Double.MAX_VALUE 
+                            && neighborG + otherG < bestG) {
+                        
+                        bestG = neighborG + otherG;
+                        meetingId = neighborId;
+                    }
+                }
+            }
+        }
+
+        return meetingId;
+    }
+
+    /**
+     * Computes the cost of the shortest path from source to every node it 
+     * can reach (Dijkstra), entering only the nodes accepted by the filter 
+     * (null accepts all). Returns the calling thread's search context, 
+     * where getG(id) is the distance to node id (Double.MAX_VALUE when not 
+     * reached) and getBackPathNode(id) the previous node on its shortest 
+     * path. The context is only valid until the thread's next search.
+     */
+    public SearchContext findDistances(Node<T> source, IntPredicate filter) {
+        SearchContext context = contexts.get();
+        findDistances(source, filter, context);
+        return context;
+    }
+
+    public void findDistances(Node<T> source, IntPredicate filter
+            , SearchContext context) {
+
+        context.prepare(nodes.size());
+
+        int sourceId = source.getId();
+        context.setG(sourceId, 0);
+
+        OpenSet openNodes = context.getOpenSet();
+        openNodes.add(sourceId, 0);
+        context.incrementPushCount();
+
         while (!openNodes.isEmpty()) {
-            Node<T> currentNode = openNodes.poll();
-            currentNode.setState(CLOSED);
-            
-            // target node found !
-            if (currentNode == target) {
-                path.clear();
-                target.retrievePath(path);
-                return;
-            }            
-            
-            currentNode.getEdges().forEach((edge) -> {
+            int currentId = openNodes.poll();
+            Node<T> currentNode = nodes.get(currentId);
+            context.setState(currentId, CLOSED);
+            context.incrementExpandedCount();
+
+            double currentG = context.getG(currentId);
+            List<Edge<T>> edges = currentNode.getEdges();
+            context.addRelaxationCount(edges.size());
+            for (int i = 0; i < edges.size(); i++) {
+                Edge<T> edge = edges.get(i);
                 Node<T> neighborNode = edge.getOppositeNode(currentNode);
-                double neighborG = currentNode.getG() + edge.getG();
-                if (!neighborNode.isBlocked() 
-                        && neighborG < neighborNode.getG()) {
-                    
-                    neighborNode.setBackPathNode(currentNode);
-                    neighborNode.setG(neighborG);
-                    double h = heuristic.calculate(start, target, neighborNode);
-                    neighborNode.setH(h);
-                    if (!openNodes.contains(neighborNode)) {
-                        openNodes.add(neighborNode);
-                        neighborNode.setState(OPEN);
+                int neighborId = neighborNode.getId();
+                double neighborG = currentG + edge.getG();
+                if (!neighborNode.isBlocked()
+                        && neighborG < context.getG(neighborId)
+                        && (filter == null || filter.test(neighborId))) {
+
+                    context.setBackPathNode(neighborId, currentId);
+                    context.setG(neighborId, neighborG);
+                    if (openNodes.contains(neighborId)) {
+                        openNodes.decreaseKey(neighborId, neighborG);
+                        context.incrementDecreaseKeyCount();
+                    }
+                    else {
+                        openNodes.add(neighborId, neighborG);
+                        context.setState(neighborId, OPEN);
+                        context.incrementPushCount();
                     }
                 }
-            });
+            }
+        }
+    }
+
+    // appends the path ending at lastId found by the search in context. A 
+    // bidirectional search continues from lastId (the meeting node) to the 
+    // target along the back path nodes of the reverse context.
+    void retrievePath(SearchContext context, SearchMode mode
+            , int lastId, List<Node<T>> path) {
+
+        int start = path.size();
+        for (int id = lastId; id >= 0; id = context.getBackPathNode(id)) {
+            path.add(nodes.get(id));
+        }
+        Collections.reverse(path.subList(start, path.size()));
+        if (mode == SearchMode.BIDIRECTIONAL) {
+            SearchContext backward = context.getReverse();
+            for (int id = backward.getBackPathNode(lastId); id >= 0
+                    ; id = backward.getBackPathNode(id)) {
+
+                path.add(nodes.get(id));
+            }
+        }
+    }
+
+    void retrievePath(SearchContext context, SearchMode mode
+            , int lastId, NodePath path) {
+
+        int length = 0;
+        for (int id = lastId; id >= 0; id = context.getBackPathNode(id)) {
+            length++;
+        }
+        int start = path.size();
+        path.setSize(start + length);
+        for (int id = lastId; id >= 0; id = context.getBackPathNode(id)) {
+            path.set(start + --length, id);
+        }
+        if (mode == SearchMode.BIDIRECTIONAL) {
+            SearchContext backward = context.getReverse();
+            for (int id = backward.getBackPathNode(lastId); id >= 0
+                    ; id = backward.getBackPathNode(id)) {
+
+                path.add(id);
+            }
         }
     }
-    
+
 }
@@ -0,0 +1,37 @@
+package path.finder.a_star;
+
+/**
+ * GraphListener interface.
+ *
+ * Notified when the search relevant state of a graph changes, so that
+ * whatever was derived from previous searches (cached paths, search trees)
+ * can be invalidated or repaired. Listeners are called on the thread that
+ * made the change.
+ *
+ * @param <T>
+ */
+public interface GraphListener<T> {
+
+    /**
+     * Called after node.isBlocked() changed.
+     */
+    public void nodeBlockedChanged(Node<T> node);
+
+    /**
+     * Called after the cost of the edge changed from oldG to edge.getG().
+     */
+    public void edgeCostChanged(Edge<T> edge, double oldG);
+
+    /**
+     * Called after edge was linked (see Graph.link).
+     */
+    public default void edgeAdded(Edge<T> edge) {
+    }
+
+    /**
+     * Called after edge was removed from its nodes (see Graph.unlink).
+     */
+    public default void edgeRemoved(Edge<T> edge) {
+    }
+
+}
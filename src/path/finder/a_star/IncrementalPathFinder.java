@@ -0,0 +1,413 @@
+package path.finder.a_star;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * IncrementalPathFinder class.
+ *
+ * D* Lite search for one agent moving towards a fixed goal. The search
+ * runs backwards from the goal and keeps its tree (g and rhs values and
+ * the open list) between calls, so after nodes get blocked or unblocked
+ * or edge costs change only the part of the tree affected by the change
+ * is repaired, and moving the start along the path costs almost nothing.
+ *
+ * The finder registers itself as a listener of the graph and only
+ * records which nodes changed (including edges linked or unlinked); the
+ * repair is done by the next findPath.
+ * It keeps arrays of the graph size, so create one per agent (or per
+ * goal) and call dispose when it is not needed anymore. An instance must
+ * not be used by several threads at the same time, but the graph may be
+ * changed from any thread.
+ *
+ * The heuristic of the graph must be consistent (the straight line
+ * distance and LandmarkHeuristic are).
+ *
+ * @param <T>
+ */
+public class IncrementalPathFinder<T> implements GraphListener<T> {
+
+    private static final double INFINITY = Double.POSITIVE_INFINITY;
+    private static final double TOLERANCE = 1e-9;
+
+    private final Graph<T> graph;
+
+    private Heuristic<T> heuristic;
+    private Node<T> goal;
+    private Node<T> lastStart;
+    private double km;
+    private int nodeCount = -1;
+
+    // indexed by id
+    private double[] g = new double[0];
+    private double[] rhs = new double[0];
+    private final KeyHeap openNodes = new KeyHeap();
+
+    // ids of the nodes whose outgoing costs changed since the last search
+    private final BitSet changedNodes = new BitSet();
+
+    private int expandedCount;
+    private boolean disposed;
+
+    public IncrementalPathFinder(Graph<T> graph) {
+        this.graph = graph;
+        graph.addListener(this);
+    }
+
+    public Graph<T> getGraph() {
+        return graph;
+    }
+
+    public Node<T> getGoal() {
+        return goal;
+    }
+
+    /**
+     * Returns the number of nodes expanded by the last findPath call.
+     */
+    public int getExpandedCount() {
+        return expandedCount;
+    }
+
+    /**
+     * Stops listening to the graph. The finder can't be used afterwards,
+     * findPath throws IllegalStateException.
+     */
+    public void dispose() {
+        disposed = true;
+        graph.removeListener(this);
+        goal = null;
+        g = rhs = new double[0];
+    }
+
+    @Override
+    public void nodeBlockedChanged(Node<T> node) {
+        // the cost of entering the node changed for all its neighbors
+        synchronized (changedNodes) {
+            for (Edge<T> edge : node.getEdges()) {
+                changedNodes.set(edge.getOppositeNode(node).getId());
+            }
+        }
+    }
+
+    @Override
+    public void edgeCostChanged(Edge<T> edge, double oldG) {
+        edgeChanged(edge);
+    }
+
+    @Override
+    public void edgeAdded(Edge<T> edge) {
+        edgeChanged(edge);
+    }
+
+    @Override
+    public void edgeRemoved(Edge<T> edge) {
+        edgeChanged(edge);
+    }
+
+    private void edgeChanged(Edge<T> edge) {
+        synchronized (changedNodes) {
+            changedNodes.set(edge.getA().getId());
+            changedNodes.set(edge.getB().getId());
+        }
+    }
+
+    /**
+     * Fills path with the nodes from start to goal (both included), or
+     * clears it if goal can't be reached. The first call for a goal (or a
+     * call after the graph got new nodes) does a full search; later calls
+     * only repair the tree for the changes made since the previous call.
+     */
+    public void findPath(Node<T> start, Node<T> goal, List<Node<T>> path) {
+        if (disposed) {
+            throw new IllegalStateException("finder disposed");
+        }
+        path.clear();
+        expandedCount = 0;
+        if (goal != this.goal || graph.getNodes().size() != nodeCount
+                || graph.getHeuristic() != heuristic) {
+
+            initialize(start, goal);
+        }
+        else {
+            if (start != lastStart) {
+                km += heuristic.calculate(goal, lastStart, start);
+                lastStart = start;
+            }
+            updateChangedNodes();
+        }
+        computeShortestPath(start);
+        retrievePath(start, path);
+    }
+
+    private void initialize(Node<T> start, Node<T> goal) {
+        this.goal = goal;
+        this.lastStart = start;
+        this.heuristic = graph.getHeuristic();
+        km = 0;
+        nodeCount = graph.getNodes().size();
+        if (g.length < nodeCount) {
+            g = new double[nodeCount];
+            rhs = new double[nodeCount];
+        }
+        Arrays.fill(g, INFINITY);
+        Arrays.fill(rhs, INFINITY);
+        openNodes.ensureCapacity(nodeCount);
+        openNodes.clear();
+        synchronized (changedNodes) {
+            changedNodes.clear();
+        }
+        int id = goal.getId();
+        rhs[id] = 0;
+        openNodes.add(id, heuristic.calculate(goal, start, goal), 0);
+    }
+
+    private void updateChangedNodes() {
+        BitSet changed;
+        synchronized (changedNodes) {
+            changed = (BitSet) changedNodes.clone();
+            changedNodes.clear();
+        }
+        List<Node<T>> nodes = graph.getNodes();
+        for (int id = changed.nextSetBit(0); id >= 0
+                ; id = changed.nextSetBit(id + 1)) {
+
+            updateNode(nodes.get(id));
+        }
+    }
+
+    // cost of going from a node to its neighbor
+    private static <T> double cost(Edge<T> edge, Node<T> neighbor) {
+        return neighbor.isBlocked() ? INFINITY : edge.getG();
+    }
+
+    private void updateNode(Node<T> node) {
+        int id = node.getId();
+        if (node != goal) {
+            double minRhs = INFINITY;
+            for (Edge<T> edge : node.getEdges()) {
+                Node<T> neighbor = edge.getOppositeNode(node);
+                double value = cost(edge, neighbor) + g[neighbor.getId()];
+                if (value < minRhs) {
+                    minRhs = value;
+                }
+            }
+            rhs[id] = minRhs;
+        }
+        updateKey(node);
+    }
+
+    private void computeShortestPath(Node<T> start) {
+        List<Node<T>> nodes = graph.getNodes();
+        int startId = start.getId();
+        while (!openNodes.isEmpty()) {
+            double startK2 = Math.min(g[startId], rhs[startId]);
+            double startK1 = startK2 + km;
+            int top = openNodes.peek();
+            double topK1 = openNodes.getK1(top);
+            double topK2 = openNodes.getK2(top);
+            // keys that are equal in theory can differ in the last bits
+            // (g + h along a straight line), so near ties are expanded
+            boolean startBehind = topK1
+                <= startK1 + TOLERANCE * Math.max(1, startK1);
+
+            if (!startBehind && rhs[startId] == g[startId]) {
+                break;
+            }
+
+            Node<T> node = nodes.get(top);
+            double k2 = Math.min(g[top], rhs[top]);
+            double k1 = k2 + heuristic.calculate(goal, lastStart, node) + km;
+            if (topK1 < k1 || (topK1 == k1 && topK2 < k2)) {
+                // key is outdated since the start moved
+                openNodes.update(top, k1, k2);
+            }
+            else if (g[top] > rhs[top]) {
+                // overconsistent, the node got cheaper
+                g[top] = rhs[top];
+                openNodes.remove(top);
+                expandedCount++;
+                for (Edge<T> edge : node.getEdges()) {
+                    Node<T> neighbor = edge.getOppositeNode(node);
+                    if (neighbor != goal && !node.isBlocked()) {
+                        double value = edge.getG() + g[top];
+                        if (value < rhs[neighbor.getId()]) {
+                            rhs[neighbor.getId()] = value;
+                            updateKey(neighbor);
+                        }
+                    }
+                }
+            }
+            else {
+                // underconsistent, the node got more expensive
+                g[top] = INFINITY;
+                expandedCount++;
+                updateNode(node);
+                for (Edge<T> edge : node.getEdges()) {
+                    updateNode(edge.getOppositeNode(node));
+                }
+            }
+        }
+    }
+
+    private void updateKey(Node<T> node) {
+        int id = node.getId();
+        if (g[id] != rhs[id]) {
+            double k2 = Math.min(g[id], rhs[id]);
+            double k1 = k2 + heuristic.calculate(goal, lastStart, node) + km;
+            if (openNodes.contains(id)) {
+                openNodes.update(id, k1, k2);
+            }
+            else {
+                openNodes.add(id, k1, k2);
+            }
+        }
+        else if (openNodes.contains(id)) {
+            openNodes.remove(id);
+        }
+    }
+
+    private void retrievePath(Node<T> start, List<Node<T>> path) {
+        if (rhs[start.getId()] == INFINITY) {
+            return;
+        }
+        Node<T> node = start;
+        path.add(node);
+        while (node != goal) {
+            Node<T> next = null;
+            double min = INFINITY;
+            for (Edge<T> edge : node.getEdges()) {
+                Node<T> neighbor = edge.getOppositeNode(node);
+                double value = cost(edge, neighbor) + g[neighbor.getId()];
+                if (value < min) {
+                    min = value;
+                    next = neighbor;
+                }
+            }
+            if (next == null || path.size() > nodeCount) {
+                path.clear();
+                return;
+            }
+            path.add(next);
+            node = next;
+        }
+    }
+
+    /**
+     * Indexed binary min heap of node ids ordered by the key pair (k1, k2).
+     */
+    private static class KeyHeap {
+
+        private int[] heap = new int[0];
+        private int size;
+
+        // indexed by id
+        private double[] k1s = new double[0];
+        private double[] k2s = new double[0];
+        private int[] positions = new int[0];
+
+        public void ensureCapacity(int nodeCount) {
+            if (positions.length < nodeCount) {
+                int oldLength = positions.length;
+                heap = Arrays.copyOf(heap, nodeCount);
+                k1s = Arrays.copyOf(k1s, nodeCount);
+                k2s = Arrays.copyOf(k2s, nodeCount);
+                positions = Arrays.copyOf(positions, nodeCount);
+                Arrays.fill(positions, oldLength, nodeCount, -1);
+            }
+        }
+
+        public void clear() {
+            for (int i = 0; i < size; i++) {
+                positions[heap[i]] = -1;
+            }
+            size = 0;
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        public boolean contains(int id) {
+            return positions[id] >= 0;
+        }
+
+        public double getK1(int id) {
+            return k1s[id];
+        }
+
+        public double getK2(int id) {
+            return k2s[id];
+        }
+
+        public int peek() {
+            return heap[0];
+        }
+
+        public void add(int id, double k1, double k2) {
+            k1s[id] = k1;
+            k2s[id] = k2;
+            siftUp(size++, id);
+        }
+
+        public void update(int id, double k1, double k2) {
+            k1s[id] = k1;
+            k2s[id] = k2;
+            int position = positions[id];
+            siftUp(position, id);
+            siftDown(positions[id], id);
+        }
+
+        public void remove(int id) {
+            int position = positions[id];
+            positions[id] = -1;
+            int last = heap[--size];
+            if (position < size) {
+                siftUp(position, last);
+                siftDown(positions[last], last);
+            }
+        }
+
+        private boolean less(int a, int b) {
+            return k1s[a] < k1s[b] || (k1s[a] == k1s[b] && k2s[a] < k2s[b]);
+        }
+
+        private void siftUp(int position, int id) {
+            while (position > 0) {
+                int parentPosition = (position - 1) >> 1;
+                int parent = heap[parentPosition];
+                if (!less(id, parent)) {
+                    break;
+                }
+                heap[position] = parent;
+                positions[parent] = position;
+                position = parentPosition;
+            }
+            heap[position] = id;
+            positions[id] = position;
+        }
+
+        private void siftDown(int position, int id) {
+            while (true) {
+                int child = 2 * position + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && less(heap[child + 1], heap[child])) {
+                    child++;
+                }
+                if (!less(heap[child], id)) {
+                    break;
+                }
+                heap[position] = heap[child];
+                positions[heap[child]] = position;
+                position = child;
+            }
+            heap[position] = id;
+            positions[id] = position;
+        }
+
+    }
+
+}
@@ -0,0 +1,165 @@
+package path.finder.a_star;
+
+import java.util.Arrays;
+
+/**
+ * IndexedDaryHeap class.
+ *
+ * d-ary min heap of node ids that also keeps the heap position of each
+ * id, so contains is O(1) and decreaseKey is O(log n). Clearing only
+ * touches the ids still in the heap.
+ */
+public class IndexedDaryHeap implements OpenSet {
+
+    public static final int DEFAULT_ARITY = 4;
+
+    private final int arity;
+
+    private int[] heap = new int[0];
+    private int size;
+
+    // indexed by id
+    private double[] keys = new double[0];
+    private int[] positions = new int[0];
+
+    public IndexedDaryHeap() {
+        this(DEFAULT_ARITY);
+    }
+
+    public IndexedDaryHeap(int arity) {
+        if (arity < 2) {
+            throw new IllegalArgumentException("invalid arity " + arity);
+        }
+        this.arity = arity;
+    }
+
+    public int getArity() {
+        return arity;
+    }
+
+    @Override
+    public void ensureCapacity(int nodeCount) {
+        if (positions.length < nodeCount) {
+            int oldLength = positions.length;
+            int capacity = Math.max(nodeCount, oldLength + (oldLength >> 1));
+            heap = Arrays.copyOf(heap, capacity);
+            keys = Arrays.copyOf(keys, capacity);
+            positions = Arrays.copyOf(positions, capacity);
+            Arrays.fill(positions, oldLength, capacity, -1);
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(int id) {
+        return positions[id] >= 0;
+    }
+
+    public double getKey(int id) {
+        return keys[id];
+    }
+
+    @Override
+    public void add(int id, double key) {
+        if (positions[id] >= 0) {
+            throw new IllegalStateException("id already in heap: " + id);
+        }
+        keys[id] = key;
+        siftUp(size++, id);
+    }
+
+    @Override
+    public void decreaseKey(int id, double key) {
+        int position = positions[id];
+        if (position < 0) {
+            throw new IllegalStateException("id not in heap: " + id);
+        }
+        keys[id] = key;
+        siftUp(position, id);
+    }
+
+    @Override
+    public int peek() {
+        if (size == 0) {
+            throw new IllegalStateException("heap is empty");
+        }
+        return heap[0];
+    }
+
+    @Override
+    public int poll() {
+        if (size == 0) {
+            throw new IllegalStateException("heap is empty");
+        }
+        int min = heap[0];
+        positions[min] = -1;
+        int last = heap[--size];
+        if (size > 0) {
+            siftDown(0, last);
+        }
+        return min;
+    }
+
+    private void siftUp(int position, int id) {
+        double key = keys[id];
+        while (position > 0) {
+            int parentPosition = (position - 1) / arity;
+            int parent = heap[parentPosition];
+            if (keys[parent] <= key) {
+                break;
+            }
+            heap[position] = parent;
+            positions[parent] = position;
+            position = parentPosition;
+        }
+        heap[position] = id;
+        positions[id] = position;
+    }
+
+    private void siftDown(int position, int id) {
+        double key = keys[id];
+        while (true) {
+            int firstChild = position * arity + 1;
+            if (firstChild >= size) {
+                break;
+            }
+            int lastChild = Math.min(firstChild + arity, size);
+            int minChild = firstChild;
+            double minKey = keys[heap[firstChild]];
+            for (int c = firstChild + 1; c < lastChild; c++) {
+                double childKey = keys[heap[c]];
+                if (childKey < minKey) {
+                    minChild = c;
+                    minKey = childKey;
+                }
+            }
+            if (key <= minKey) {
+                break;
+            }
+            int child = heap[minChild];
+            heap[position] = child;
+            positions[child] = position;
+            position = minChild;
+        }
+        heap[position] = id;
+        positions[id] = position;
+    }
+
+}
@@ -0,0 +1,243 @@
+package path.finder.a_star;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * LandmarkHeuristic class.
+ *
+ * ALT (A*, landmarks, triangle inequality) heuristic. For a few landmark
+ * nodes the exact graph distance to every node is precomputed, and the
+ * distance from n to the target is bounded from below by
+ * |d(L, target) - d(L, n)| for every landmark L. On meshes with long
+ * detours around walls this is much closer to the real distance than the
+ * straight line distance.
+ *
+ * The landmarks are chosen by farthest point selection. The tables are
+ * stored as float (rounded down), one row of node count entries per
+ * landmark, and can be saved next to the mesh and loaded back instead of
+ * being recomputed at startup.
+ *
+ * The bound stays admissible when nodes get blocked or edges more
+ * expensive, but the tables must be recomputed when nodes get unblocked,
+ * edges get cheaper or the graph changes. Nodes added after the tables
+ * were computed fall back to the base heuristic.
+ *
+ * @param <T>
+ */
+public class LandmarkHeuristic<T> implements Heuristic<T> {
+
+    private static final int MAGIC = 0x414c5431; // "ALT1"
+    private static final int VERSION = 1;
+
+    private final Heuristic<T> base;
+    private final int nodeCount;
+    private final int[] landmarks;
+    private final float[] distances;
+
+    private LandmarkHeuristic(Heuristic<T> base, int nodeCount
+            , int[] landmarks, float[] distances) {
+
+        this.base = base;
+        this.nodeCount = nodeCount;
+        this.landmarks = landmarks;
+        this.distances = distances;
+    }
+
+    /**
+     * Chooses landmarkCount landmarks on the graph and computes their
+     * distance tables. The result is the maximum of the landmark bound and
+     * the base heuristic (which may be null), so it is never weaker than
+     * the heuristic it replaces.
+     */
+    public static <T> LandmarkHeuristic<T> create(Graph<T> graph
+            , int landmarkCount, Heuristic<T> base) {
+
+        List<Node<T>> nodes = graph.getNodes();
+        int nodeCount = nodes.size();
+        landmarkCount = Math.min(landmarkCount, nodeCount);
+        int[] landmarks = new int[landmarkCount];
+        float[] distances = new float[landmarkCount * nodeCount];
+        if (landmarkCount == 0) {
+            return new LandmarkHeuristic<>(base, nodeCount
+                , landmarks, distances);
+        }
+
+        // farthest point selection, starting from the node farthest from
+        // node 0. Nodes no landmark reaches are picked first.
+        double[] minDistances = new double[nodeCount];
+        SearchContext context = graph.findDistances(nodes.get(0), null);
+        int next = farthest(context, nodeCount, null);
+        Arrays.fill(minDistances, Double.POSITIVE_INFINITY);
+        for (int l = 0; l < landmarkCount; l++) {
+            landmarks[l] = next;
+            context = graph.findDistances(nodes.get(next), null);
+            int row = l * nodeCount;
+            for (int id = 0; id < nodeCount; id++) {
+                double d = context.getG(id);
+                distances[row + id] = toFloat(d);
+                if (d < minDistances[id]) {
+                    minDistances[id] = d;
+                }
+            }
+            next = farthest(context, nodeCount, minDistances);
+        }
+        return new LandmarkHeuristic<>(base, nodeCount, landmarks, distances);
+    }
+
+    // returns the node with the largest distance, from the context or
+    // from minDistances if not null
+    private static int farthest(SearchContext context
+            , int nodeCount, double[] minDistances) {
+
+        int farthest = 0;
+        double max = -1;
+        for (int id = 0; id < nodeCount; id++) {
+            double d = minDistances != null
+                ? minDistances[id] : context.getG(id);
+
+            if (d == Double.MAX_VALUE) {
+                d = Double.POSITIVE_INFINITY;
+            }
+            if (d > max) {
+                max = d;
+                farthest = id;
+            }
+        }
+        return farthest;
+    }
+
+    private static float toFloat(double d) {
+        if (d >= Double.MAX_VALUE) {
+            return Float.POSITIVE_INFINITY;
+        }
+        float f = (float) d;
+        return f > d ? Math.nextDown(f) : f;
+    }
+
+    public int getLandmarkCount() {
+        return landmarks.length;
+    }
+
+    public int getLandmark(int i) {
+        return landmarks[i];
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public Heuristic<T> getBase() {
+        return base;
+    }
+
+    @Override
+    public double calculate(Node<T> start, Node<T> target, Node<T> current) {
+        double h = base != null ? base.calculate(start, target, current) : 0;
+        int t = target.getId();
+        int c = current.getId();
+        if (t < 0 || c < 0 || t >= nodeCount || c >= nodeCount) {
+            return h;
+        }
+        for (int row = 0; row < distances.length; row += nodeCount) {
+            float dt = distances[row + t];
+            float dc = distances[row + c];
+            // no bound from a landmark that doesn't reach both. When only
+            // one is reached there is no path, but an infinite h would make
+            // the open set keys and the bidirectional stop test infinite,
+            // so the search is left to find that out.
+            if (dt == Float.POSITIVE_INFINITY
+                    || dc == Float.POSITIVE_INFINITY) {
+
+                continue;
+            }
+            // minus one ulp for the float rounding of both distances
+            double bound = Math.abs(dt - dc) - Math.ulp(Math.max(dt, dc));
+            if (bound > h) {
+                h = bound;
+            }
+        }
+        return h;
+    }
+
+    public void save(OutputStream os) throws IOException {
+        DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(os));
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(nodeCount);
+        out.writeInt(landmarks.length);
+        for (int landmark : landmarks) {
+            out.writeInt(landmark);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(distances.length * 4);
+        buffer.asFloatBuffer().put(distances);
+        out.write(buffer.array());
+        out.flush();
+    }
+
+    /**
+     * Reads tables written by save. They must have been computed for a
+     * graph with the same nodes as graph. Throws IOException if the data is
+     * truncated, isn't a landmark table or doesn't fit graph.
+     */
+    public static <T> LandmarkHeuristic<T> load(InputStream is
+            , Graph<T> graph, Heuristic<T> base) throws IOException {
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(is));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("not a landmark table");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("unsupported landmark table version "
+                + version);
+        }
+        int nodeCount = in.readInt();
+        if (nodeCount != graph.getNodes().size()) {
+            throw new IOException("landmark table has " + nodeCount
+                + " nodes, graph has " + graph.getNodes().size());
+        }
+        int landmarkCount = in.readInt();
+        if (landmarkCount < 0 || landmarkCount > nodeCount
+                || 4L * landmarkCount * nodeCount > Integer.MAX_VALUE) {
+
+            throw new IOException("invalid landmark count " + landmarkCount);
+        }
+        int[] landmarks = new int[landmarkCount];
+        for (int l = 0; l < landmarkCount; l++) {
+            landmarks[l] = in.readInt();
+            if (landmarks[l] < 0 || landmarks[l] >= nodeCount) {
+                throw new IOException("invalid landmark " + landmarks[l]);
+            }
+        }
+        float[] distances = new float[landmarkCount * nodeCount];
+        byte[] bytes = new byte[distances.length * 4];
+        in.readFully(bytes);
+        ByteBuffer.wrap(bytes).asFloatBuffer().get(distances);
+        for (int l = 0; l < landmarkCount; l++) {
+            int row = l * nodeCount;
+            if (distances[row + landmarks[l]] != 0) {
+                throw new IOException("corrupted distances of landmark " + l);
+            }
+            for (int id = 0; id < nodeCount; id++) {
+                // also rejects NaN
+                if (!(distances[row + id] >= 0)) {
+                    throw new IOException(
+                        "corrupted distances of landmark " + l);
+                }
+            }
+        }
+        return new LandmarkHeuristic<>(base, nodeCount, landmarks, distances);
+    }
+
+}
@@ -5,23 +5,21 @@ import java.util.List;
 
 /**
  * Node class.
- * 
+ *
+ * The search state of a node lives in a SearchContext, indexed by the id
+ * assigned when the node is added to a Graph, so a node is only read
+ * during a search.
+ *
  * @param <T>
  * @author Leonardo Ono (ono.leo80@gmail.com)
  */
-public class Node<T> implements Comparable<Node> {
+public class Node<T> {
 
-    public static enum State { UNVISITED, OPEN, CLOSED };
-    
     private final T obj;
-    private State state = State.UNVISITED;
+    private int id = -1;
+    private Graph<T> graph;
     private boolean blocked = false;
-    
-    private double g; // cost
-    private double h; // heuristic
-                      // f = g + h
-    
-    private Node backPathNode;
+
     private final List<Edge<T>> edges = new ArrayList<>();
 
     public Node(T obj) {
@@ -32,76 +30,55 @@ public class Node<T> implements Comparable<Node> {
         return obj;
     }
 
-    public State getState() {
-        return state;
-    }
-
-    void setState(State state) {
-        this.state = state;
+    /**
+     * Returns the dense id assigned by Graph.addNode, or -1 if this node
+     * was not added to a graph yet.
+     */
+    public int getId() {
+        return id;
     }
 
-    public boolean isBlocked() {
-        return blocked;
+    void setId(int id) {
+        this.id = id;
     }
 
-    public void setBlocked(boolean blocked) {
-        this.blocked = blocked;
+    Graph<T> getGraph() {
+        return graph;
     }
 
-    public double getG() {
-        return g;
+    void setGraph(Graph<T> graph) {
+        this.graph = graph;
     }
 
-    void setG(double g) {
-        this.g = g;
-    }
-
-    public double getH() {
-        return h;
-    }
-
-    void setH(double h) {
-        this.h = h;
-    }
-
-    public Node getBackPathNode() {
-        return backPathNode;
+    public boolean isBlocked() {
+        return blocked;
     }
 
-    public void setBackPathNode(Node backPathNode) {
-        this.backPathNode = backPathNode;
+    public void setBlocked(boolean blocked) {
+        if (this.blocked != blocked) {
+            this.blocked = blocked;
+            if (graph != null) {
+                graph.fireNodeBlockedChanged(this);
+            }
+        }
     }
 
     public List<Edge<T>> getEdges() {
         return edges;
     }
 
-    public void addEdge(Edge edge) {
+    public void addEdge(Edge<T> edge) {
         edges.add(edge);
     }
 
-    // f(n) = g(n) + h(n) -> cost + heuristic
-    public double getF() {
-        return g + h;
+    void removeEdge(Edge<T> edge) {
+        edges.remove(edge);
     }
 
-    public void retrievePath(List<Node<T>> path) {
-        if (backPathNode != null) {
-            backPathNode.retrievePath(path);
-        }
-        path.add(this);
-    }
-    
-    @Override
-    public int compareTo(Node o) {
-        double dif = getF() - o.getF();
-        return dif == 0 ? 0 : dif > 0 ? 1 : -1;
-    }    
-
     @Override
     public String toString() {
-        return "Node{" + "id=" + obj + ", state=" + state + ", g=" + g + ", h=" 
-            + h + ", parentNode=" + backPathNode + ", edges=" + edges + '}';
+        return "Node{" + "id=" + id + ", obj=" + obj + ", blocked=" + blocked
+            + ", edges=" + edges.size() + '}';
     }
-    
+
 }
@@ -0,0 +1,78 @@
+package path.finder.a_star;
+
+import java.util.Arrays;
+
+/**
+ * NodePath class.
+ *
+ * Reusable path of node ids, filled by Graph.findPath(start, target,
+ * NodePath). The id array only grows, so once it fits the longest path
+ * seen, finding a path into the same instance doesn't allocate.
+ *
+ * Not thread-safe, use one instance per thread.
+ */
+public class NodePath {
+
+    private int[] ids = new int[16];
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the id of the i-th node of the path.
+     */
+    public int get(int i) {
+        if (i >= size) {
+            throw new IndexOutOfBoundsException(i + " >= " + size);
+        }
+        return ids[i];
+    }
+
+    public void set(int i, int id) {
+        if (i >= size) {
+            throw new IndexOutOfBoundsException(i + " >= " + size);
+        }
+        ids[i] = id;
+    }
+
+    /**
+     * Returns the backing array, whose first size() entries are the path.
+     */
+    public int[] getIds() {
+        return ids;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void add(int id) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, ids.length * 2);
+        }
+        ids[size++] = id;
+    }
+
+    /**
+     * Changes the size of the path. Entries added by growing it are
+     * undefined until set.
+     */
+    public void setSize(int size) {
+        if (size > ids.length) {
+            ids = Arrays.copyOf(ids, Math.max(size, ids.length * 2));
+        }
+        this.size = size;
+    }
+
+    @Override
+    public String toString() {
+        return "NodePath" + Arrays.toString(Arrays.copyOf(ids, size));
+    }
+
+}
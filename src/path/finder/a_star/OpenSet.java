@@ -0,0 +1,44 @@
+package path.finder.a_star;
+
+/**
+ * OpenSet interface.
+ *
+ * Priority queue of node ids ordered by key (the f value in A*), used as
+ * the open list of a search. Implementations are expected to answer
+ * contains in O(1) and to support lowering the key of a queued id, so
+ * Graph can be benchmarked with different queues (see
+ * Graph.setOpenSetFactory).
+ */
+public interface OpenSet {
+
+    /**
+     * Makes room for ids in the range [0, nodeCount).
+     */
+    public void ensureCapacity(int nodeCount);
+
+    public void clear();
+
+    public boolean isEmpty();
+
+    public int size();
+
+    public boolean contains(int id);
+
+    public void add(int id, double key);
+
+    /**
+     * Lowers the key of an id already in the set.
+     */
+    public void decreaseKey(int id, double key);
+
+    /**
+     * Returns the id with the smallest key without removing it.
+     */
+    public int peek();
+
+    /**
+     * Removes and returns the id with the smallest key.
+     */
+    public int poll();
+
+}
@@ -0,0 +1,193 @@
+package path.finder.a_star;
+
+import java.util.List;
+
+/**
+ * PathSearch class.
+ *
+ * A* search that doesn't run to completion at once. It is started by
+ * Graph.startSearch and advanced by step(maxExpansions) or
+ * stepUntil(deadline), e.g. once per frame, until it is done, so a long
+ * query can be spread over several frames. SearchScheduler shares a
+ * budget between many searches.
+ *
+ * The search keeps its state in its own SearchContext between steps. It
+ * reads the graph as it is at each step: blocking nodes or changing costs
+ * while the search is in flight is allowed, but the path found may not
+ * reflect the change. Adding nodes to the graph is not.
+ *
+ * The arrays of a context have the size of the graph, so on a large mesh
+ * many searches in flight take a lot of memory. Contexts of finished
+ * searches can be passed to Graph.startSearch again once their path was
+ * read.
+ *
+ * A search is not thread-safe, but different searches may be stepped by
+ * different threads.
+ *
+ * @param <T>
+ */
+public class PathSearch<T> {
+
+    // expansions between two clock reads in stepUntil
+    private static final int CLOCK_INTERVAL = 16;
+
+    private final Graph<T> graph;
+    private final Node<T> start;
+    private final Node<T> target;
+    private final Heuristic<T> heuristic;
+    private final SearchContext context;
+    private final int nodeCount;
+
+    private boolean done;
+    private boolean found;
+    private long elapsedTime;
+
+    PathSearch(Graph<T> graph, Node<T> start, Node<T> target
+            , SearchContext context) {
+
+        this.graph = graph;
+        this.start = start;
+        this.target = target;
+        this.heuristic = graph.getHeuristic();
+        this.context = context;
+        this.nodeCount = graph.getNodes().size();
+        graph.begin(start, target, heuristic, context);
+    }
+
+    public Node<T> getStart() {
+        return start;
+    }
+
+    public Node<T> getTarget() {
+        return target;
+    }
+
+    public SearchContext getContext() {
+        return context;
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Returns true if the search is done and found a path.
+     */
+    public boolean isFound() {
+        return found;
+    }
+
+    /**
+     * Returns the number of nodes expanded so far.
+     */
+    public int getExpandedCount() {
+        return context.getExpandedCount();
+    }
+
+    /**
+     * Expands up to maxExpansions nodes and returns true if the search is
+     * done.
+     */
+    public boolean step(int maxExpansions) {
+        if (done) {
+            return true;
+        }
+        SearchListener listener = graph.getSearchListener();
+        long startTime = listener == null ? 0 : System.nanoTime();
+        expand(maxExpansions);
+        endStep(listener, startTime);
+        return done;
+    }
+
+    /**
+     * Expands nodes until the search is done or System.nanoTime() reaches
+     * deadline and returns true if the search is done. The clock is read
+     * every few expansions, so the deadline may be passed by a few node
+     * expansions, and a few nodes are expanded even if the deadline has
+     * already passed, so every call makes progress.
+     */
+    public boolean stepUntil(long deadline) {
+        if (done) {
+            return true;
+        }
+        SearchListener listener = graph.getSearchListener();
+        long startTime = listener == null ? 0 : System.nanoTime();
+        do {
+            expand(CLOCK_INTERVAL);
+        } while (!done && System.nanoTime() - deadline < 0);
+        endStep(listener, startTime);
+        return done;
+    }
+
+    private void expand(int maxExpansions) {
+        if (graph.getNodes().size() != nodeCount) {
+            throw new IllegalStateException(
+                "nodes were added to the graph during the search");
+        }
+        OpenSet openNodes = context.getOpenSet();
+        int targetId = target.getId();
+        for (int i = 0; i < maxExpansions; i++) {
+            if (openNodes.isEmpty()) {
+                done = true;
+                return;
+            }
+            int currentId = graph.expand(start, target, null
+                , heuristic, context);
+
+            if (currentId == targetId) {
+                done = true;
+                found = true;
+                return;
+            }
+        }
+    }
+
+    private void endStep(SearchListener listener, long startTime) {
+        if (listener != null) {
+            elapsedTime += System.nanoTime() - startTime;
+            if (done) {
+                listener.searchFinished(context, found, elapsedTime);
+            }
+        }
+    }
+
+    /**
+     * Stops the search. It is done afterwards, without a path.
+     */
+    public void cancel() {
+        done = true;
+        found = false;
+    }
+
+    /**
+     * Fills path with the nodes from start to target (both included). The
+     * path is left unchanged if the search is not done or found no path.
+     */
+    public void getPath(List<Node<T>> path) {
+        if (found) {
+            path.clear();
+            graph.retrievePath(context, SearchMode.UNIDIRECTIONAL
+                , target.getId(), path);
+        }
+    }
+
+    /**
+     * Fills path with the ids of the nodes from start to target, or clears
+     * it if the search is not done or found no path.
+     */
+    public void getPath(NodePath path) {
+        path.clear();
+        if (found) {
+            graph.retrievePath(context, SearchMode.UNIDIRECTIONAL
+                , target.getId(), path);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PathSearch{" + "start=" + start.getId() + ", target="
+            + target.getId() + ", done=" + done + ", found=" + found
+            + ", expandedCount=" + getExpandedCount() + '}';
+    }
+
+}
@@ -0,0 +1,205 @@
+package path.finder.a_star;
+
+import java.util.Arrays;
+
+/**
+ * SearchContext class.
+ *
+ * Holds the per-query search state (g, h, state and back path node) in
+ * arrays indexed by the dense node ids assigned by Graph.addNode, so the
+ * shared Node objects are never written during a search. A context is not
+ * thread-safe, but it can be reused by the same thread for any number of
+ * queries. Graph keeps one per thread.
+ *
+ * The arrays are not cleared between queries. Each query gets a new
+ * generation number and an entry whose stamp doesn't match it reads as
+ * unvisited, so starting a query costs O(1) and a query only pays for the
+ * nodes it touches.
+ *
+ * The context also owns the OpenSet used as the search's open list.
+ *
+ * The statistics of the last query (expanded nodes, pushes, decreased
+ * keys and relaxations) are always counted, whether or not a
+ * SearchListener is set: they are plain int increments on this context,
+ * about the cost of the branch that would skip them, and the expanded
+ * count is also what SearchScheduler budgets with. Only the clock and
+ * the listener call are skipped when no listener is set.
+ */
+public class SearchContext {
+
+    public static enum State { UNVISITED, OPEN, CLOSED };
+
+    private double[] g = new double[0]; // cost
+    private double[] h = new double[0]; // heuristic
+                                        // f = g + h
+    private State[] states = new State[0];
+    private int[] backPathNodes = new int[0];
+
+    private int[] stamps = new int[0];
+    private int generation;
+
+    private final OpenSet openSet;
+    private SearchContext reverse;
+
+    // statistics of the last query
+    private int expandedCount;
+    private int pushCount;
+    private int decreaseKeyCount;
+    private int relaxationCount;
+
+    public SearchContext() {
+        this(new IndexedDaryHeap());
+    }
+
+    public SearchContext(OpenSet openSet) {
+        this.openSet = openSet;
+    }
+
+    public OpenSet getOpenSet() {
+        return openSet;
+    }
+
+    /**
+     * Returns the context holding the backward half of a bidirectional 
+     * search, or null if this context was never used for one.
+     */
+    public SearchContext getReverse() {
+        return reverse;
+    }
+
+    void setReverse(SearchContext reverse) {
+        this.reverse = reverse;
+    }
+
+    /**
+     * Returns the number of nodes expanded by the last query run with this 
+     * context (both directions for a bidirectional search).
+     */
+    public int getExpandedCount() {
+        return expandedCount;
+    }
+
+    public void incrementExpandedCount() {
+        expandedCount++;
+    }
+
+    /**
+     * Returns the number of ids added to the open set by the last query.
+     */
+    public int getPushCount() {
+        return pushCount;
+    }
+
+    public void incrementPushCount() {
+        pushCount++;
+    }
+
+    /**
+     * Returns the number of times the last query lowered the key of an id 
+     * already in the open set.
+     */
+    public int getDecreaseKeyCount() {
+        return decreaseKeyCount;
+    }
+
+    public void incrementDecreaseKeyCount() {
+        decreaseKeyCount++;
+    }
+
+    /**
+     * Returns the number of edges the last query looked at while expanding 
+     * nodes, whether or not they led to a cheaper path.
+     */
+    public int getRelaxationCount() {
+        return relaxationCount;
+    }
+
+    public void addRelaxationCount(int count) {
+        relaxationCount += count;
+    }
+
+    /**
+     * Starts a new query over the node ids in [0, nodeCount): every entry
+     * reads as unvisited and the open set is empty.
+     */
+    public void prepare(int nodeCount) {
+        if (g.length < nodeCount) {
+            int capacity = Math.max(nodeCount, g.length + (g.length >> 1));
+            g = Arrays.copyOf(g, capacity);
+            h = Arrays.copyOf(h, capacity);
+            states = Arrays.copyOf(states, capacity);
+            backPathNodes = Arrays.copyOf(backPathNodes, capacity);
+            stamps = Arrays.copyOf(stamps, capacity);
+        }
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            generation = 1;
+        }
+        openSet.ensureCapacity(nodeCount);
+        openSet.clear();
+        expandedCount = 0;
+        pushCount = 0;
+        decreaseKeyCount = 0;
+        relaxationCount = 0;
+    }
+
+    private boolean isStale(int id) {
+        return stamps[id] != generation;
+    }
+
+    private void touch(int id) {
+        if (stamps[id] != generation) {
+            stamps[id] = generation;
+            g[id] = Double.MAX_VALUE;
+            h[id] = 0;
+            states[id] = State.UNVISITED;
+            backPathNodes[id] = -1;
+        }
+    }
+
+    public double getG(int id) {
+        return isStale(id) ? Double.MAX_VALUE : g[id];
+    }
+
+    public void setG(int id, double g) {
+        touch(id);
+        this.g[id] = g;
+    }
+
+    public double getH(int id) {
+        return isStale(id) ? 0 : h[id];
+    }
+
+    public void setH(int id, double h) {
+        touch(id);
+        this.h[id] = h;
+    }
+
+    // f(n) = g(n) + h(n) -> cost + heuristic
+    public double getF(int id) {
+        return getG(id) + getH(id);
+    }
+
+    public State getState(int id) {
+        return isStale(id) ? State.UNVISITED : states[id];
+    }
+
+    public void setState(int id, State state) {
+        touch(id);
+        states[id] = state;
+    }
+
+    /**
+     * Returns the id of the node the search came from, or -1 for the start
+     * node and for nodes not reached.
+     */
+    public int getBackPathNode(int id) {
+        return isStale(id) ? -1 : backPathNodes[id];
+    }
+
+    public void setBackPathNode(int id, int backPathNode) {
+        touch(id);
+        backPathNodes[id] = backPathNode;
+    }
+
+}
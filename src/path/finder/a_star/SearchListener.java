@@ -0,0 +1,25 @@
+package path.finder.a_star;
+
+/**
+ * SearchListener interface.
+ *
+ * Called by Graph at the end of every findPath while it is set as the
+ * graph's search listener (see Graph.setSearchListener). Without a
+ * listener the search doesn't even read the clock, but the counts in the
+ * context are kept anyway (see SearchContext).
+ *
+ * The call is made on the searching thread, so implementations must be
+ * thread-safe and should be quick. The per-query counts are read from the
+ * context (getExpandedCount, getPushCount, ...), which is only valid
+ * during the call.
+ */
+public interface SearchListener {
+
+    /**
+     * Called after a search. found tells whether a path was found and
+     * elapsedTime is the duration of the search in nanoseconds.
+     */
+    public void searchFinished(SearchContext context, boolean found
+            , long elapsedTime);
+
+}
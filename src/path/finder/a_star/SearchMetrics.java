@@ -0,0 +1,221 @@
+package path.finder.a_star;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * SearchMetrics class.
+ *
+ * SearchListener that sums the statistics of the searches of one or more
+ * graphs and keeps histograms of their durations and expanded node
+ * counts. Counters are LongAdders, so searching threads don't contend on
+ * them, and recording a search doesn't allocate.
+ *
+ * Usage:
+ *
+ * SearchMetrics metrics = new SearchMetrics();
+ * graph.setSearchListener(metrics);
+ * metrics.register("path.finder.a_star:type=SearchMetrics,name=navmesh");
+ */
+public class SearchMetrics implements SearchListener, SearchMetricsMBean {
+
+    private final LongAdder searchCount = new LongAdder();
+    private final LongAdder notFoundCount = new LongAdder();
+    private final LongAdder expandedCount = new LongAdder();
+    private final LongAdder pushCount = new LongAdder();
+    private final LongAdder decreaseKeyCount = new LongAdder();
+    private final LongAdder relaxationCount = new LongAdder();
+    private final LongAdder totalTime = new LongAdder();
+    private final Histogram timeHistogram = new Histogram();
+    private final Histogram expandedCountHistogram = new Histogram();
+
+    @Override
+    public void searchFinished(SearchContext context, boolean found
+            , long elapsedTime) {
+
+        searchCount.increment();
+        if (!found) {
+            notFoundCount.increment();
+        }
+        expandedCount.add(context.getExpandedCount());
+        pushCount.add(context.getPushCount());
+        decreaseKeyCount.add(context.getDecreaseKeyCount());
+        relaxationCount.add(context.getRelaxationCount());
+        totalTime.add(elapsedTime);
+        timeHistogram.record(elapsedTime);
+        expandedCountHistogram.record(context.getExpandedCount());
+    }
+
+    /**
+     * Registers this object in the platform MBean server under the given
+     * object name.
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName(name);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        server.registerMBean(this, objectName);
+        return objectName;
+    }
+
+    @Override
+    public long getSearchCount() {
+        return searchCount.sum();
+    }
+
+    @Override
+    public long getNotFoundCount() {
+        return notFoundCount.sum();
+    }
+
+    @Override
+    public long getExpandedCount() {
+        return expandedCount.sum();
+    }
+
+    @Override
+    public long getPushCount() {
+        return pushCount.sum();
+    }
+
+    @Override
+    public long getDecreaseKeyCount() {
+        return decreaseKeyCount.sum();
+    }
+
+    @Override
+    public long getRelaxationCount() {
+        return relaxationCount.sum();
+    }
+
+    @Override
+    public double getMeanTime() {
+        long count = searchCount.sum();
+        return count == 0 ? 0 : totalTime.sum() / 1e3 / count;
+    }
+
+    @Override
+    public double getMeanExpandedCount() {
+        long count = searchCount.sum();
+        return count == 0 ? 0 : (double) expandedCount.sum() / count;
+    }
+
+    @Override
+    public long getTimePercentile50() {
+        return timeHistogram.getPercentile(0.5) / 1000;
+    }
+
+    @Override
+    public long getTimePercentile99() {
+        return timeHistogram.getPercentile(0.99) / 1000;
+    }
+
+    @Override
+    public long getTimePercentile999() {
+        return timeHistogram.getPercentile(0.999) / 1000;
+    }
+
+    @Override
+    public long getExpandedCountPercentile50() {
+        return expandedCountHistogram.getPercentile(0.5);
+    }
+
+    @Override
+    public long getExpandedCountPercentile99() {
+        return expandedCountHistogram.getPercentile(0.99);
+    }
+
+    @Override
+    public long[] getTimeHistogram() {
+        return timeHistogram.getCounts();
+    }
+
+    @Override
+    public long[] getExpandedCountHistogram() {
+        return expandedCountHistogram.getCounts();
+    }
+
+    /**
+     * Clears the counters. Searches finishing during the call may be
+     * partially counted.
+     */
+    @Override
+    public void reset() {
+        searchCount.reset();
+        notFoundCount.reset();
+        expandedCount.reset();
+        pushCount.reset();
+        decreaseKeyCount.reset();
+        relaxationCount.reset();
+        totalTime.reset();
+        timeHistogram.reset();
+        expandedCountHistogram.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "SearchMetrics{" + "searchCount=" + getSearchCount()
+            + ", notFoundCount=" + getNotFoundCount()
+            + ", meanTime=" + getMeanTime()
+            + ", p99Time=" + getTimePercentile99()
+            + ", meanExpandedCount=" + getMeanExpandedCount() + '}';
+    }
+
+    /**
+     * Counts of non negative values in power of two buckets: bucket 0
+     * holds 0 and bucket i > 0 holds [2^(i-1), 2^i).
+     */
+    private static class Histogram {
+
+        private final LongAdder[] buckets = new LongAdder[64];
+
+        public Histogram() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        public void record(long value) {
+            int bucket = 64 - Long.numberOfLeadingZeros(Math.max(value, 0));
+            buckets[Math.min(bucket, buckets.length - 1)].increment();
+        }
+
+        public long[] getCounts() {
+            long[] counts = new long[buckets.length];
+            for (int i = 0; i < buckets.length; i++) {
+                counts[i] = buckets[i].sum();
+            }
+            return counts;
+        }
+
+        /**
+         * Returns the upper bound of the bucket holding the p quantile.
+         */
+        public long getPercentile(double p) {
+            long[] counts = getCounts();
+            long total = 0;
+            for (long count : counts) {
+                total += count;
+            }
+            long rank = Math.max((long) Math.ceil(p * total), 1);
+            long sum = 0;
+            for (int i = 0; i < counts.length; i++) {
+                sum += counts[i];
+                if (sum >= rank) {
+                    return i == 0 ? 0 : (1L << i) - 1;
+                }
+            }
+            return 0;
+        }
+
+        public void reset() {
+            for (LongAdder bucket : buckets) {
+                bucket.reset();
+            }
+        }
+
+    }
+
+}
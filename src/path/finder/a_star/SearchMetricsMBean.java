@@ -0,0 +1,52 @@
+package path.finder.a_star;
+
+/**
+ * SearchMetricsMBean interface.
+ *
+ * JMX view of SearchMetrics. Times are in microseconds and the
+ * percentiles are upper bounds taken from power of two histograms, so
+ * they can be up to twice the real value.
+ */
+public interface SearchMetricsMBean {
+
+    public long getSearchCount();
+
+    public long getNotFoundCount();
+
+    public long getExpandedCount();
+
+    public long getPushCount();
+
+    public long getDecreaseKeyCount();
+
+    public long getRelaxationCount();
+
+    public double getMeanTime();
+
+    public double getMeanExpandedCount();
+
+    public long getTimePercentile50();
+
+    public long getTimePercentile99();
+
+    public long getTimePercentile999();
+
+    public long getExpandedCountPercentile50();
+
+    public long getExpandedCountPercentile99();
+
+    /**
+     * Returns the number of searches per time bucket, bucket i holding the
+     * searches that took [2^(i-1), 2^i) nanoseconds.
+     */
+    public long[] getTimeHistogram();
+
+    /**
+     * Returns the number of searches per expanded nodes bucket, bucket i 
+     * holding the searches that expanded [2^(i-1), 2^i) nodes.
+     */
+    public long[] getExpandedCountHistogram();
+
+    public void reset();
+
+}
@@ -0,0 +1,15 @@
+package path.finder.a_star;
+
+/**
+ * SearchMode enum.
+ *
+ * UNIDIRECTIONAL searches forward from the start only. BIDIRECTIONAL runs
+ * a forward search from the start and a backward one from the target and
+ * stops when they meet on the shortest path, which usually expands fewer
+ * nodes on long corridors.
+ */
+public enum SearchMode {
+
+    UNIDIRECTIONAL, BIDIRECTIONAL
+
+}
@@ -0,0 +1,107 @@
+package path.finder.a_star;
+
+import java.util.ArrayDeque;
+
+/**
+ * SearchScheduler class.
+ *
+ * Runs many PathSearch instances within a per-frame budget, given either
+ * as a number of node expansions (run) or as a deadline (runUntil). The
+ * searches take turns in round-robin order, each turn expanding at most
+ * sliceSize nodes, and the order carries over from one frame to the
+ * next, so every search makes progress and the time a frame spends on
+ * searching doesn't depend on the size of the mesh or of the queries.
+ *
+ * Finished searches are dropped from the scheduler; callers poll
+ * PathSearch.isDone and then read the path. Not thread-safe, it is meant
+ * to be run by the simulation thread.
+ *
+ * @param <T>
+ */
+public class SearchScheduler<T> {
+
+    private final ArrayDeque<PathSearch<T>> searches = new ArrayDeque<>();
+    private final int sliceSize;
+
+    public SearchScheduler() {
+        this(64);
+    }
+
+    public SearchScheduler(int sliceSize) {
+        if (sliceSize < 1) {
+            throw new IllegalArgumentException(
+                "invalid slice size " + sliceSize);
+        }
+        this.sliceSize = sliceSize;
+    }
+
+    public int getSliceSize() {
+        return sliceSize;
+    }
+
+    /**
+     * Returns the number of searches not done yet.
+     */
+    public int size() {
+        return searches.size();
+    }
+
+    public boolean isEmpty() {
+        return searches.isEmpty();
+    }
+
+    /**
+     * Queues the search behind the ones already scheduled.
+     */
+    public void add(PathSearch<T> search) {
+        searches.add(search);
+    }
+
+    /**
+     * Removes the search without cancelling it.
+     */
+    public boolean remove(PathSearch<T> search) {
+        return searches.remove(search);
+    }
+
+    /**
+     * Cancels and removes every scheduled search.
+     */
+    public void clear() {
+        searches.forEach(PathSearch::cancel);
+        searches.clear();
+    }
+
+    /**
+     * Expands up to maxExpansions nodes in total, split among the
+     * searches, and returns the number of nodes expanded.
+     */
+    public int run(int maxExpansions) {
+        int remaining = maxExpansions;
+        while (remaining > 0 && !searches.isEmpty()) {
+            PathSearch<T> search = searches.poll();
+            int expandedCount = search.getExpandedCount();
+            boolean done = search.step(Math.min(sliceSize, remaining));
+            remaining -= search.getExpandedCount() - expandedCount;
+            if (!done) {
+                searches.add(search);
+            }
+        }
+        return maxExpansions - remaining;
+    }
+
+    /**
+     * Runs the searches until they are all done or System.nanoTime()
+     * reaches deadline. The clock is read after every slice, so the
+     * deadline may be passed by the duration of one slice.
+     */
+    public void runUntil(long deadline) {
+        while (!searches.isEmpty() && System.nanoTime() - deadline < 0) {
+            PathSearch<T> search = searches.poll();
+            if (!search.step(sliceSize)) {
+                searches.add(search);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,111 @@
+package path.finder.a_star;
+
+import java.util.Arrays;
+
+/**
+ * VirtualNode class.
+ *
+ * Start or target of a search that is not a node of the graph, e.g. an
+ * arbitrary point inside a face of a navigation mesh. It is linked to a
+ * few graph nodes with costs given per query, and Graph.findPath(start,
+ * target, path) seeds the search from the nodes linked to the start and
+ * finishes it at the nodes linked to the target. Nothing is added to the
+ * graph, so any number of threads can search between their own virtual
+ * nodes at the same time.
+ *
+ * The heuristic is called with getNode(), a node outside of the graph
+ * (id -1) holding obj. The cost of a target link must not be lower than
+ * the heuristic at the linked node, or the path found may not be the
+ * shortest.
+ *
+ * The links only grow, so an instance reused with clear doesn't allocate
+ * once it fits the largest query seen. Not thread-safe, use one instance
+ * per thread.
+ *
+ * @param <T>
+ */
+public class VirtualNode<T> {
+
+    private final Node<T> node;
+    private int[] ids = new int[8];
+    private double[] costs = new double[8];
+    private int size;
+
+    public VirtualNode(T obj) {
+        this.node = new Node<>(obj);
+    }
+
+    public T getObj() {
+        return node.getObj();
+    }
+
+    /**
+     * Returns the node passed to the heuristic for this virtual node.
+     */
+    public Node<T> getNode() {
+        return node;
+    }
+
+    /**
+     * Returns the number of links.
+     */
+    public int size() {
+        return size;
+    }
+
+    public int getId(int i) {
+        if (i >= size) {
+            throw new IndexOutOfBoundsException(i + " >= " + size);
+        }
+        return ids[i];
+    }
+
+    public double getCost(int i) {
+        if (i >= size) {
+            throw new IndexOutOfBoundsException(i + " >= " + size);
+        }
+        return costs[i];
+    }
+
+    /**
+     * Returns the cost of the link to the node id, or
+     * Double.POSITIVE_INFINITY if it is not linked.
+     */
+    public double getCostTo(int id) {
+        double cost = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == id && costs[i] < cost) {
+                cost = costs[i];
+            }
+        }
+        return cost;
+    }
+
+    /**
+     * Removes all the links.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    public void link(Node<T> node, double cost) {
+        if (node.getId() < 0) {
+            throw new IllegalArgumentException(
+                "node not added to a graph: " + node);
+        }
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, ids.length * 2);
+            costs = Arrays.copyOf(costs, costs.length * 2);
+        }
+        ids[size] = node.getId();
+        costs[size] = cost;
+        size++;
+    }
+
+    @Override
+    public String toString() {
+        return "VirtualNode{" + "obj=" + getObj() + ", ids="
+            + Arrays.toString(Arrays.copyOf(ids, size)) + '}';
+    }
+
+}
@@ -0,0 +1,271 @@
+package path.navmesh;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import math.Vec2;
+import path.finder.a_star.Edge;
+import path.finder.a_star.Node;
+import path.finder.a_star.OpenSet;
+import path.finder.a_star.SearchContext;
+import static path.finder.a_star.SearchContext.State.*;
+
+/**
+ * CompactGraph class.
+ *
+ * Frozen copy of a NavMesh2D graph in flat arrays: node coordinates in
+ * xs/ys and the adjacency in CSR form, where the neighbors of node i are
+ * targets[offsets[i]] .. targets[offsets[i + 1] - 1] and costs holds the
+ * matching edge costs. Node ids are the same as in the source graph.
+ *
+ * The A* search runs directly on these arrays, with the per-thread search
+ * state in a SearchContext, so no per-node object is touched during a
+ * search. Changes made to the source graph after the copy (blocked nodes,
+ * edge costs) are not seen.
+ */
+public class CompactGraph {
+
+    private static final int[] NO_PATH = new int[0];
+
+    private final int nodeCount;
+    private final double[] xs;
+    private final double[] ys;
+    private final boolean[] blocked;
+    private final int[] offsets;
+    private final int[] targets;
+    private final double[] costs;
+
+    private final ThreadLocal<SearchContext> contexts
+        = ThreadLocal.withInitial(SearchContext::new);
+
+    CompactGraph(double[] xs, double[] ys, boolean[] blocked
+            , int[] offsets, int[] targets, double[] costs) {
+
+        this.nodeCount = xs.length;
+        this.xs = xs;
+        this.ys = ys;
+        this.blocked = blocked;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.costs = costs;
+    }
+
+    public static CompactGraph create(NavMesh2D navMesh) {
+        List<Node<Vec2>> nodes = navMesh.getGraph().getNodes();
+        int nodeCount = nodes.size();
+        double[] xs = new double[nodeCount];
+        double[] ys = new double[nodeCount];
+        boolean[] blocked = new boolean[nodeCount];
+        int[] offsets = new int[nodeCount + 1];
+        for (int i = 0; i < nodeCount; i++) {
+            Node<Vec2> node = nodes.get(i);
+            xs[i] = node.getObj().x;
+            ys[i] = node.getObj().y;
+            blocked[i] = node.isBlocked();
+            offsets[i + 1] = offsets[i] + node.getEdges().size();
+        }
+        int[] targets = new int[offsets[nodeCount]];
+        double[] costs = new double[offsets[nodeCount]];
+        for (int i = 0; i < nodeCount; i++) {
+            Node<Vec2> node = nodes.get(i);
+            int e = offsets[i];
+            for (Edge<Vec2> edge : node.getEdges()) {
+                targets[e] = edge.getOppositeNode(node).getId();
+                costs[e] = edge.getG();
+                e++;
+            }
+        }
+        return new CompactGraph(xs, ys, blocked, offsets, targets, costs);
+    }
+
+    /**
+     * Builds the arrays straight from a file written by NavMeshFile.write, 
+     * without creating the NavMesh2D objects. The result is the same as 
+     * create(navMesh) on the mesh loaded from that file. Throws IOException
+     * if the file is truncated, isn't a compiled mesh or has node, vertex 
+     * or slot indices out of range, like NavMesh2D.loadCompiled.
+     */
+    public static CompactGraph load(Path file) throws IOException {
+        NavMeshFile data = NavMeshFile.map(file);
+        int nodeCount = data.nodeCount;
+        double[] xs = new double[nodeCount];
+        double[] ys = new double[nodeCount];
+        boolean[] blocked = new boolean[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            xs[i] = data.nodePositions.get(2 * i);
+            ys[i] = data.nodePositions.get(2 * i + 1);
+            blocked[i] = data.nodeFlags.get(i) != 0;
+        }
+        
+        // each slot links its edge node and its face node, in slot order
+        int[] faceNodes = new int[data.slotCount];
+        int[] slotNodes = new int[data.slotCount];
+        data.slotNodes.get(slotNodes);
+        int[] offsets = new int[nodeCount + 1];
+        for (int f = 0; f < data.faceCount; f++) {
+            int faceNode = data.faceNodes.get(f);
+            for (int s = data.faceOffsets.get(f); 
+                    s < data.faceOffsets.get(f + 1); s++) {
+                
+                faceNodes[s] = faceNode;
+            }
+        }
+        for (int s = 0; s < data.slotCount; s++) {
+            offsets[faceNodes[s] + 1]++;
+            offsets[slotNodes[s] + 1]++;
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] next = Arrays.copyOf(offsets, nodeCount);
+        int[] targets = new int[offsets[nodeCount]];
+        double[] costs = new double[offsets[nodeCount]];
+        for (int s = 0; s < data.slotCount; s++) {
+            int a = slotNodes[s];
+            int b = faceNodes[s];
+            double cost = data.slotCosts.get(s);
+            targets[next[a]] = b;
+            costs[next[a]++] = cost;
+            targets[next[b]] = a;
+            costs[next[b]++] = cost;
+        }
+        return new CompactGraph(xs, ys, blocked, offsets, targets, costs);
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getEdgeCount() {
+        return targets.length;
+    }
+
+    public double getX(int id) {
+        return xs[id];
+    }
+
+    public double getY(int id) {
+        return ys[id];
+    }
+
+    public boolean isBlocked(int id) {
+        return blocked[id];
+    }
+
+    public int getDegree(int id) {
+        return offsets[id + 1] - offsets[id];
+    }
+
+    /**
+     * Returns the id of the i-th neighbor of the node.
+     */
+    public int getNeighbor(int id, int i) {
+        return targets[offsets[id] + i];
+    }
+
+    public double getCost(int id, int i) {
+        return costs[offsets[id] + i];
+    }
+
+    /**
+     * Returns the ids of the nodes from start to target (both included) or
+     * an empty array if target can't be reached.
+     */
+    public int[] findPath(int start, int target) {
+        return findPath(start, target, contexts.get());
+    }
+
+    public int[] findPath(int start, int target, SearchContext context) {
+        return search(start, target, context)
+            ? retrievePath(context, target) : NO_PATH;
+    }
+
+    /**
+     * Fills path with the ids and coordinates of the nodes from start to 
+     * target, or clears it if target can't be reached. Doesn't allocate 
+     * once the buffer has grown to the longest path seen.
+     */
+    public void findPath(int start, int target, PathBuffer path) {
+        findPath(start, target, path, contexts.get());
+    }
+
+    public void findPath(int start, int target, PathBuffer path
+            , SearchContext context) {
+
+        path.clear();
+        if (search(start, target, context)) {
+            int length = 0;
+            for (int id = target; id >= 0; id = context.getBackPathNode(id)) {
+                length++;
+            }
+            path.setSize(length);
+            for (int id = target; id >= 0; id = context.getBackPathNode(id)) {
+                path.set(--length, id);
+            }
+            path.updateCoordinates(xs, ys);
+        }
+    }
+
+    // A*, returns true if target was reached
+    private boolean search(int start, int target, SearchContext context) {
+        context.prepare(nodeCount);
+
+        context.setG(start, 0);
+        context.setH(start, distance(start, target));
+
+        OpenSet openNodes = context.getOpenSet();
+        openNodes.add(start, context.getF(start));
+
+        while (!openNodes.isEmpty()) {
+            int current = openNodes.poll();
+            context.setState(current, CLOSED);
+            context.incrementExpandedCount();
+
+            // target node found !
+            if (current == target) {
+                return true;
+            }
+
+            double currentG = context.getG(current);
+            for (int e = offsets[current]; e < offsets[current + 1]; e++) {
+                int neighbor = targets[e];
+                double neighborG = currentG + costs[e];
+                if (!blocked[neighbor] && neighborG < context.getG(neighbor)) {
+                    context.setBackPathNode(neighbor, current);
+                    context.setG(neighbor, neighborG);
+                    double h = distance(neighbor, target);
+                    context.setH(neighbor, h);
+                    if (openNodes.contains(neighbor)) {
+                        openNodes.decreaseKey(neighbor, neighborG + h);
+                    }
+                    else {
+                        openNodes.add(neighbor, neighborG + h);
+                        context.setState(neighbor, OPEN);
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    // heuristic function = linear distance
+    private double distance(int a, int b) {
+        double dx = xs[b] - xs[a];
+        double dy = ys[b] - ys[a];
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    private int[] retrievePath(SearchContext context, int target) {
+        int length = 0;
+        for (int id = target; id >= 0; id = context.getBackPathNode(id)) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int id = target; id >= 0; id = context.getBackPathNode(id)) {
+            path[--length] = id;
+        }
+        return path;
+    }
+
+}
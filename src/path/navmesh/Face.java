@@ -1,7 +1,6 @@
 package path.navmesh;
 
 import math.Vec2;
-import java.awt.Polygon;
 import java.util.ArrayList;
 import java.util.List;
 import path.finder.a_star.Node;
@@ -9,6 +8,9 @@ import path.finder.a_star.Node;
 /**
  * Face class.
  * 
+ * The bounding box and the edge half-planes used by isInside are computed 
+ * when the face is created, so the vertices must not move afterwards.
+ * 
  * @author Leonardo Ono (ono.leo80@gmail.com)
  */
 public class Face {
@@ -16,21 +18,52 @@ public class Face {
     private final NavMesh2D navMesh;
     
     private final List<Vec2> points = new ArrayList<>();
+    private final int[] vertexIndices;
 
-    private final Vec2 pointInsideFace = new Vec2(0, 0);
+    private final Vec2 pointInsideFace;
     private final List<Vec2> edgePoints = new ArrayList<>();
     
     private Node<Vec2> nodeInsideFace;
     private final List<Node<Vec2>> edgeNodes = new ArrayList<>();
 
-    private final Polygon polygonTmp = new Polygon();
+    // bounding box and, per edge, the inward normal and the start vertex 
+    // (nx, ny, x0, y0) of its half-plane
+    private double minX;
+    private double minY;
+    private double maxX;
+    private double maxY;
+    private double[] halfPlanes;
+    private boolean convex;
     
-    public Face(NavMesh2D navMesh, List<Vec2> ps) {
+    public Face(NavMesh2D navMesh, List<Vec2> ps, int[] vertexIndices) {
         this.navMesh = navMesh;
+        this.vertexIndices = vertexIndices;
+        this.pointInsideFace = new Vec2(0, 0);
         points.addAll(ps);
+        updateBounds();
         create();
     }
 
+    /**
+     * Creates a face whose nodes were already created (when loading a 
+     * compiled mesh). edgeNodes.get(i) is the node of the edge from 
+     * vertex i to vertex i + 1. Nothing is linked or added to the graph.
+     */
+    Face(NavMesh2D navMesh, List<Vec2> ps, int[] vertexIndices
+            , Node<Vec2> nodeInsideFace, List<Node<Vec2>> edgeNodes) {
+        
+        this.navMesh = navMesh;
+        this.vertexIndices = vertexIndices;
+        this.pointInsideFace = nodeInsideFace.getObj();
+        this.nodeInsideFace = nodeInsideFace;
+        points.addAll(ps);
+        updateBounds();
+        for (Node<Vec2> edgeNode : edgeNodes) {
+            this.edgeNodes.add(edgeNode);
+            edgePoints.add(edgeNode.getObj());
+        }
+    }
+
     private void create() {
         updatePointInsideFaceToBarycenter();
         nodeInsideFace = new Node<>(pointInsideFace);
@@ -38,7 +71,8 @@ public class Face {
         for (int i = 0; i < points.size(); i++) {
             Vec2 a = points.get(i);
             Vec2 b = points.get((i + 1) % points.size());
-            Node<Vec2> nodeEdge = navMesh.getEdge(a, b);
+            Node<Vec2> nodeEdge = navMesh.getEdge(
+                vertexIndices[i], vertexIndices[(i + 1) % points.size()]);
             Vec2 pointEdge  = nodeEdge.getObj();
             edgeNodes.add(nodeEdge);
             edgePoints.add(pointEdge);
@@ -51,6 +85,10 @@ public class Face {
         return points;
     }
 
+    public int[] getVertexIndices() {
+        return vertexIndices;
+    }
+
     public Vec2 getPointInsideFace() {
         return pointInsideFace;
     }
@@ -67,6 +105,61 @@ public class Face {
         return edgeNodes;
     }
     
+    private void updateBounds() {
+        int n = points.size();
+        minX = minY = Double.MAX_VALUE;
+        maxX = maxY = -Double.MAX_VALUE;
+        double area = 0;
+        for (int i = 0; i < n; i++) {
+            Vec2 a = points.get(i);
+            Vec2 b = points.get((i + 1) % n);
+            minX = Math.min(minX, a.x);
+            minY = Math.min(minY, a.y);
+            maxX = Math.max(maxX, a.x);
+            maxY = Math.max(maxY, a.y);
+            area += a.x * b.y - b.x * a.y;
+        }
+
+        // the normals point inside for either winding
+        double sign = area < 0 ? -1 : 1;
+        halfPlanes = new double[4 * n];
+        convex = area != 0;
+        for (int i = 0; i < n; i++) {
+            Vec2 a = points.get(i);
+            Vec2 b = points.get((i + 1) % n);
+            Vec2 c = points.get((i + 2) % n);
+            halfPlanes[4 * i] = sign * (a.y - b.y);
+            halfPlanes[4 * i + 1] = sign * (b.x - a.x);
+            halfPlanes[4 * i + 2] = a.x;
+            halfPlanes[4 * i + 3] = a.y;
+            // a reflex vertex at b
+            double turn = (b.x - a.x) * (c.y - b.y) - (b.y - a.y) * (c.x - b.x);
+            if (sign * turn < 0) {
+                convex = false;
+            }
+        }
+    }
+
+    public double getMinX() {
+        return minX;
+    }
+
+    public double getMinY() {
+        return minY;
+    }
+
+    public double getMaxX() {
+        return maxX;
+    }
+
+    public double getMaxY() {
+        return maxY;
+    }
+
+    public boolean isConvex() {
+        return convex;
+    }
+
     public void updatePointInsideFaceToBarycenter() {
         pointInsideFace.x = 0;
         pointInsideFace.y = 0;
@@ -77,12 +170,38 @@ public class Face {
         }
     }
     
+    /**
+     * Returns true if the point (x, y) is inside the face or on its border. 
+     * Doesn't allocate and may be called by several threads at the same 
+     * time.
+     */
     public boolean isInside(double x, double y) {
-        polygonTmp.reset();
-        for (Vec2 point : points) {
-            polygonTmp.addPoint((int) point.x, (int) point.y);
+        if (x < minX || x > maxX || y < minY || y > maxY) {
+            return false;
+        }
+        if (convex) {
+            double[] hp = halfPlanes;
+            for (int i = 0; i < hp.length; i += 4) {
+                if (hp[i] * (x - hp[i + 2]) + hp[i + 1] * (y - hp[i + 3]) < 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // even-odd rule for concave faces
+        boolean inside = false;
+        int n = points.size();
+        for (int i = 0, j = n - 1; i < n; j = i++) {
+            Vec2 a = points.get(i);
+            Vec2 b = points.get(j);
+            if ((a.y > y) != (b.y > y)
+                    && x < (b.x - a.x) * (y - a.y) / (b.y - a.y) + a.x) {
+
+                inside = !inside;
+            }
         }
-        return polygonTmp.contains(x, y);
+        return inside;
     }
 
     @Override
@@ -90,7 +209,7 @@ public class Face {
         return "Face{" + "navMesh=" + navMesh + ", points=" + points 
             + ", pointInsideFace=" + pointInsideFace + ", edgePoints=" 
             + edgePoints + ", nodeInsideFace=" + nodeInsideFace 
-            + ", edgeNodes=" + edgeNodes + ", polygonTmp=" + polygonTmp + '}';
+            + ", edgeNodes=" + edgeNodes + '}';
     }
     
 }
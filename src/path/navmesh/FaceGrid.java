@@ -0,0 +1,128 @@
+package path.navmesh;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * FaceGrid class.
+ *
+ * Uniform grid over the face bounding boxes, used to answer point-to-face
+ * queries without walking every face of the mesh. Each cell keeps the faces
+ * whose bounding box overlaps it. Points outside the grid bounds are clamped
+ * to the border cells.
+ */
+class FaceGrid {
+
+    private static final Face[] EMPTY_CELL = new Face[0];
+
+    private double minX;
+    private double minY;
+    private double cellWidth;
+    private double cellHeight;
+    private int cols;
+    private int rows;
+
+    private Face[][] cells = new Face[0][];
+    private int[] cellSizes = new int[0];
+
+    public FaceGrid() {
+    }
+
+    public void build(List<Face> faces) {
+        minX = Double.MAX_VALUE;
+        minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
+        for (Face face : faces) {
+            minX = Math.min(minX, face.getMinX());
+            minY = Math.min(minY, face.getMinY());
+            maxX = Math.max(maxX, face.getMaxX());
+            maxY = Math.max(maxY, face.getMaxY());
+        }
+        if (faces.isEmpty()) {
+            minX = minY = maxX = maxY = 0;
+        }
+
+        // aim for about one face per cell
+        double width = Math.max(maxX - minX, 1e-9);
+        double height = Math.max(maxY - minY, 1e-9);
+        double cellSize = Math.sqrt(width * height / Math.max(faces.size(), 1));
+        cols = (int) Math.max(1, Math.min(Math.ceil(width / cellSize), 4096));
+        rows = (int) Math.max(1, Math.min(Math.ceil(height / cellSize), 4096));
+        cellWidth = width / cols;
+        cellHeight = height / rows;
+
+        cells = new Face[cols * rows][];
+        Arrays.fill(cells, EMPTY_CELL);
+        cellSizes = new int[cols * rows];
+        faces.forEach(face -> add(face));
+    }
+
+    public void add(Face face) {
+        int[] range = cellRange(face);
+        for (int r = range[2]; r <= range[3]; r++) {
+            for (int c = range[0]; c <= range[1]; c++) {
+                int cell = r * cols + c;
+                Face[] faces = cells[cell];
+                int size = cellSizes[cell];
+                if (size == faces.length) {
+                    faces = Arrays.copyOf(faces, Math.max(4, size * 2));
+                    cells[cell] = faces;
+                }
+                faces[size] = face;
+                cellSizes[cell] = size + 1;
+            }
+        }
+    }
+
+    /**
+     * Removes a face added before.
+     */
+    public void remove(Face face) {
+        int[] range = cellRange(face);
+        for (int r = range[2]; r <= range[3]; r++) {
+            for (int c = range[0]; c <= range[1]; c++) {
+                int cell = r * cols + c;
+                Face[] faces = cells[cell];
+                int size = cellSizes[cell];
+                for (int i = 0; i < size; i++) {
+                    if (faces[i] == face) {
+                        faces[i] = faces[size - 1];
+                        faces[size - 1] = null;
+                        cellSizes[cell] = size - 1;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    // returns the first and last column and row overlapped by the face
+    private int[] cellRange(Face face) {
+        return new int[] { col(face.getMinX()), col(face.getMaxX())
+            , row(face.getMinY()), row(face.getMaxY()) };
+    }
+
+    public Face find(double x, double y) {
+        int cell = row(y) * cols + col(x);
+        Face[] faces = cells[cell];
+        int size = cellSizes[cell];
+        for (int i = 0; i < size; i++) {
+            if (faces[i].isInside(x, y)) {
+                return faces[i];
+            }
+        }
+        return null;
+    }
+
+    private int col(double x) {
+        int c = (int) ((x - minX) / cellWidth);
+        return c < 0 ? 0 : c >= cols ? cols - 1 : c;
+    }
+
+    private int row(double y) {
+        int r = (int) ((y - minY) / cellHeight);
+        return r < 0 ? 0 : r >= rows ? rows - 1 : r;
+    }
+
+}
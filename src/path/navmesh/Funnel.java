@@ -0,0 +1,244 @@
+package path.navmesh;
+
+import java.util.Arrays;
+import java.util.List;
+import math.Vec2;
+import path.finder.a_star.Node;
+import path.finder.a_star.NodePath;
+
+/**
+ * Funnel class.
+ *
+ * Turns the zig-zag node path returned by NavMesh2D.findPath (face nodes
+ * and the edge nodes between them) into the shortest Euclidean path
+ * through the same corridor of faces, using the simple stupid funnel
+ * algorithm. The portals are the face edges crossed by the path, taken
+ * from Face.getPoints().
+ *
+ * An instance reuses its portal buffer, so string pulling doesn't
+ * allocate once the buffer has grown to the longest corridor seen. It is
+ * not thread-safe, use one instance per thread.
+ */
+public class Funnel {
+
+    private static final double EPSILON_SQ = 1e-12;
+
+    private final NavMesh2D navMesh;
+
+    // left x, left y, right x, right y per portal
+    private double[] portals = new double[64];
+    private int portalCount;
+
+    public Funnel(NavMesh2D navMesh) {
+        this.navMesh = navMesh;
+    }
+
+    /**
+     * Writes the taut path from (startX, startY) to (endX, endY) through
+     * the faces of the node path into out, as x, y pairs, and returns the
+     * number of points. The path is expected to begin and end with face
+     * nodes, as returned by NavMesh2D.findPath. If out is too small, only
+     * the first out.length / 2 points are written, but the full count is
+     * still returned, so a result larger than out.length / 2 tells the
+     * caller to grow out and call again. An empty path means there is no
+     * route: nothing is written and 0 is returned.
+     */
+    public int stringPull(double startX, double startY
+            , double endX, double endY, List<Node<Vec2>> path, double[] out) {
+
+        if (path.isEmpty()) {
+            return 0;
+        }
+        buildPortals(startX, startY, endX, endY, path);
+        return stringPull(out, out.length / 2);
+    }
+
+    /**
+     * Same as stringPull(startX, startY, endX, endY, path, out) for a path
+     * of node ids, e.g. a PathBuffer.
+     */
+    public int stringPull(double startX, double startY
+            , double endX, double endY, NodePath path, double[] out) {
+
+        if (path.isEmpty()) {
+            return 0;
+        }
+        List<Node<Vec2>> nodes = navMesh.getGraph().getNodes();
+        portalCount = 0;
+        addPortal(startX, startY, startX, startY);
+        Face face = null;
+        for (int i = 0; i < path.size(); i++) {
+            face = addPortal(face, nodes.get(path.get(i)));
+        }
+        addPortal(endX, endY, endX, endY);
+        return stringPull(out, out.length / 2);
+    }
+
+    private void buildPortals(double startX, double startY
+            , double endX, double endY, List<Node<Vec2>> path) {
+
+        portalCount = 0;
+        addPortal(startX, startY, startX, startY);
+
+        Face face = null;
+        for (Node<Vec2> node : path) {
+            face = addPortal(face, node);
+        }
+
+        addPortal(endX, endY, endX, endY);
+    }
+
+    // adds the portal crossed at node, an edge node leaving face, and 
+    // returns the face the path is in after node
+    private Face addPortal(Face face, Node<Vec2> node) {
+        Face nodeFace = navMesh.getFace(node);
+        if (nodeFace != null) {
+            return nodeFace;
+        }
+        if (face != null) {
+            addEdgePortal(face, node);
+        }
+        return face;
+    }
+
+    private void addEdgePortal(Face face, Node<Vec2> edgeNode) {
+        List<Node<Vec2>> edgeNodes = face.getEdgeNodes();
+        List<Vec2> points = face.getPoints();
+        int i = edgeNodes.indexOf(edgeNode);
+        if (i < 0) {
+            return;
+        }
+        Vec2 a = points.get(i);
+        Vec2 b = points.get((i + 1) % points.size());
+
+        // orient the portal as seen from inside the face we come from
+        double cx = 0;
+        double cy = 0;
+        for (int p = 0; p < points.size(); p++) {
+            cx += points.get(p).x / points.size();
+            cy += points.get(p).y / points.size();
+        }
+        if (triarea2(cx, cy, a.x, a.y, b.x, b.y) > 0) {
+            addPortal(a.x, a.y, b.x, b.y);
+        }
+        else {
+            addPortal(b.x, b.y, a.x, a.y);
+        }
+    }
+
+    private void addPortal(double lx, double ly, double rx, double ry) {
+        int i = portalCount * 4;
+        if (i + 4 > portals.length) {
+            portals = Arrays.copyOf(portals, portals.length * 2);
+        }
+        portals[i] = lx;
+        portals[i + 1] = ly;
+        portals[i + 2] = rx;
+        portals[i + 3] = ry;
+        portalCount++;
+    }
+
+    private int stringPull(double[] out, int maxPoints) {
+        double apexX = portals[0];
+        double apexY = portals[1];
+        double leftX = portals[0];
+        double leftY = portals[1];
+        double rightX = portals[2];
+        double rightY = portals[3];
+        int apexIndex = 0;
+        int leftIndex = 0;
+        int rightIndex = 0;
+
+        int count = append(out, maxPoints, 0, apexX, apexY);
+
+        for (int i = 1; i < portalCount; i++) {
+            double lx = portals[i * 4];
+            double ly = portals[i * 4 + 1];
+            double rx = portals[i * 4 + 2];
+            double ry = portals[i * 4 + 3];
+
+            // update right vertex
+            if (triarea2(apexX, apexY, rightX, rightY, rx, ry) <= 0) {
+                if (equal(apexX, apexY, rightX, rightY)
+                        || triarea2(apexX, apexY, leftX, leftY, rx, ry) > 0) {
+
+                    // tighten the funnel
+                    rightX = rx;
+                    rightY = ry;
+                    rightIndex = i;
+                }
+                else {
+                    // right over left, insert left to path and restart
+                    count = append(out, maxPoints, count, leftX, leftY);
+                    apexX = leftX;
+                    apexY = leftY;
+                    apexIndex = leftIndex;
+                    rightX = apexX;
+                    rightY = apexY;
+                    rightIndex = apexIndex;
+                    i = apexIndex;
+                    continue;
+                }
+            }
+
+            // update left vertex
+            if (triarea2(apexX, apexY, leftX, leftY, lx, ly) >= 0) {
+                if (equal(apexX, apexY, leftX, leftY)
+                        || triarea2(apexX, apexY, rightX, rightY, lx, ly) < 0) {
+
+                    // tighten the funnel
+                    leftX = lx;
+                    leftY = ly;
+                    leftIndex = i;
+                }
+                else {
+                    // left over right, insert right to path and restart
+                    count = append(out, maxPoints, count, rightX, rightY);
+                    apexX = rightX;
+                    apexY = rightY;
+                    apexIndex = rightIndex;
+                    leftX = apexX;
+                    leftY = apexY;
+                    leftIndex = apexIndex;
+                    i = apexIndex;
+                }
+            }
+        }
+
+        double endX = portals[(portalCount - 1) * 4];
+        double endY = portals[(portalCount - 1) * 4 + 1];
+        if (!equal(apexX, apexY, endX, endY)) {
+            count = append(out, maxPoints, count, endX, endY);
+        }
+        return count;
+    }
+
+    // writes the point if it fits and returns the new point count
+    private static int append(double[] out, int maxPoints
+            , int count, double x, double y) {
+
+        if (count < maxPoints) {
+            out[count * 2] = x;
+            out[count * 2 + 1] = y;
+        }
+        return count + 1;
+    }
+
+    // twice the signed area of the triangle abc
+    private static double triarea2(double ax, double ay
+            , double bx, double by, double cx, double cy) {
+
+        double abx = bx - ax;
+        double aby = by - ay;
+        double acx = cx - ax;
+        double acy = cy - ay;
+        return acx * aby - abx * acy;
+    }
+
+    private static boolean equal(double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        return dx * dx + dy * dy < EPSILON_SQ;
+    }
+
+}
@@ -0,0 +1,567 @@
+package path.navmesh;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntPredicate;
+import math.Vec2;
+import path.finder.a_star.Edge;
+import path.finder.a_star.Graph;
+import path.finder.a_star.GraphListener;
+import path.finder.a_star.Node;
+import path.finder.a_star.OpenSet;
+import path.finder.a_star.SearchContext;
+import static path.finder.a_star.SearchContext.State.*;
+
+/**
+ * HierarchicalPathFinder class.
+ *
+ * HPA* style path finder over a loaded NavMesh2D. The faces are grouped
+ * into connected clusters of about clusterSize faces. The edge nodes
+ * shared by faces of different clusters are the portals, and the shortest
+ * distances between the portals of each cluster are precomputed into a
+ * small abstract graph.
+ *
+ * A query first searches the abstract graph, from the start face to the
+ * portals of its cluster and from the portals of the target cluster to
+ * the target face, and then refines each abstract edge with a search
+ * restricted to its cluster. The result has the same format as
+ * NavMesh2D.findPath. Its cost is the sum of exact in-cluster shortest
+ * paths, so it can be slightly longer than the optimal path.
+ *
+ * The abstract graph is a snapshot of the mesh. The finder listens to the
+ * graph, and a blocked node or a changed edge marks the clusters it
+ * touches as stale: their precomputed portal distances are not used
+ * anymore. A query whose abstract search then finds nothing, or whose
+ * refined leg can't be found, falls back to a search of the whole graph,
+ * so it is never wrong, only slower until the finder is rebuilt. Faces
+ * added or removed with NavMesh2D.addFace and removeFace belong to no
+ * cluster, so once the mesh changed that way every query searches the
+ * whole graph until the finder is rebuilt. A finder built for a mesh that
+ * was reloaded must not be used. Queries can run on several threads at
+ * the same time. Call dispose when the finder is not needed anymore.
+ */
+public class HierarchicalPathFinder implements GraphListener<Vec2> {
+
+    public static final int DEFAULT_CLUSTER_SIZE = 64;
+
+    private final Graph<Vec2> graph;
+    private final List<Node<Vec2>> nodes;
+    private final int clusterCount;
+
+    private static final int EDGE_NODE = -1;
+    private static final int REMOVED_NODE = -2;
+
+    // cluster of each face node, EDGE_NODE for edge nodes and REMOVED_NODE
+    // for the nodes unlinked by NavMesh2D.removeFace, which addFace may
+    // reuse for anything. Nodes created after the build are not in it
+    private final int[] nodeClusters;
+    private final IntPredicate[] clusterFilters;
+
+    private final int portalCount;
+    private final int[] portalNodes;
+    private final int[] portalClusterOffsets;
+    private final int[] portalClusters;
+    private final int[] clusterPortalOffsets;
+    private final int[] clusterPortals;
+
+    // abstract graph between portals (CSR)
+    private final int[] offsets;
+    private final int[] targets;
+    private final double[] costs;
+    private final int[] edgeClusters;
+
+    // 1 for the clusters changed since the build
+    private final AtomicIntegerArray staleClusters;
+    private final AtomicInteger staleClusterCount = new AtomicInteger();
+
+    // set once a face was added or removed
+    private volatile boolean meshChanged;
+
+    private final ThreadLocal<Scratch> scratches;
+
+    public HierarchicalPathFinder(NavMesh2D navMesh) {
+        this(navMesh, DEFAULT_CLUSTER_SIZE);
+    }
+
+    public HierarchicalPathFinder(NavMesh2D navMesh, int clusterSize) {
+        if (clusterSize < 1) {
+            throw new IllegalArgumentException(
+                "invalid cluster size " + clusterSize);
+        }
+        graph = navMesh.getGraph();
+        nodes = graph.getNodes();
+        nodeClusters = new int[nodes.size()];
+        clusterCount = createClusters(navMesh, clusterSize);
+
+        clusterFilters = new IntPredicate[clusterCount];
+        for (int c = 0; c < clusterCount; c++) {
+            int cluster = c;
+            clusterFilters[c] = id -> id < nodeClusters.length
+                && (nodeClusters[id] == cluster
+                    || nodeClusters[id] == EDGE_NODE);
+        }
+
+        // portals = edge nodes between faces of different clusters
+        List<Integer> portalList = new ArrayList<>();
+        List<int[]> portalClusterList = new ArrayList<>();
+        int[] clusterPortalCounts = new int[clusterCount];
+        for (Node<Vec2> edgeNode : navMesh.getEdgeNodes()) {
+            int[] clusters = new int[edgeNode.getEdges().size()];
+            int count = 0;
+            for (Edge<Vec2> edge : edgeNode.getEdges()) {
+                int c = nodeClusters[edge.getOppositeNode(edgeNode).getId()];
+                if (c >= 0 && indexOf(clusters, count, c) < 0) {
+                    clusters[count++] = c;
+                }
+            }
+            if (count > 1) {
+                portalList.add(edgeNode.getId());
+                portalClusterList.add(Arrays.copyOf(clusters, count));
+                for (int i = 0; i < count; i++) {
+                    clusterPortalCounts[clusters[i]]++;
+                }
+            }
+        }
+        portalCount = portalList.size();
+        portalNodes = new int[portalCount];
+        portalClusterOffsets = new int[portalCount + 1];
+        for (int p = 0; p < portalCount; p++) {
+            portalNodes[p] = portalList.get(p);
+            portalClusterOffsets[p + 1]
+                = portalClusterOffsets[p] + portalClusterList.get(p).length;
+        }
+        portalClusters = new int[portalClusterOffsets[portalCount]];
+        clusterPortalOffsets = new int[clusterCount + 1];
+        for (int c = 0; c < clusterCount; c++) {
+            clusterPortalOffsets[c + 1]
+                = clusterPortalOffsets[c] + clusterPortalCounts[c];
+        }
+        clusterPortals = new int[clusterPortalOffsets[clusterCount]];
+        int[] clusterFill = Arrays.copyOf(clusterPortalOffsets, clusterCount);
+        for (int p = 0; p < portalCount; p++) {
+            int[] clusters = portalClusterList.get(p);
+            System.arraycopy(clusters, 0, portalClusters
+                , portalClusterOffsets[p], clusters.length);
+            for (int c : clusters) {
+                clusterPortals[clusterFill[c]++] = p;
+            }
+        }
+
+        // intra-cluster distances between portals
+        List<double[]> edgeList = new ArrayList<>();
+        int[] degrees = new int[portalCount];
+        for (int c = 0; c < clusterCount; c++) {
+            int from = clusterPortalOffsets[c];
+            int to = clusterPortalOffsets[c + 1];
+            for (int i = from; i < to; i++) {
+                int p = clusterPortals[i];
+                SearchContext context = graph.findDistances(
+                    nodes.get(portalNodes[p]), clusterFilters[c]);
+
+                for (int j = i + 1; j < to; j++) {
+                    int q = clusterPortals[j];
+                    double d = context.getG(portalNodes[q]);
+                    if (d < Double.MAX_VALUE) {
+                        edgeList.add(new double[] { p, q, d, c });
+                        degrees[p]++;
+                        degrees[q]++;
+                    }
+                }
+            }
+        }
+        offsets = new int[portalCount + 1];
+        for (int p = 0; p < portalCount; p++) {
+            offsets[p + 1] = offsets[p] + degrees[p];
+        }
+        targets = new int[offsets[portalCount]];
+        costs = new double[offsets[portalCount]];
+        edgeClusters = new int[offsets[portalCount]];
+        int[] fill = Arrays.copyOf(offsets, portalCount);
+        for (double[] e : edgeList) {
+            int p = (int) e[0];
+            int q = (int) e[1];
+            addAbstractEdge(fill[p]++, q, e[2], (int) e[3]);
+            addAbstractEdge(fill[q]++, p, e[2], (int) e[3]);
+        }
+
+        staleClusters = new AtomicIntegerArray(clusterCount);
+        scratches = ThreadLocal.withInitial(() -> new Scratch(portalCount));
+        graph.addListener(this);
+    }
+
+    /**
+     * Stops listening to the graph.
+     */
+    public void dispose() {
+        graph.removeListener(this);
+    }
+
+    /**
+     * Returns the number of clusters whose portal distances are not used
+     * anymore because the graph changed inside them.
+     */
+    public int getStaleClusterCount() {
+        return staleClusterCount.get();
+    }
+
+    @Override
+    public void nodeBlockedChanged(Node<Vec2> node) {
+        nodeChanged(node);
+    }
+
+    @Override
+    public void edgeCostChanged(Edge<Vec2> edge, double oldG) {
+        edgeChanged(edge);
+    }
+
+    @Override
+    public void edgeAdded(Edge<Vec2> edge) {
+        edgeChanged(edge);
+        meshChanged = true;
+    }
+
+    @Override
+    public void edgeRemoved(Edge<Vec2> edge) {
+        edgeChanged(edge);
+        meshChanged = true;
+        removeIfUnlinked(edge.getA());
+        removeIfUnlinked(edge.getB());
+    }
+
+    // a node without links was freed by removeFace
+    private void removeIfUnlinked(Node<Vec2> node) {
+        int id = node.getId();
+        if (id >= 0 && id < nodeClusters.length && node.getEdges().isEmpty()) {
+            nodeClusters[id] = REMOVED_NODE;
+        }
+    }
+
+    private void edgeChanged(Edge<Vec2> edge) {
+        markStale(edge.getA());
+        markStale(edge.getB());
+    }
+
+    // a face changes its cluster, an edge node every cluster it borders
+    private void nodeChanged(Node<Vec2> node) {
+        markStale(node);
+        List<Edge<Vec2>> edges = node.getEdges();
+        for (int i = 0; i < edges.size(); i++) {
+            markStale(edges.get(i).getOppositeNode(node));
+        }
+    }
+
+    private void markStale(Node<Vec2> node) {
+        int id = node.getId();
+        if (id >= 0 && id < nodeClusters.length && nodeClusters[id] >= 0
+                && staleClusters.getAndSet(nodeClusters[id], 1) == 0) {
+
+            staleClusterCount.incrementAndGet();
+        }
+    }
+
+    private void addAbstractEdge(int e, int target, double cost, int cluster) {
+        targets[e] = target;
+        costs[e] = cost;
+        edgeClusters[e] = cluster;
+    }
+
+    // grows connected clusters of faces breadth first from unassigned faces
+    private int createClusters(NavMesh2D navMesh, int clusterSize) {
+        Arrays.fill(nodeClusters, EDGE_NODE);
+        int[] queue = new int[nodes.size()];
+        int cluster = 0;
+        for (Face seed : navMesh.getFaces()) {
+            int seedId = seed.getNodeInsideFace().getId();
+            if (nodeClusters[seedId] >= 0) {
+                continue;
+            }
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = seedId;
+            nodeClusters[seedId] = cluster;
+            while (head < tail && tail < clusterSize) {
+                Node<Vec2> face = nodes.get(queue[head++]);
+                for (Edge<Vec2> edge : face.getEdges()) {
+                    Node<Vec2> edgeNode = edge.getOppositeNode(face);
+                    for (Edge<Vec2> edge2 : edgeNode.getEdges()) {
+                        Node<Vec2> other = edge2.getOppositeNode(edgeNode);
+                        int otherId = other.getId();
+                        if (tail < clusterSize && nodeClusters[otherId] < 0
+                                && navMesh.getFace(other) != null) {
+
+                            nodeClusters[otherId] = cluster;
+                            queue[tail++] = otherId;
+                        }
+                    }
+                }
+            }
+            cluster++;
+        }
+        return cluster;
+    }
+
+    private static int indexOf(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public int getClusterCount() {
+        return clusterCount;
+    }
+
+    public int getPortalCount() {
+        return portalCount;
+    }
+
+    /**
+     * Returns the cluster of the face or -1 if it's not part of the mesh
+     * this finder was built from.
+     */
+    public int getCluster(Face face) {
+        int id = face.getNodeInsideFace().getId();
+        return id < nodeClusters.length && nodeClusters[id] >= 0
+            ? nodeClusters[id] : -1;
+    }
+
+    /**
+     * Finds a path between two face nodes, see NavMesh2D.findPath. Other
+     * nodes, and every node once a face was added or removed, are searched
+     * without the hierarchy.
+     */
+    public void findPath(Node<Vec2> start
+            , Node<Vec2> target, List<Node<Vec2>> path) {
+
+        path.clear();
+        int startId = start.getId();
+        int targetId = target.getId();
+        if (meshChanged
+                || startId >= nodeClusters.length
+                || targetId >= nodeClusters.length
+                || nodeClusters[startId] < 0 || nodeClusters[targetId] < 0) {
+
+            graph.findPath(start, target, path);
+            return;
+        }
+        int startCluster = nodeClusters[startId];
+        int targetCluster = nodeClusters[targetId];
+        Scratch scratch = scratches.get();
+
+        // costs from the start to the portals of its cluster
+        SearchContext context = graph.findDistances(
+            start, clusterFilters[startCluster]);
+
+        for (int i = clusterPortalOffsets[startCluster];
+                i < clusterPortalOffsets[startCluster + 1]; i++) {
+
+            int p = clusterPortals[i];
+            scratch.startCosts[p] = context.getG(portalNodes[p]);
+        }
+        double direct = startCluster == targetCluster
+            ? context.getG(targetId) : Double.MAX_VALUE;
+
+        // costs from the portals of the target cluster to the target
+        context = graph.findDistances(target, clusterFilters[targetCluster]);
+        for (int i = clusterPortalOffsets[targetCluster];
+                i < clusterPortalOffsets[targetCluster + 1]; i++) {
+
+            int p = clusterPortals[i];
+            scratch.targetCosts[p] = context.getG(portalNodes[p]);
+        }
+
+        int abstractTarget = searchAbstractGraph(scratch, start, target
+            , startCluster, targetCluster, direct);
+
+        // the abstract graph only misses paths through stale clusters
+        if (abstractTarget < 0) {
+            if (staleClusterCount.get() > 0) {
+                graph.findPath(start, target, path);
+            }
+            return;
+        }
+        if (!refine(scratch, start, target, abstractTarget, path)) {
+            path.clear();
+            graph.findPath(start, target, path);
+        }
+    }
+
+    // A* over the portals plus a virtual start (portalCount) and target
+    // (portalCount + 1), returns the id of the target or -1 if not found
+    private int searchAbstractGraph(Scratch scratch
+            , Node<Vec2> start, Node<Vec2> target
+            , int startCluster, int targetCluster, double direct) {
+
+        int abstractStart = portalCount;
+        int abstractTarget = portalCount + 1;
+        Vec2 targetPoint = target.getObj();
+
+        SearchContext context = scratch.context;
+        context.prepare(portalCount + 2);
+        OpenSet openNodes = context.getOpenSet();
+        context.setG(abstractStart, 0);
+        context.setH(abstractStart, distance(start.getObj(), targetPoint));
+        openNodes.add(abstractStart, context.getF(abstractStart));
+
+        while (!openNodes.isEmpty()) {
+            int current = openNodes.poll();
+            context.setState(current, CLOSED);
+            context.incrementExpandedCount();
+            if (current == abstractTarget) {
+                return abstractTarget;
+            }
+            double g = context.getG(current);
+            if (current == abstractStart) {
+                for (int i = clusterPortalOffsets[startCluster];
+                        i < clusterPortalOffsets[startCluster + 1]; i++) {
+
+                    int p = clusterPortals[i];
+                    if (scratch.startCosts[p] < Double.MAX_VALUE) {
+                        relax(scratch, current, p
+                            , g + scratch.startCosts[p], startCluster
+                            , targetPoint);
+                    }
+                }
+                if (direct < Double.MAX_VALUE) {
+                    relax(scratch, current, abstractTarget, g + direct
+                        , startCluster, targetPoint);
+                }
+                continue;
+            }
+            for (int e = offsets[current]; e < offsets[current + 1]; e++) {
+                if (staleClusters.get(edgeClusters[e]) != 0) {
+                    continue;
+                }
+                relax(scratch, current, targets[e], g + costs[e]
+                    , edgeClusters[e], targetPoint);
+            }
+            if (touchesCluster(current, targetCluster)
+                    && scratch.targetCosts[current] < Double.MAX_VALUE) {
+
+                relax(scratch, current, abstractTarget
+                    , g + scratch.targetCosts[current], targetCluster
+                    , targetPoint);
+            }
+        }
+        return -1;
+    }
+
+    private void relax(Scratch scratch, int from, int to
+            , double g, int cluster, Vec2 targetPoint) {
+
+        SearchContext context = scratch.context;
+        if (g >= context.getG(to)) {
+            return;
+        }
+        double h = to < portalCount
+            ? distance(nodes.get(portalNodes[to]).getObj(), targetPoint) : 0;
+
+        context.setBackPathNode(to, from);
+        context.setG(to, g);
+        context.setH(to, h);
+        scratch.legClusters[to] = cluster;
+        OpenSet openNodes = context.getOpenSet();
+        if (openNodes.contains(to)) {
+            openNodes.decreaseKey(to, g + h);
+        }
+        else {
+            openNodes.add(to, g + h);
+            context.setState(to, OPEN);
+        }
+    }
+
+    private boolean touchesCluster(int portal, int cluster) {
+        for (int i = portalClusterOffsets[portal];
+                i < portalClusterOffsets[portal + 1]; i++) {
+
+            if (portalClusters[i] == cluster) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // replaces every abstract edge by the path inside its cluster, returns
+    // false if a leg can't be found anymore
+    private boolean refine(Scratch scratch, Node<Vec2> start, Node<Vec2> target
+            , int abstractTarget, List<Node<Vec2>> path) {
+
+        SearchContext context = scratch.context;
+        int count = 0;
+        for (int id = abstractTarget; id >= 0;
+                id = context.getBackPathNode(id)) {
+
+            count++;
+        }
+        int[] abstractPath = scratch.abstractPath(count);
+        int[] legClusters = scratch.abstractPathClusters(count);
+        int i = count;
+        for (int id = abstractTarget; id >= 0;
+                id = context.getBackPathNode(id)) {
+
+            abstractPath[--i] = id;
+            legClusters[i] = scratch.legClusters[id];
+        }
+
+        List<Node<Vec2>> leg = scratch.leg;
+        for (i = 0; i < count - 1; i++) {
+            Node<Vec2> from = i == 0
+                ? start : nodes.get(portalNodes[abstractPath[i]]);
+
+            Node<Vec2> to = i == count - 2
+                ? target : nodes.get(portalNodes[abstractPath[i + 1]]);
+
+            leg.clear();
+            graph.findPath(from, to, leg, clusterFilters[legClusters[i + 1]]);
+            if (leg.isEmpty()) {
+                return false;
+            }
+            path.addAll(path.isEmpty() ? leg : leg.subList(1, leg.size()));
+        }
+        return true;
+    }
+
+    private static double distance(Vec2 a, Vec2 b) {
+        double dx = b.x - a.x;
+        double dy = b.y - a.y;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    private static class Scratch {
+
+        private final SearchContext context = new SearchContext();
+        private final double[] startCosts;
+        private final double[] targetCosts;
+        private final int[] legClusters;
+        private final List<Node<Vec2>> leg = new ArrayList<>();
+        private int[] abstractPath = new int[16];
+        private int[] abstractPathClusters = new int[16];
+
+        public Scratch(int portalCount) {
+            startCosts = new double[portalCount];
+            targetCosts = new double[portalCount];
+            legClusters = new int[portalCount + 2];
+        }
+
+        public int[] abstractPath(int count) {
+            if (abstractPath.length < count) {
+                abstractPath = new int[count];
+            }
+            return abstractPath;
+        }
+
+        public int[] abstractPathClusters(int count) {
+            if (abstractPathClusters.length < count) {
+                abstractPathClusters = new int[count];
+            }
+            return abstractPathClusters;
+        }
+
+    }
+
+}
@@ -1,16 +1,21 @@
 package path.navmesh;
 
 import math.Vec2;
-import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.nio.DoubleBuffer;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import path.finder.a_star.Edge;
+import path.finder.a_star.FlowField;
 import path.finder.a_star.Graph;
 import path.finder.a_star.Node;
+import path.finder.a_star.SearchMode;
+import path.finder.a_star.VirtualNode;
 
 /**
  * NavMesh2D class.
@@ -22,14 +27,23 @@ public class NavMesh2D {
     private Graph<Vec2> graph;
     private final List<Vec2> vertices = new ArrayList<>();
     private final List<Face> faces = new ArrayList<>();
-    private final Map<Edge, Node<Vec2>> edges = new HashMap<>();
+    private final LongHashMap<Node<Vec2>> edges = new LongHashMap<>();
+    private final List<Node<Vec2>> edgeNodes = new ArrayList<>();
+    private final List<Face> nodeFaces = new ArrayList<>();
+    // position of a face node in faces or of an edge node in edgeNodes
+    private int[] nodePositions = new int[0];
+    // nodes of removed faces, reused by addFace
+    private final List<Node<Vec2>> freeNodes = new ArrayList<>();
+    private final FaceGrid faceGrid = new FaceGrid();
+    private volatile PathCache pathCache;
+    private volatile NextHopTable nextHopTable;
+    private final ThreadLocal<PointQuery> pointQueries 
+        = ThreadLocal.withInitial(PointQuery::new);
     
     private double scaleFactor;
     private double translateX;
     private double translateY;
 
-    private static final Edge EDGE_KEY = new Edge(null, null);
-
     public NavMesh2D() {
     }
 
@@ -45,8 +59,49 @@ public class NavMesh2D {
         return faces;
     }
 
-    public Map<Edge, Node<Vec2>> getEdges() {
-        return edges;
+    public List<Node<Vec2>> getEdgeNodes() {
+        return edgeNodes;
+    }
+
+    /**
+     * Returns the face whose inside node is the given node, or null if the
+     * node is an edge node.
+     */
+    public Face getFace(Node<Vec2> node) {
+        int id = node.getId();
+        return id < nodeFaces.size() ? nodeFaces.get(id) : null;
+    }
+
+    public PathCache getPathCache() {
+        return pathCache;
+    }
+
+    /**
+     * Puts the cache in front of findPath, or removes the current one if 
+     * pathCache is null. The cache is cleared when the mesh is reloaded.
+     */
+    public void setPathCache(PathCache pathCache) {
+        if (graph != null && this.pathCache != null) {
+            graph.removeListener(this.pathCache);
+        }
+        this.pathCache = pathCache;
+        if (graph != null && pathCache != null) {
+            graph.addListener(pathCache);
+        }
+    }
+
+    public NextHopTable getNextHopTable() {
+        return nextHopTable;
+    }
+
+    /**
+     * Makes findPath answer face to face queries from the table (see 
+     * NextHopTable.create) instead of searching, as long as the graph 
+     * doesn't change. Null removes the current table. The table is 
+     * dropped when the mesh is reloaded.
+     */
+    public void setNextHopTable(NextHopTable nextHopTable) {
+        this.nextHopTable = nextHopTable;
     }
 
     public double getScaleFactor() {
@@ -64,6 +119,111 @@ public class NavMesh2D {
     public void load(String meshRes, double scaleFactor
             , double translateX, double translateY) throws Exception {
         
+        try (InputStream is = NavMesh2D.class.getResourceAsStream(meshRes)) {
+            if (is == null) {
+                throw new IOException("resource not found: " + meshRes);
+            }
+            load(is, scaleFactor, translateX, translateY);
+        }
+    }
+
+    /**
+     * Loads the mesh from an OBJ file. The file is memory-mapped and parsed 
+     * in place, so this is the fastest way to load large meshes.
+     */
+    public void load(Path meshFile, double scaleFactor
+            , double translateX, double translateY) throws IOException {
+        
+        reset(scaleFactor, translateX, translateY);
+        createParser().parse(meshFile);
+        build();
+    }
+
+    /**
+     * Loads the mesh from an OBJ stream. The stream is not closed.
+     */
+    public void load(InputStream meshStream, double scaleFactor
+            , double translateX, double translateY) throws IOException {
+        
+        reset(scaleFactor, translateX, translateY);
+        createParser().parse(meshStream);
+        build();
+    }
+
+    /**
+     * Loads a mesh written by NavMeshFile.write. The nodes, links and 
+     * costs are read as they were compiled, so nothing is parsed or 
+     * recomputed except the face lookup grid. Nodes left unlinked by 
+     * removeFace keep their ids and are reused by addFace, as in the mesh
+     * that was written.
+     */
+    public void loadCompiled(Path file) throws IOException {
+        NavMeshFile data = NavMeshFile.map(file);
+        reset(data.scaleFactor, data.translateX, data.translateY);
+        
+        DoubleBuffer vs = data.vertices;
+        for (int i = 0; i < data.vertexCount; i++) {
+            vertices.add(new Vec2(vs.get(2 * i), vs.get(2 * i + 1)));
+        }
+        
+        DoubleBuffer positions = data.nodePositions;
+        List<Node<Vec2>> nodes = graph.getNodes();
+        for (int id = 0; id < data.nodeCount; id++) {
+            Node<Vec2> node = new Node<>(new Vec2(
+                positions.get(2 * id), positions.get(2 * id + 1)));
+            
+            graph.addNode(node);
+            node.setBlocked(data.nodeFlags.get(id) != 0);
+            nodeFaces.add(null);
+        }
+        
+        List<Vec2> ps = new ArrayList<>();
+        List<Node<Vec2>> faceEdgeNodes = new ArrayList<>();
+        for (int f = 0; f < data.faceCount; f++) {
+            int from = data.faceOffsets.get(f);
+            int to = data.faceOffsets.get(f + 1);
+            int faceNodeId = data.faceNodes.get(f);
+            Node<Vec2> faceNode = nodes.get(faceNodeId);
+            int[] indices = new int[to - from];
+            ps.clear();
+            faceEdgeNodes.clear();
+            for (int s = from; s < to; s++) {
+                int index = data.faceVertices.get(s);
+                int edgeNodeId = data.slotNodes.get(s);
+                indices[s - from] = index;
+                ps.add(vertices.get(index));
+                faceEdgeNodes.add(nodes.get(edgeNodeId));
+            }
+            Face face = new Face(this, ps, indices, faceNode, faceEdgeNodes);
+            faces.add(face);
+            nodeFaces.set(faceNodeId, face);
+            for (int i = 0; i < indices.length; i++) {
+                Node<Vec2> edgeNode = faceEdgeNodes.get(i);
+                edges.put(edgeKey(indices[i]
+                    , indices[(i + 1) % indices.length]), edgeNode);
+                
+                graph.link(edgeNode, faceNode, data.slotCosts.get(from + i));
+            }
+        }
+        for (int id = 0; id < data.nodeCount; id++) {
+            Node<Vec2> node = nodes.get(id);
+            if (nodeFaces.get(id) != null) {
+                continue;
+            }
+            // nodes of removed faces are written unlinked, see removeFace
+            if (node.getEdges().isEmpty()) {
+                freeNodes.add(node);
+            }
+            else {
+                edgeNodes.add(node);
+            }
+        }
+        complete();
+    }
+
+    private void reset(double scaleFactor
+            , double translateX, double translateY) {
+        
         graph = new Graph<>((start, target, current) -> {
             // heuristic function = linear distance
             double dx = target.getObj().x - current.getObj().x;
@@ -71,29 +231,204 @@ public class NavMesh2D {
             return Math.sqrt(dx * dx + dy * dy);
         });
         
+        if (pathCache != null) {
+            pathCache.clear();
+        }
+        if (nextHopTable != null) {
+            nextHopTable.dispose();
+            nextHopTable = null;
+        }
+        
         vertices.clear();
         faces.clear();
         edges.clear();
+        edgeNodes.clear();
+        nodeFaces.clear();
+        freeNodes.clear();
         
         this.scaleFactor = scaleFactor;
         this.translateX = translateX;
         this.translateY = translateY;
-        
-        InputStream is = NavMesh2D.class.getResourceAsStream(meshRes);
-        InputStreamReader isr = new InputStreamReader(is);
-        BufferedReader br = new BufferedReader(isr);
-        String line;
-        while ((line = br.readLine()) != null) {
-            if (line.startsWith("v ")) {
-                parseVertex(line);
+    }
+
+    private ObjParser createParser() {
+        List<Vec2> ps = new ArrayList<>();
+        return new ObjParser(new ObjParser.Handler() {
+            
+            @Override
+            public void vertex(double x, double y, double z) {
+                double stx = x * scaleFactor + translateX;
+                double sty = z * scaleFactor + translateY;
+                vertices.add(new Vec2(stx, sty));
             }
-            else if (line.startsWith("f ")) {
-                parseFace(line);
+
+            @Override
+            public void face(int[] indices, int count) {
+                ps.clear();
+                for (int i = 0; i < count; i++) {
+                    ps.add(vertices.get(indices[i]));
+                }
+                faces.add(new Face(NavMesh2D.this, ps
+                    , Arrays.copyOf(indices, count)));
             }
-        }
-        br.close();
+            
+        });
+    }
+
+    private void build() {
         faces.forEach(face -> graph.addNode(face.getNodeInsideFace()));
+        while (nodeFaces.size() < graph.getNodes().size()) {
+            nodeFaces.add(null);
+        }
+        faces.forEach(face 
+            -> nodeFaces.set(face.getNodeInsideFace().getId(), face));
         linkAllNodes();
+        complete();
+    }
+
+    private void complete() {
+        nodePositions = new int[graph.getNodes().size()];
+        for (int i = 0; i < faces.size(); i++) {
+            nodePositions[faces.get(i).getNodeInsideFace().getId()] = i;
+        }
+        for (int i = 0; i < edgeNodes.size(); i++) {
+            nodePositions[edgeNodes.get(i).getId()] = i;
+        }
+        faceGrid.build(faces);
+        if (pathCache != null) {
+            graph.addListener(pathCache);
+        }
+    }
+
+    // makes an empty mesh if nothing was loaded yet
+    private void initialize() {
+        if (graph == null) {
+            reset(1, 0, 0);
+            complete();
+        }
+    }
+
+    /**
+     * Adds a vertex (in mesh coordinates, i.e. already scaled and 
+     * translated) for addFace and returns its index. Vertices are never 
+     * removed, so indices stay valid.
+     */
+    public int addVertex(double x, double y) {
+        initialize();
+        vertices.add(new Vec2(x, y));
+        return vertices.size() - 1;
+    }
+
+    /**
+     * Adds a face over existing vertices. Edges shared with faces already 
+     * in the mesh reuse their edge nodes, so the new face is connected to 
+     * its neighbors; nodes of removed faces are reused before new ones are
+     * added to the graph. The cost only depends on the size of the face.
+     * 
+     * The lookup grid keeps the bounds computed at load time, so faces 
+     * added far outside of them make findFace slower.
+     */
+    public Face addFace(int[] vertexIndices) {
+        if (vertexIndices.length < 3) {
+            throw new IllegalArgumentException(
+                "a face needs at least 3 vertices");
+        }
+        for (int index : vertexIndices) {
+            if (index < 0 || index >= vertices.size()) {
+                throw new IllegalArgumentException(
+                    "invalid vertex index " + index);
+            }
+        }
+        initialize();
+        int[] indices = vertexIndices.clone();
+        int n = indices.length;
+        List<Vec2> ps = new ArrayList<>(n);
+        List<Node<Vec2>> faceEdgeNodes = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Vec2 a = vertices.get(indices[i]);
+            Vec2 b = vertices.get(indices[(i + 1) % n]);
+            Node<Vec2> edgeNode = getEdge(indices[i], indices[(i + 1) % n]);
+            edgeNode.getObj().x = a.x / 2 + b.x / 2;
+            edgeNode.getObj().y = a.y / 2 + b.y / 2;
+            ps.add(a);
+            faceEdgeNodes.add(edgeNode);
+        }
+        Node<Vec2> faceNode = createNode();
+        Face face = new Face(this, ps, indices, faceNode, faceEdgeNodes);
+        face.updatePointInsideFaceToBarycenter();
+        nodePositions[faceNode.getId()] = faces.size();
+        faces.add(face);
+        nodeFaces.set(faceNode.getId(), face);
+        for (Node<Vec2> edgeNode : faceEdgeNodes) {
+            graph.link(edgeNode, faceNode, distance(edgeNode, faceNode));
+        }
+        faceGrid.add(face);
+        return face;
+    }
+
+    /**
+     * Removes the face and its links. Edge nodes no other face uses are 
+     * removed too. The removed nodes stay in the graph unlinked (so node 
+     * ids don't change) until addFace reuses them; the face must not be 
+     * used afterwards. The cost only depends on the size of the face.
+     */
+    public void removeFace(Face face) {
+        Node<Vec2> faceNode = face.getNodeInsideFace();
+        if (getFace(faceNode) != face) {
+            throw new IllegalArgumentException("face not in this mesh");
+        }
+        faceGrid.remove(face);
+        for (Edge<Vec2> edge : new ArrayList<>(faceNode.getEdges())) {
+            graph.unlink(edge);
+        }
+        int[] indices = face.getVertexIndices();
+        List<Node<Vec2>> faceEdgeNodes = face.getEdgeNodes();
+        for (int i = 0; i < indices.length; i++) {
+            Node<Vec2> edgeNode = faceEdgeNodes.get(i);
+            if (edgeNode.getEdges().isEmpty() 
+                    && edges.remove(edgeKey(indices[i]
+                        , indices[(i + 1) % indices.length])) != null) {
+                
+                // moves the last edge node into the hole
+                int position = nodePositions[edgeNode.getId()];
+                Node<Vec2> last = edgeNodes.remove(edgeNodes.size() - 1);
+                if (last != edgeNode) {
+                    edgeNodes.set(position, last);
+                    nodePositions[last.getId()] = position;
+                }
+                freeNodes.add(edgeNode);
+            }
+        }
+        int position = nodePositions[faceNode.getId()];
+        Face last = faces.remove(faces.size() - 1);
+        if (last != face) {
+            faces.set(position, last);
+            nodePositions[last.getNodeInsideFace().getId()] = position;
+        }
+        nodeFaces.set(faceNode.getId(), null);
+        freeNodes.add(faceNode);
+    }
+
+    private Node<Vec2> createNode() {
+        if (!freeNodes.isEmpty()) {
+            Node<Vec2> node = freeNodes.remove(freeNodes.size() - 1);
+            node.setBlocked(false);
+            return node;
+        }
+        Node<Vec2> node = new Node<>(new Vec2(0, 0));
+        graph.addNode(node);
+        nodeFaces.add(null);
+        if (nodePositions.length <= node.getId()) {
+            nodePositions = Arrays.copyOf(nodePositions
+                , Math.max(16, nodePositions.length * 2));
+        }
+        return node;
+    }
+
+    private static double distance(Node<Vec2> a, Node<Vec2> b) {
+        double dx = a.getObj().x - b.getObj().x;
+        double dy = a.getObj().y - b.getObj().y;
+        return Math.sqrt(dx * dx + dy * dy);
     }
 
     private void linkAllNodes() {
@@ -109,102 +444,312 @@ public class NavMesh2D {
         }
     }
 
-    private void parseVertex(String line) {
-        String[] data = line.split(" ");
-        double x = Double.parseDouble(data[1]);
-        double y = Double.parseDouble(data[3]);
-        double stx = x * scaleFactor + translateX;
-        double sty = y * scaleFactor + translateY;
-        Vec2 v = new Vec2(stx, sty);
-        vertices.add(v);
-    }
-
-    private void parseFace(String line) {
-        String[] data = line.split(" ");
-        List<Vec2> ps = new ArrayList<>();
-        for (int i = 1; i < data.length; i++) {
-            String[] data2 = data[i].split("/");
-            int index = Integer.parseInt(data2[0]);
-            ps.add(vertices.get(index - 1));
-        }
-        Face face = new Face(this, ps);
-        faces.add(face);
+    /**
+     * Returns the face containing the point (x, y) or null if the point is 
+     * outside the mesh. Uses the uniform grid built during load, so only the 
+     * faces overlapping the point's grid cell are tested.
+     */
+    public Face findFace(double x, double y) {
+        return faceGrid.find(x, y);
     }
 
     public void findPath(Node<Vec2> start
             , Node<Vec2> target, List<Node<Vec2>> path) {
         
-        path.clear();
-        graph.findPath(start, target, path);
+        findPath(graph, pathCache, nextHopTable, start, target, path);
     }
 
-    public static class Edge {
+    // the face to face query of findPath and findPaths, over the given 
+    // graph, cache and table (both may be null)
+    private static void findPath(Graph<Vec2> graph, PathCache cache
+            , NextHopTable table, Node<Vec2> start, Node<Vec2> target
+            , List<Node<Vec2>> path) {
 
-        public Vec2 a;
-        public Vec2 b;
+        path.clear();
+        if (table != null && !table.isStale()
+                && table.contains(start, target)) {
 
-        public Edge(Vec2 a, Vec2 b) {
-            this.a = a;
-            this.b = b;
+            table.findPath(start, target, path);
+            return;
+        }
+        if (cache == null) {
+            graph.findPath(start, target, path);
+            return;
         }
+        long version = cache.getVersion();
+        if (!cache.get(start, target, path)) {
+            graph.findPath(start, target, path);
+            cache.put(start, target, path, version);
+        }
+    }
 
-        @Override
-        public int hashCode() {
-            // TODO: improve this later ?
-            int hash = 7;
-            return hash;
+    /**
+     * Fills path with the ids and coordinates of the nodes from start to 
+     * target, or clears it if target can't be reached. Doesn't go through 
+     * the path cache, so once the buffer has grown to the longest path 
+     * seen, the call doesn't allocate.
+     */
+    public void findPath(Node<Vec2> start, Node<Vec2> target
+            , PathBuffer path) {
+
+        findPath(start, target, path, SearchMode.UNIDIRECTIONAL);
+    }
+
+    public void findPath(Node<Vec2> start, Node<Vec2> target
+            , PathBuffer path, SearchMode mode) {
+
+        NextHopTable table = nextHopTable;
+        if (table != null && !table.isStale()
+                && table.contains(start, target)) {
+
+            table.findPath(start, target, path);
+        }
+        else {
+            graph.findPath(start, target, path, mode);
         }
+        path.updateCoordinates(graph.getNodes());
+    }
 
-        @Override
-        public boolean equals(Object obj) {
-            if (this == obj) {
-                return true;
-            }
-            if (obj == null) {
-                return false;
+    /**
+     * Finds the path between two points of the mesh without changing the 
+     * mesh. Each point gets a virtual node, owned by the calling thread, 
+     * linked to the edge nodes of the face containing it at their straight
+     * line distance, so agents in the same face can search from different 
+     * points at the same time. Fills path with the start face node, the 
+     * edge nodes crossed and the target face node (the same node twice if 
+     * both points are in one face), the node path Funnel.stringPull 
+     * expects, or clears it if a point is outside of the mesh or the 
+     * target can't be reached. Doesn't go through the path cache nor the 
+     * next hop table.
+     */
+    public void findPath(Vec2 from, Vec2 to, List<Node<Vec2>> path) {
+        PointQuery query = pointQueries.get();
+        Face startFace = linkPoint(query.start, from);
+        Face targetFace = linkPoint(query.target, to);
+        path.clear();
+        if (startFace == null || targetFace == null 
+                || targetFace.getNodeInsideFace().isBlocked()) {
+            
+            return;
+        }
+        if (startFace != targetFace) {
+            graph.findPath(query.start, query.target, path);
+            if (path.isEmpty()) {
+                return;
             }
-            if (getClass() != obj.getClass()) {
-                return false;
+        }
+        path.add(0, startFace.getNodeInsideFace());
+        path.add(targetFace.getNodeInsideFace());
+    }
+
+    /**
+     * Same as findPath(from, to, path), filling a PathBuffer whose first 
+     * and last coordinates are from and to. Doesn't allocate once the 
+     * buffer has grown to the longest path seen.
+     */
+    public void findPath(Vec2 from, Vec2 to, PathBuffer path) {
+        PointQuery query = pointQueries.get();
+        Face startFace = linkPoint(query.start, from);
+        Face targetFace = linkPoint(query.target, to);
+        path.clear();
+        if (startFace == null || targetFace == null 
+                || targetFace.getNodeInsideFace().isBlocked()) {
+            
+            return;
+        }
+        if (startFace != targetFace) {
+            graph.findPath(query.start, query.target, path);
+            if (path.isEmpty()) {
+                return;
             }
-            final Edge other = (Edge) obj;
-            if (Objects.equals(this.a, other.a) 
-                    && Objects.equals(this.b, other.b)) {
+        }
+        int size = path.size();
+        path.setSize(size + 2);
+        int[] ids = path.getIds();
+        System.arraycopy(ids, 0, ids, 1, size);
+        ids[0] = startFace.getNodeInsideFace().getId();
+        ids[size + 1] = targetFace.getNodeInsideFace().getId();
+        path.updateCoordinates(graph.getNodes());
+        path.setCoordinates(0, from.x, from.y);
+        path.setCoordinates(size + 1, to.x, to.y);
+    }
+
+    // links the virtual node to the edge nodes of the face containing 
+    // point and returns the face, or null if point is outside of the mesh
+    private Face linkPoint(VirtualNode<Vec2> virtualNode, Vec2 point) {
+        virtualNode.clear();
+        Face face = findFace(point.x, point.y);
+        if (face == null) {
+            return null;
+        }
+        virtualNode.getObj().set(point);
+        List<Node<Vec2>> faceEdgeNodes = face.getEdgeNodes();
+        for (int i = 0; i < faceEdgeNodes.size(); i++) {
+            Node<Vec2> edgeNode = faceEdgeNodes.get(i);
+            double dx = edgeNode.getObj().x - point.x;
+            double dy = edgeNode.getObj().y - point.y;
+            virtualNode.link(edgeNode, Math.sqrt(dx * dx + dy * dy));
+        }
+        return face;
+    }
+
+    // virtual start and target nodes of findPath(from, to, path)
+    private static class PointQuery {
+        
+        private final VirtualNode<Vec2> start 
+            = new VirtualNode<>(new Vec2(0, 0));
+        
+        private final VirtualNode<Vec2> target 
+            = new VirtualNode<>(new Vec2(0, 0));
+        
+    }
+
+    /**
+     * Returns a flow field towards the face, from which any number of agents
+     * can read their path to it without searching. Dispose it when it is 
+     * not needed anymore.
+     */
+    public FlowField<Vec2> createFlowField(Face target) {
+        return new FlowField<>(graph, target.getNodeInsideFace());
+    }
+
+    /**
+     * Answers a batch of face to face queries in parallel on the common 
+     * fork-join pool. paths[i] receives the path from starts[i] to 
+     * targets[i]; null entries in paths are filled with new lists and a 
+     * null start or target face gives an empty path.
+     */
+    public void findPaths(Face[] starts, Face[] targets
+            , List<Node<Vec2>>[] paths) {
+        
+        findPaths(ForkJoinPool.commonPool(), starts, targets, paths);
+    }
+
+    public void findPaths(ForkJoinPool pool, Face[] starts, Face[] targets
+            , List<Node<Vec2>>[] paths) {
+        
+        if (starts.length != targets.length 
+                || starts.length != paths.length) {
+            
+            throw new IllegalArgumentException(
+                "starts, targets and paths must have the same length");
+        }
+        pool.invoke(new FindPathsTask(graph, pathCache, nextHopTable
+            , starts, targets, paths, 0, starts.length));
+    }
+
+    /**
+     * Same as findPaths(Face[], Face[], List[]), for start and target 
+     * points. The points are located on the calling thread before the 
+     * searches are spread over the pool.
+     */
+    public void findPaths(Vec2[] starts, Vec2[] targets
+            , List<Node<Vec2>>[] paths) {
+        
+        findPaths(ForkJoinPool.commonPool(), starts, targets, paths);
+    }
+
+    public void findPaths(ForkJoinPool pool, Vec2[] starts, Vec2[] targets
+            , List<Node<Vec2>>[] paths) {
+        
+        if (starts.length != targets.length) {
+            throw new IllegalArgumentException(
+                "starts and targets must have the same length");
+        }
+        Face[] startFaces = new Face[starts.length];
+        Face[] targetFaces = new Face[targets.length];
+        for (int i = 0; i < starts.length; i++) {
+            startFaces[i] = findFace(starts[i].x, starts[i].y);
+            targetFaces[i] = findFace(targets[i].x, targets[i].y);
+        }
+        findPaths(pool, startFaces, targetFaces, paths);
+    }
+
+    private static final class FindPathsTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private static final int THRESHOLD = 16;
+        
+        private final Graph<Vec2> graph;
+        private final PathCache cache;
+        private final NextHopTable table;
+        private final Face[] starts;
+        private final Face[] targets;
+        private final List<Node<Vec2>>[] paths;
+        private final int from;
+        private final int to;
+
+        FindPathsTask(Graph<Vec2> graph, PathCache cache
+                , NextHopTable table, Face[] starts, Face[] targets
+                , List<Node<Vec2>>[] paths, int from, int to) {
+            
+            this.graph = graph;
+            this.cache = cache;
+            this.table = table;
+            this.starts = starts;
+            this.targets = targets;
+            this.paths = paths;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > THRESHOLD) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new FindPathsTask(graph, cache, table
+                        , starts, targets, paths, from, mid)
+                    , new FindPathsTask(graph, cache, table
+                        , starts, targets, paths, mid, to));
                 
-                return true;
+                return;
             }
-            if (Objects.equals(this.a, other.b) 
-                    && Objects.equals(this.b, other.a)) {
-                
-                return true;
+            for (int i = from; i < to; i++) {
+                if (paths[i] == null) {
+                    paths[i] = new ArrayList<>();
+                }
+                if (starts[i] == null || targets[i] == null) {
+                    paths[i].clear();
+                }
+                else {
+                    findPath(graph, cache, table
+                        , starts[i].getNodeInsideFace()
+                        , targets[i].getNodeInsideFace(), paths[i]);
+                }
             }
-            return false;
         }
         
     }
-    
-    public Node<Vec2> getEdge(Vec2 a, Vec2 b) {
-        EDGE_KEY.a = a;
-        EDGE_KEY.b = b;
-        
-        if (edges.containsKey(EDGE_KEY)) {
-            return edges.get(EDGE_KEY);
-        }
-        else {
-            Edge edgeKey = new Edge(a, b);
-            Vec2 v = new Vec2(0, 0);
-            Node<Vec2> n = new Node(v);
-            graph.addNode(n);
-            edges.put(edgeKey, n);
-            return n;
+
+    /**
+     * Returns the node shared by all faces having the edge between the 
+     * vertices ia and ib (indices into getVertices()), creating it on first 
+     * use. The edge is undirected, so getEdge(a, b) == getEdge(b, a).
+     */
+    public Node<Vec2> getEdge(int ia, int ib) {
+        long key = edgeKey(ia, ib);
+        Node<Vec2> n = edges.get(key);
+        if (n == null) {
+            n = createNode();
+            edges.put(key, n);
+            nodePositions[n.getId()] = edgeNodes.size();
+            edgeNodes.add(n);
         }
+        return n;
+    }
+
+    private static long edgeKey(int ia, int ib) {
+        int min = Math.min(ia, ib);
+        int max = Math.max(ia, ib);
+        return ((long) min << 32) | (max & 0xffffffffL);
     }
 
     @Override
     public String toString() {
         return "NavMesh2D{" + "graph=" + graph + ", vertices=" + vertices 
-            + ", faces=" + faces + ", edges=" + edges + ", scaleFactor=" 
-            + scaleFactor + ", translateX=" + translateX + ", translateY=" 
-            + translateY + '}';
+            + ", faces=" + faces + ", edgeNodes=" + edgeNodes 
+            + ", scaleFactor=" + scaleFactor + ", translateX=" + translateX 
+            + ", translateY=" + translateY + '}';
     }
     
 }
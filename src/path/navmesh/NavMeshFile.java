@@ -0,0 +1,292 @@
+package path.navmesh;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import math.Vec2;
+import path.finder.a_star.Edge;
+import path.finder.a_star.Node;
+
+/**
+ * NavMeshFile class.
+ *
+ * Precompiled binary form of a NavMesh2D, so a process can start without
+ * parsing the OBJ text and rebuilding the shared edge nodes and links.
+ * The file is memory-mapped and its sections are read through buffer
+ * views (see NavMesh2D.loadCompiled and CompactGraph.load).
+ *
+ * Layout (big endian):
+ *
+ * header: magic "NAV1", version, vertexCount, faceCount, nodeCount,
+ *     slotCount (ints), scaleFactor, translateX, translateY (doubles)
+ * vertices: x, y per vertex (doubles)
+ * node positions: x, y per graph node, in id order (doubles)
+ * slot costs: link cost of each face slot (doubles)
+ * face offsets: faceCount + 1 ints, the slots of face f are
+ *     faceOffsets[f] .. faceOffsets[f + 1] - 1
+ * face vertices: vertex index of each slot (ints)
+ * face nodes: node id of the inside node of each face (ints)
+ * slot nodes: node id of the edge from the slot's vertex to the next
+ *     one (ints)
+ * node flags: 1 if the node is blocked, per node (bytes)
+ *
+ * A slot is one corner of a face and the edge that follows it, and each
+ * slot is one link (edge node - face node) of the graph. The links are in
+ * the order they were made, so the node edge lists come out the same as
+ * after loading the OBJ. Nodes of faces removed with NavMesh2D.removeFace
+ * are written too, so ids don't change, but no slot refers to them.
+ *
+ * Run main to compile an OBJ file:
+ *
+ * java path.navmesh.NavMeshFile mesh.obj mesh.nav [scale tx ty]
+ */
+public class NavMeshFile {
+
+    private static final int MAGIC = 0x4e415631; // "NAV1"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 6 * 4 + 3 * 8;
+
+    final int vertexCount;
+    final int faceCount;
+    final int nodeCount;
+    final int slotCount;
+    final double scaleFactor;
+    final double translateX;
+    final double translateY;
+
+    final DoubleBuffer vertices;
+    final DoubleBuffer nodePositions;
+    final DoubleBuffer slotCosts;
+    final IntBuffer faceOffsets;
+    final IntBuffer faceVertices;
+    final IntBuffer faceNodes;
+    final IntBuffer slotNodes;
+    final ByteBuffer nodeFlags;
+
+    private NavMeshFile(ByteBuffer buffer) throws IOException {
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("not a compiled navmesh");
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("unsupported navmesh version " + version);
+        }
+        vertexCount = buffer.getInt(8);
+        faceCount = buffer.getInt(12);
+        nodeCount = buffer.getInt(16);
+        slotCount = buffer.getInt(20);
+        scaleFactor = buffer.getDouble(24);
+        translateX = buffer.getDouble(32);
+        translateY = buffer.getDouble(40);
+        if (vertexCount < 0 || faceCount < 0 || nodeCount < 0
+                || slotCount < 0
+                || buffer.limit() != size(vertexCount, faceCount
+                    , nodeCount, slotCount)) {
+
+            throw new IOException("corrupted navmesh file");
+        }
+
+        int position = HEADER_SIZE;
+        vertices = slice(buffer, position, 2 * vertexCount * 8)
+            .asDoubleBuffer();
+        position += 2 * vertexCount * 8;
+        nodePositions = slice(buffer, position, 2 * nodeCount * 8)
+            .asDoubleBuffer();
+        position += 2 * nodeCount * 8;
+        slotCosts = slice(buffer, position, slotCount * 8).asDoubleBuffer();
+        position += slotCount * 8;
+        faceOffsets = slice(buffer, position, (faceCount + 1) * 4)
+            .asIntBuffer();
+        position += (faceCount + 1) * 4;
+        faceVertices = slice(buffer, position, slotCount * 4).asIntBuffer();
+        position += slotCount * 4;
+        faceNodes = slice(buffer, position, faceCount * 4).asIntBuffer();
+        position += faceCount * 4;
+        slotNodes = slice(buffer, position, slotCount * 4).asIntBuffer();
+        position += slotCount * 4;
+        nodeFlags = slice(buffer, position, nodeCount);
+        checkIndices();
+    }
+
+    // the header only gives the size of the sections, the indices in them 
+    // are checked here so that a corrupted file fails to load instead of 
+    // failing later in a search
+    private void checkIndices() throws IOException {
+        if (faceOffsets.get(0) != 0 
+                || faceOffsets.get(faceCount) != slotCount) {
+            
+            throw new IOException("corrupted face offsets");
+        }
+        for (int f = 0; f < faceCount; f++) {
+            int faceNode = faceNodes.get(f);
+            if (faceOffsets.get(f + 1) < faceOffsets.get(f)
+                    || faceNode < 0 || faceNode >= nodeCount) {
+                
+                throw new IOException("corrupted face " + f);
+            }
+        }
+        for (int s = 0; s < slotCount; s++) {
+            int vertex = faceVertices.get(s);
+            int slotNode = slotNodes.get(s);
+            double cost = slotCosts.get(s);
+            // !(cost >= 0) also rejects NaN
+            if (vertex < 0 || vertex >= vertexCount 
+                    || slotNode < 0 || slotNode >= nodeCount 
+                    || !(cost >= 0)) {
+                
+                throw new IOException("corrupted face slot " + s);
+            }
+        }
+    }
+
+    private static long size(long vertexCount, long faceCount
+            , long nodeCount, long slotCount) {
+
+        return HEADER_SIZE + 16 * vertexCount + 16 * nodeCount
+            + 8 * slotCount + 4 * (faceCount + 1) + 4 * slotCount
+            + 4 * faceCount + 4 * slotCount + nodeCount;
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int position
+            , int length) {
+
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(position);
+        duplicate.limit(position + length);
+        return duplicate.slice();
+    }
+
+    static NavMeshFile map(Path file) throws IOException {
+        try (FileChannel channel
+                = FileChannel.open(file, StandardOpenOption.READ)) {
+
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("navmesh file too large");
+            }
+            return new NavMeshFile(channel.map(
+                FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * Writes the current state of the mesh (including blocked nodes and
+     * edge costs) to file.
+     */
+    public static void write(NavMesh2D navMesh, Path file)
+            throws IOException {
+
+        List<Vec2> vertices = navMesh.getVertices();
+        List<Face> faces = navMesh.getFaces();
+        List<Node<Vec2>> nodes = navMesh.getGraph().getNodes();
+        int slotCount = 0;
+        for (Face face : faces) {
+            slotCount += face.getVertexIndices().length;
+        }
+        long size = size(vertices.size(), faces.size()
+            , nodes.size(), slotCount);
+
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("navmesh too large");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(vertices.size());
+        buffer.putInt(faces.size());
+        buffer.putInt(nodes.size());
+        buffer.putInt(slotCount);
+        buffer.putDouble(navMesh.getScaleFactor());
+        buffer.putDouble(navMesh.getTranslateX());
+        buffer.putDouble(navMesh.getTranslateY());
+        for (Vec2 v : vertices) {
+            buffer.putDouble(v.x);
+            buffer.putDouble(v.y);
+        }
+        for (Node<Vec2> node : nodes) {
+            buffer.putDouble(node.getObj().x);
+            buffer.putDouble(node.getObj().y);
+        }
+        for (Face face : faces) {
+            Node<Vec2> faceNode = face.getNodeInsideFace();
+            for (Node<Vec2> edgeNode : face.getEdgeNodes()) {
+                buffer.putDouble(getCost(faceNode, edgeNode));
+            }
+        }
+        int offset = 0;
+        buffer.putInt(offset);
+        for (Face face : faces) {
+            offset += face.getVertexIndices().length;
+            buffer.putInt(offset);
+        }
+        for (Face face : faces) {
+            for (int index : face.getVertexIndices()) {
+                buffer.putInt(index);
+            }
+        }
+        for (Face face : faces) {
+            buffer.putInt(face.getNodeInsideFace().getId());
+        }
+        for (Face face : faces) {
+            for (Node<Vec2> edgeNode : face.getEdgeNodes()) {
+                buffer.putInt(edgeNode.getId());
+            }
+        }
+        for (Node<Vec2> node : nodes) {
+            buffer.put((byte) (node.isBlocked() ? 1 : 0));
+        }
+        buffer.flip();
+
+        try (FileChannel channel = FileChannel.open(file
+                , StandardOpenOption.CREATE, StandardOpenOption.WRITE
+                , StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    private static double getCost(Node<Vec2> faceNode, Node<Vec2> edgeNode)
+            throws IOException {
+
+        for (Edge<Vec2> edge : faceNode.getEdges()) {
+            if (edge.getOppositeNode(faceNode) == edgeNode) {
+                return edge.getG();
+            }
+        }
+        throw new IOException("face node " + faceNode.getId()
+            + " is not linked to edge node " + edgeNode.getId());
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2 && args.length != 5) {
+            System.err.println("usage: NavMeshFile mesh.obj mesh.nav "
+                + "[scale translateX translateY]");
+            System.exit(1);
+        }
+        double scaleFactor = 1;
+        double translateX = 0;
+        double translateY = 0;
+        if (args.length == 5) {
+            scaleFactor = Double.parseDouble(args[2]);
+            translateX = Double.parseDouble(args[3]);
+            translateY = Double.parseDouble(args[4]);
+        }
+        NavMesh2D navMesh = new NavMesh2D();
+        navMesh.load(Paths.get(args[0])
+            , scaleFactor, translateX, translateY);
+
+        write(navMesh, Paths.get(args[1]));
+        System.out.println(args[1] + ": " + navMesh.getFaces().size()
+            + " faces, " + navMesh.getGraph().getNodes().size() + " nodes");
+    }
+
+}
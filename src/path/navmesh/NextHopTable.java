@@ -0,0 +1,387 @@
+package path.navmesh;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+import math.Vec2;
+import path.finder.a_star.Edge;
+import path.finder.a_star.GraphListener;
+import path.finder.a_star.Node;
+import path.finder.a_star.NodePath;
+import path.finder.a_star.OpenSet;
+import path.finder.a_star.SearchContext;
+import static path.finder.a_star.SearchContext.State.*;
+
+/**
+ * NextHopTable class.
+ *
+ * Precomputed face to face routes for small static meshes, for when
+ * memory is cheaper than searching. For every pair of faces the table
+ * keeps one byte: the slot (see Face.getEdgeNodes) of the edge the
+ * shortest path from the first face leaves through on its way to the
+ * second one. A query walks the table one face at a time, with O(1) work
+ * per step and no search. The paths are the same node paths
+ * NavMesh2D.findPath returns (face node, edge node, face node, ...).
+ *
+ * The table takes faceCount^2 bytes, so create refuses meshes with more
+ * faces than a given ceiling. It is built with one Dijkstra search per
+ * target face, run in parallel on a CompactGraph of the mesh.
+ *
+ * Like CompactGraph, the table is a snapshot: it doesn't follow blocked
+ * nodes or edge cost changes. It listens to the graph and only reports
+ * itself as stale (see NavMesh2D.setNextHopTable, which falls back to
+ * searching then). The table can be written to a file and read back for
+ * the same mesh.
+ */
+public class NextHopTable implements GraphListener<Vec2> {
+
+    public static final int DEFAULT_MAX_FACE_COUNT = 4096;
+
+    // largest face count whose table fits in an array
+    private static final int MAX_FACE_COUNT = 46340;
+
+    private static final int MAGIC = 0x4e485431; // "NHT1"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 * 4;
+    private static final byte NO_SLOT = -1;
+
+    private final NavMesh2D navMesh;
+    private final int faceCount;
+
+    // faces[f] slots are slotOffsets[f] .. slotOffsets[f + 1] - 1
+    private final int[] faceNodes;
+    private final int[] slotOffsets;
+    private final int[] slotNodes;
+    private final int[] slotFaces;
+    // face index of a face node id, -1 for edge nodes
+    private final int[] nodeFaceIndices;
+
+    // slot taken from face s towards face t at t * faceCount + s
+    private final byte[] table;
+
+    private volatile boolean stale;
+
+    private NextHopTable(NavMesh2D navMesh, int maxFaceCount) {
+        List<Face> faces = navMesh.getFaces();
+        List<Node<Vec2>> nodes = navMesh.getGraph().getNodes();
+        this.navMesh = navMesh;
+        this.faceCount = faces.size();
+        if (faceCount > maxFaceCount || faceCount > MAX_FACE_COUNT) {
+            throw new IllegalArgumentException("the mesh has " + faceCount
+                + " faces, more than the ceiling of "
+                + Math.min(maxFaceCount, MAX_FACE_COUNT));
+        }
+        faceNodes = new int[faceCount];
+        slotOffsets = new int[faceCount + 1];
+        nodeFaceIndices = new int[nodes.size()];
+        Arrays.fill(nodeFaceIndices, -1);
+        for (int f = 0; f < faceCount; f++) {
+            Face face = faces.get(f);
+            int slotCount = face.getEdgeNodes().size();
+            if (slotCount > 255) {
+                throw new IllegalArgumentException(
+                    "face " + f + " has more than 255 edges");
+            }
+            faceNodes[f] = face.getNodeInsideFace().getId();
+            nodeFaceIndices[faceNodes[f]] = f;
+            slotOffsets[f + 1] = slotOffsets[f] + slotCount;
+        }
+        slotNodes = new int[slotOffsets[faceCount]];
+        slotFaces = new int[slotOffsets[faceCount]];
+        for (int f = 0; f < faceCount; f++) {
+            Node<Vec2> faceNode = nodes.get(faceNodes[f]);
+            List<Node<Vec2>> edgeNodes = faces.get(f).getEdgeNodes();
+            for (int k = 0; k < edgeNodes.size(); k++) {
+                Node<Vec2> edgeNode = edgeNodes.get(k);
+                int slot = slotOffsets[f] + k;
+                slotNodes[slot] = edgeNode.getId();
+                slotFaces[slot] = -1;
+                for (Edge<Vec2> edge : edgeNode.getEdges()) {
+                    Node<Vec2> neighbor = edge.getOppositeNode(edgeNode);
+                    if (neighbor != faceNode
+                            && nodeFaceIndices[neighbor.getId()] >= 0) {
+
+                        slotFaces[slot] = nodeFaceIndices[neighbor.getId()];
+                    }
+                }
+            }
+        }
+        table = new byte[faceCount * faceCount];
+    }
+
+    /**
+     * Builds the table for the mesh, using all the cores of the common
+     * fork-join pool. Throws IllegalArgumentException if the mesh has more
+     * than maxFaceCount faces.
+     */
+    public static NextHopTable create(NavMesh2D navMesh, int maxFaceCount) {
+        NextHopTable nextHopTable = new NextHopTable(navMesh, maxFaceCount);
+        CompactGraph graph = CompactGraph.create(navMesh);
+        ThreadLocal<SearchContext> contexts
+            = ThreadLocal.withInitial(SearchContext::new);
+
+        IntStream.range(0, nextHopTable.faceCount).parallel().forEach(
+            t -> nextHopTable.fill(graph, t, contexts.get()));
+
+        navMesh.getGraph().addListener(nextHopTable);
+        return nextHopTable;
+    }
+
+    public static NextHopTable create(NavMesh2D navMesh) {
+        return create(navMesh, DEFAULT_MAX_FACE_COUNT);
+    }
+
+    // fills the row of target face t with a Dijkstra search from its node,
+    // following the edges backwards: a route may leave a blocked node but
+    // never enter one, as in Graph.findPath
+    private void fill(CompactGraph graph, int t, SearchContext context) {
+        context.prepare(graph.getNodeCount());
+        int targetNode = faceNodes[t];
+        context.setG(targetNode, 0);
+        OpenSet openNodes = context.getOpenSet();
+        openNodes.add(targetNode, 0);
+        while (!openNodes.isEmpty()) {
+            int current = openNodes.poll();
+            context.setState(current, CLOSED);
+            if (graph.isBlocked(current)) {
+                continue;
+            }
+            double currentG = context.getG(current);
+            for (int i = 0; i < graph.getDegree(current); i++) {
+                int neighbor = graph.getNeighbor(current, i);
+                double neighborG = currentG + graph.getCost(current, i);
+                if (neighborG < context.getG(neighbor)) {
+                    context.setBackPathNode(neighbor, current);
+                    context.setG(neighbor, neighborG);
+                    if (openNodes.contains(neighbor)) {
+                        openNodes.decreaseKey(neighbor, neighborG);
+                    }
+                    else {
+                        openNodes.add(neighbor, neighborG);
+                        context.setState(neighbor, OPEN);
+                    }
+                }
+            }
+        }
+
+        int row = t * faceCount;
+        for (int s = 0; s < faceCount; s++) {
+            table[row + s] = s == t ? NO_SLOT
+                : getSlot(s, context.getBackPathNode(faceNodes[s]));
+        }
+    }
+
+    private byte getSlot(int f, int edgeNode) {
+        for (int slot = slotOffsets[f]; slot < slotOffsets[f + 1]; slot++) {
+            if (slotNodes[slot] == edgeNode) {
+                return (byte) (slot - slotOffsets[f]);
+            }
+        }
+        return NO_SLOT;
+    }
+
+    public int getFaceCount() {
+        return faceCount;
+    }
+
+    /**
+     * Returns true if the graph changed after the table was built.
+     */
+    public boolean isStale() {
+        return stale;
+    }
+
+    /**
+     * Stops listening to the graph.
+     */
+    public void dispose() {
+        navMesh.getGraph().removeListener(this);
+    }
+
+    @Override
+    public void nodeBlockedChanged(Node<Vec2> node) {
+        stale = true;
+    }
+
+    @Override
+    public void edgeCostChanged(Edge<Vec2> edge, double oldG) {
+        stale = true;
+    }
+
+    @Override
+    public void edgeAdded(Edge<Vec2> edge) {
+        stale = true;
+    }
+
+    @Override
+    public void edgeRemoved(Edge<Vec2> edge) {
+        stale = true;
+    }
+
+    /**
+     * Returns true if the table has a route for the nodes, i.e. both are
+     * face nodes of the mesh the table was built for.
+     */
+    public boolean contains(Node<Vec2> start, Node<Vec2> target) {
+        return getFaceIndex(start) >= 0 && getFaceIndex(target) >= 0;
+    }
+
+    private int getFaceIndex(Node<Vec2> node) {
+        int id = node.getId();
+        return id >= 0 && id < nodeFaceIndices.length
+            ? nodeFaceIndices[id] : -1;
+    }
+
+    /**
+     * Fills path with the nodes from the face node start to the face node
+     * target, or clears it if target can't be reached. Both nodes must be
+     * face nodes (see contains).
+     */
+    public void findPath(Node<Vec2> start, Node<Vec2> target
+            , List<Node<Vec2>> path) {
+
+        List<Node<Vec2>> nodes = navMesh.getGraph().getNodes();
+        path.clear();
+        int s = getFaceIndex(start);
+        int t = getFaceIndex(target);
+        checkFaces(s, t);
+        if (s == t) {
+            path.add(start);
+            return;
+        }
+        int row = t * faceCount;
+        if (table[row + s] == NO_SLOT) {
+            return;
+        }
+        path.add(start);
+        while (s != t) {
+            int slot = slotOffsets[s] + (table[row + s] & 0xff);
+            s = slotFaces[slot];
+            path.add(nodes.get(slotNodes[slot]));
+            path.add(nodes.get(faceNodes[s]));
+        }
+    }
+
+    /**
+     * Same as findPath(start, target, path), filling a NodePath.
+     */
+    public void findPath(Node<Vec2> start, Node<Vec2> target, NodePath path) {
+        path.clear();
+        int s = getFaceIndex(start);
+        int t = getFaceIndex(target);
+        checkFaces(s, t);
+        int row = t * faceCount;
+        if (s != t && table[row + s] == NO_SLOT) {
+            return;
+        }
+        path.add(faceNodes[s]);
+        while (s != t) {
+            int slot = slotOffsets[s] + (table[row + s] & 0xff);
+            s = slotFaces[slot];
+            path.add(slotNodes[slot]);
+            path.add(faceNodes[s]);
+        }
+    }
+
+    private static void checkFaces(int s, int t) {
+        if (s < 0 || t < 0) {
+            throw new IllegalArgumentException("not a face node");
+        }
+    }
+
+    /**
+     * Writes the table to file. Only the routes are written, the face
+     * layout is taken from the mesh when the file is read.
+     */
+    public void write(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(faceCount);
+        buffer.putInt(slotOffsets[faceCount]);
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(file
+                , StandardOpenOption.CREATE, StandardOpenOption.WRITE
+                , StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            ByteBuffer[] buffers = { buffer, ByteBuffer.wrap(table) };
+            while (buffers[1].hasRemaining()) {
+                channel.write(buffers);
+            }
+        }
+    }
+
+    /**
+     * Reads a table written by write for the same mesh.
+     */
+    public static NextHopTable read(NavMesh2D navMesh, Path file)
+            throws IOException {
+
+        NextHopTable nextHopTable
+            = new NextHopTable(navMesh, Integer.MAX_VALUE);
+
+        int faceCount = nextHopTable.faceCount;
+        try (FileChannel channel
+                = FileChannel.open(file, StandardOpenOption.READ)) {
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(channel, header);
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException("not a next hop table");
+            }
+            int version = header.getInt(4);
+            if (version != VERSION) {
+                throw new IOException(
+                    "unsupported next hop table version " + version);
+            }
+            if (header.getInt(8) != faceCount
+                    || header.getInt(12) != nextHopTable.slotOffsets[faceCount]
+                    || channel.size() != HEADER_SIZE
+                        + (long) faceCount * faceCount) {
+
+                throw new IOException("next hop table of another mesh");
+            }
+            readFully(channel, ByteBuffer.wrap(nextHopTable.table));
+        }
+        if (!nextHopTable.isValid()) {
+            throw new IOException("corrupted next hop table");
+        }
+        navMesh.getGraph().addListener(nextHopTable);
+        return nextHopTable;
+    }
+
+    // true if every entry is a slot leading to another face
+    private boolean isValid() {
+        for (int t = 0; t < faceCount; t++) {
+            for (int s = 0; s < faceCount; s++) {
+                byte entry = table[t * faceCount + s];
+                if (entry == NO_SLOT) {
+                    continue;
+                }
+                int slot = slotOffsets[s] + (entry & 0xff);
+                if (s == t || slot >= slotOffsets[s + 1]
+                        || slotFaces[slot] < 0) {
+
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer)
+            throws IOException {
+
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("unexpected end of file");
+            }
+        }
+    }
+
+}
@@ -0,0 +1,304 @@
+package path.navmesh;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * ObjParser class.
+ *
+ * Reads the v and f lines of a Wavefront OBJ file directly from bytes,
+ * with a hand-rolled number tokenizer, and hands them to a Handler. Files
+ * are memory-mapped and streams are read through one reusable buffer, so
+ * nothing is allocated per line (numbers with more than 15 significant
+ * digits fall back to Double.parseDouble).
+ *
+ * Tokens may be separated by any amount of spaces or tabs, lines may end
+ * with \n or \r\n, face vertices may be written as i, i/t, i//n or i/t/n
+ * and negative (relative) indices are supported. All other statements
+ * (vt, vn, o, g, usemtl, comments, ...) are skipped.
+ */
+class ObjParser {
+
+    interface Handler {
+
+        void vertex(double x, double y, double z);
+
+        /**
+         * indices holds count 0-based vertex indices. The array is reused
+         * for the next face.
+         */
+        void face(int[] indices, int count);
+
+    }
+
+    private static final int STREAM_BUFFER_SIZE = 1 << 16;
+    private static final int MAP_WINDOW_SIZE = 1 << 30;
+
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11
+        , 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final Handler handler;
+
+    private int[] indices = new int[16];
+    private int vertexCount;
+    private int lineNumber;
+
+    // current line
+    private ByteBuffer buffer;
+    private int pos;
+    private int end;
+
+    ObjParser(Handler handler) {
+        this.handler = handler;
+    }
+
+    public void parse(Path file) throws IOException {
+        try (FileChannel channel
+                = FileChannel.open(file, StandardOpenOption.READ)) {
+
+            long size = channel.size();
+            long start = 0;
+            while (start < size) {
+                long length = Math.min(size - start, MAP_WINDOW_SIZE);
+                boolean last = start + length == size;
+                MappedByteBuffer map = channel.map(
+                    FileChannel.MapMode.READ_ONLY, start, length);
+
+                int parsed = parse(map, (int) length, last);
+                if (parsed == 0 && !last) {
+                    throw new IOException("line " + (lineNumber + 1)
+                        + " is too long");
+                }
+                start += parsed;
+            }
+        }
+    }
+
+    public void parse(InputStream in) throws IOException {
+        byte[] bytes = new byte[STREAM_BUFFER_SIZE];
+        ByteBuffer wrapped = ByteBuffer.wrap(bytes);
+        int length = 0;
+        boolean last = false;
+        while (!last) {
+            int read = in.read(bytes, length, bytes.length - length);
+            if (read < 0) {
+                last = true;
+            }
+            else {
+                length += read;
+            }
+            int parsed = parse(wrapped, length, last);
+            length -= parsed;
+            System.arraycopy(bytes, parsed, bytes, 0, length);
+            if (length == bytes.length) {
+                // a line longer than the buffer
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                wrapped = ByteBuffer.wrap(bytes);
+            }
+        }
+    }
+
+    /**
+     * Parses the complete lines in buffer[0, length), or all of them if
+     * last is true, and returns the number of bytes consumed.
+     */
+    public int parse(ByteBuffer buffer, int length, boolean last)
+            throws IOException {
+
+        this.buffer = buffer;
+        int lineStart = 0;
+        while (lineStart < length) {
+            int lineEnd = lineStart;
+            while (lineEnd < length && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            if (lineEnd == length && !last) {
+                break;
+            }
+            lineNumber++;
+            pos = lineStart;
+            end = lineEnd;
+            parseLine();
+            lineStart = lineEnd + 1;
+        }
+        this.buffer = null;
+        return Math.min(lineStart, length);
+    }
+
+    private void parseLine() throws IOException {
+        skipWhitespace();
+        if (pos + 1 >= end || !isWhitespace(buffer.get(pos + 1))) {
+            return;
+        }
+        byte keyword = buffer.get(pos);
+        pos++;
+        if (keyword == 'v') {
+            double x = parseDouble();
+            double y = parseDouble();
+            double z = parseDouble();
+            vertexCount++;
+            handler.vertex(x, y, z);
+        }
+        else if (keyword == 'f') {
+            parseFace();
+        }
+    }
+
+    private void parseFace() throws IOException {
+        int count = 0;
+        while (true) {
+            skipWhitespace();
+            if (pos >= end || buffer.get(pos) == '#') {
+                break;
+            }
+            int index = parseInt();
+            if (index > 0 && index <= vertexCount) {
+                index--;
+            }
+            else if (index < 0 && -index <= vertexCount) {
+                index += vertexCount;
+            }
+            else {
+                throw error("invalid vertex index " + index);
+            }
+            // skip texture and normal indices
+            while (pos < end && buffer.get(pos) == '/') {
+                pos++;
+                while (pos < end && isDigitOrSign(buffer.get(pos))) {
+                    pos++;
+                }
+            }
+            if (count == indices.length) {
+                indices = Arrays.copyOf(indices, count * 2);
+            }
+            indices[count++] = index;
+        }
+        if (count < 3) {
+            throw error("face with less than 3 vertices");
+        }
+        handler.face(indices, count);
+    }
+
+    private int parseInt() throws IOException {
+        boolean negative = false;
+        if (pos < end && (buffer.get(pos) == '-' || buffer.get(pos) == '+')) {
+            negative = buffer.get(pos) == '-';
+            pos++;
+        }
+        int start = pos;
+        int value = 0;
+        while (pos < end) {
+            int digit = buffer.get(pos) - '0';
+            if (digit < 0 || digit > 9) {
+                break;
+            }
+            if (value > (Integer.MAX_VALUE - digit) / 10) {
+                throw error("integer too large");
+            }
+            value = value * 10 + digit;
+            pos++;
+        }
+        if (pos == start) {
+            throw error("integer expected");
+        }
+        return negative ? -value : value;
+    }
+
+    private double parseDouble() throws IOException {
+        skipWhitespace();
+        int start = pos;
+        boolean negative = false;
+        if (pos < end && (buffer.get(pos) == '-' || buffer.get(pos) == '+')) {
+            negative = buffer.get(pos) == '-';
+            pos++;
+        }
+        long mantissa = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        boolean hasDigits = false;
+        boolean afterPoint = false;
+        while (pos < end) {
+            byte c = buffer.get(pos);
+            if (c == '.' && !afterPoint) {
+                afterPoint = true;
+            }
+            else if (c >= '0' && c <= '9') {
+                hasDigits = true;
+                if (mantissa != 0 || c != '0') {
+                    significantDigits++;
+                }
+                if (significantDigits <= 18) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (afterPoint) {
+                        exponent--;
+                    }
+                }
+                else if (!afterPoint) {
+                    exponent++;
+                }
+            }
+            else {
+                break;
+            }
+            pos++;
+        }
+        if (!hasDigits) {
+            throw error("number expected");
+        }
+        if (pos < end && (buffer.get(pos) == 'e' || buffer.get(pos) == 'E')) {
+            pos++;
+            exponent += Math.max(-1000, Math.min(1000, parseInt()));
+        }
+        if (pos < end && !isWhitespace(buffer.get(pos))) {
+            throw error("invalid number");
+        }
+
+        double value;
+        if (mantissa == 0) {
+            value = 0;
+        }
+        else if (significantDigits <= 15 && exponent >= -22 && exponent <= 22) {
+            // exact: both mantissa and the power of ten fit in a double
+            value = exponent >= 0
+                ? mantissa * POWERS_OF_TEN[exponent]
+                : mantissa / POWERS_OF_TEN[-exponent];
+        }
+        else {
+            byte[] bytes = new byte[pos - start];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = buffer.get(start + i);
+            }
+            return Double.parseDouble(
+                new String(bytes, StandardCharsets.US_ASCII));
+        }
+        return negative ? -value : value;
+    }
+
+    private void skipWhitespace() {
+        while (pos < end && isWhitespace(buffer.get(pos))) {
+            pos++;
+        }
+    }
+
+    private static boolean isWhitespace(byte c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\f' || c == 0x0b;
+    }
+
+    private static boolean isDigitOrSign(byte c) {
+        return (c >= '0' && c <= '9') || c == '-' || c == '+';
+    }
+
+    private IOException error(String message) {
+        return new IOException(message + " at line " + lineNumber);
+    }
+
+}
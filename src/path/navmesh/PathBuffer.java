@@ -0,0 +1,73 @@
+package path.navmesh;
+
+import java.util.Arrays;
+import java.util.List;
+import math.Vec2;
+import path.finder.a_star.Node;
+import path.finder.a_star.NodePath;
+
+/**
+ * PathBuffer class.
+ *
+ * NodePath that also holds the coordinates of its nodes, filled by
+ * NavMesh2D.findPath(start, target, PathBuffer) and
+ * CompactGraph.findPath(start, target, PathBuffer). The coordinates are
+ * stored as x, y pairs in one array, the same layout Funnel.stringPull
+ * writes, so a caller can draw or follow the path without touching the
+ * graph nodes. Graph.findPath only fills the ids. Like NodePath, the
+ * arrays only grow.
+ *
+ * Not thread-safe, use one instance per thread.
+ */
+public class PathBuffer extends NodePath {
+
+    private double[] coordinates = new double[32];
+
+    public double getX(int i) {
+        return coordinates[2 * i];
+    }
+
+    public double getY(int i) {
+        return coordinates[2 * i + 1];
+    }
+
+    /**
+     * Returns the backing array, whose first 2 * size() entries are the
+     * x, y pairs of the path.
+     */
+    public double[] getCoordinates() {
+        return coordinates;
+    }
+
+    private void ensureCoordinateCapacity() {
+        if (coordinates.length < 2 * size()) {
+            coordinates = Arrays.copyOf(coordinates
+                , Math.max(2 * size(), 2 * coordinates.length));
+        }
+    }
+
+    void updateCoordinates(List<Node<Vec2>> nodes) {
+        ensureCoordinateCapacity();
+        int[] ids = getIds();
+        for (int i = 0; i < size(); i++) {
+            Vec2 point = nodes.get(ids[i]).getObj();
+            coordinates[2 * i] = point.x;
+            coordinates[2 * i + 1] = point.y;
+        }
+    }
+
+    void setCoordinates(int i, double x, double y) {
+        coordinates[2 * i] = x;
+        coordinates[2 * i + 1] = y;
+    }
+
+    void updateCoordinates(double[] xs, double[] ys) {
+        ensureCoordinateCapacity();
+        int[] ids = getIds();
+        for (int i = 0; i < size(); i++) {
+            coordinates[2 * i] = xs[ids[i]];
+            coordinates[2 * i + 1] = ys[ids[i]];
+        }
+    }
+
+}
@@ -0,0 +1,292 @@
+package path.navmesh;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import math.Vec2;
+import path.finder.a_star.Edge;
+import path.finder.a_star.GraphListener;
+import path.finder.a_star.Node;
+
+/**
+ * PathCache class.
+ *
+ * Bounded LRU cache of paths keyed on the (start, target) node pair, see
+ * NavMesh2D.setPathCache. The cache listens to the graph and drops the
+ * cached paths that a change may have made wrong:
+ *
+ * - a node getting blocked drops the paths going through it,
+ * - an edge getting more expensive or removed drops the paths using it,
+ * - a node getting unblocked or an edge getting cheaper or added may open
+ *   a shorter route for any pair, so the whole cache is cleared.
+ *
+ * The pairs are spread over segments, each an LRU map with its own lock,
+ * so threads searching the same mesh (e.g. NavMesh2D.findPaths) only
+ * contend when they hit the same segment. The eviction order is kept per
+ * segment, so the cache as a whole is only approximately LRU. A graph
+ * change visits every segment.
+ */
+public class PathCache implements GraphListener<Vec2> {
+
+    private static final int MAX_SEGMENT_COUNT = 16;
+
+    private final int capacity;
+    private final Segment[] segments;
+    private final AtomicLong version = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public PathCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("invalid capacity " + capacity);
+        }
+        this.capacity = capacity;
+        int segmentCount = Math.min(MAX_SEGMENT_COUNT, capacity);
+        segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            // the first capacity % segmentCount segments hold one more
+            int segmentCapacity = capacity / segmentCount
+                + (i < capacity % segmentCount ? 1 : 0);
+
+            segments[i] = new Segment(segmentCapacity);
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.paths.size();
+            }
+        }
+        return size;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    /**
+     * Returns a number that changes whenever cached paths are dropped
+     * because of a graph change. A path computed while the version changed
+     * may already be stale and is not stored by put.
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Appends the cached path from start to target to path and returns
+     * true, or returns false if there is no cached path for this pair.
+     */
+    public boolean get(Node<Vec2> start, Node<Vec2> target
+            , List<Node<Vec2>> path) {
+
+        long key = key(start, target);
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            List<Node<Vec2>> cached = segment.paths.get(key);
+            if (cached == null) {
+                misses.increment();
+                return false;
+            }
+            path.addAll(cached);
+        }
+        hits.increment();
+        return true;
+    }
+
+    /**
+     * Stores a copy of the path from start to target, unless the graph
+     * changed since getVersion() returned version.
+     */
+    public void put(Node<Vec2> start, Node<Vec2> target
+            , List<Node<Vec2>> path, long version) {
+
+        long key = key(start, target);
+        List<Node<Vec2>> copy = new ArrayList<>(path);
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            // a change bumps the version before visiting the segments, so
+            // a path stored after this check is seen by the invalidation
+            if (version != this.version.get()) {
+                return;
+            }
+            List<Node<Vec2>> old = segment.paths.remove(key);
+            if (old != null) {
+                segment.unindex(key, old);
+            }
+            segment.paths.put(key, copy);
+            segment.index(key, copy);
+        }
+    }
+
+    public void clear() {
+        version.incrementAndGet();
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                invalidations.add(segment.paths.size());
+                segment.paths.clear();
+                segment.keysByNode.clear();
+            }
+        }
+    }
+
+    @Override
+    public void nodeBlockedChanged(Node<Vec2> node) {
+        if (!node.isBlocked()) {
+            clear();
+            return;
+        }
+        invalidate(node, null);
+    }
+
+    @Override
+    public void edgeCostChanged(Edge<Vec2> edge, double oldG) {
+        if (edge.getG() < oldG) {
+            clear();
+            return;
+        }
+        invalidate(edge.getA(), edge.getB());
+    }
+
+    @Override
+    public void edgeAdded(Edge<Vec2> edge) {
+        clear();
+    }
+
+    @Override
+    public void edgeRemoved(Edge<Vec2> edge) {
+        invalidate(edge.getA(), edge.getB());
+    }
+
+    // drops the paths going through a (and next to it through b if not null)
+    private void invalidate(Node<Vec2> a, Node<Vec2> b) {
+        version.incrementAndGet();
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                Set<Long> keys = segment.keysByNode.get(a.getId());
+                if (keys != null) {
+                    segment.invalidate(new ArrayList<>(keys), a, b);
+                }
+            }
+        }
+    }
+
+    private Segment segmentFor(long key) {
+        long hash = key * 0x9e3779b97f4a7c15L;
+        return segments[(int) ((hash >>> 32) % segments.length)];
+    }
+
+    private static long key(Node<Vec2> start, Node<Vec2> target) {
+        return ((long) start.getId() << 32) | (target.getId() & 0xffffffffL);
+    }
+
+    @Override
+    public String toString() {
+        return "PathCache{" + "capacity=" + capacity + ", size="
+            + size() + ", hits=" + hits + ", misses=" + misses
+            + ", evictions=" + evictions + ", invalidations="
+            + invalidations + '}';
+    }
+
+    // one LRU map and its node index, guarded by the segment's monitor
+    private class Segment {
+
+        private final LinkedHashMap<Long, List<Node<Vec2>>> paths;
+        private final Map<Integer, Set<Long>> keysByNode = new HashMap<>();
+
+        Segment(int capacity) {
+            paths = new LinkedHashMap<Long, List<Node<Vec2>>>(
+                    16, 0.75f, true) {
+
+                @Override
+                protected boolean removeEldestEntry(
+                        Map.Entry<Long, List<Node<Vec2>>> eldest) {
+
+                    if (size() > capacity) {
+                        unindex(eldest.getKey(), eldest.getValue());
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+
+            };
+        }
+
+        void invalidate(List<Long> keys, Node<Vec2> a, Node<Vec2> b) {
+            for (Long key : keys) {
+                List<Node<Vec2>> path = paths.get(key);
+                if (b == null || usesEdge(path, a, b)) {
+                    paths.remove(key);
+                    unindex(key, path);
+                    invalidations.increment();
+                }
+            }
+        }
+
+        void index(long key, List<Node<Vec2>> path) {
+            for (Node<Vec2> node : path) {
+                Set<Long> keys = keysByNode.get(node.getId());
+                if (keys == null) {
+                    keys = new HashSet<>();
+                    keysByNode.put(node.getId(), keys);
+                }
+                keys.add(key);
+            }
+        }
+
+        void unindex(long key, List<Node<Vec2>> path) {
+            for (Node<Vec2> node : path) {
+                Set<Long> keys = keysByNode.get(node.getId());
+                if (keys != null) {
+                    keys.remove(key);
+                    if (keys.isEmpty()) {
+                        keysByNode.remove(node.getId());
+                    }
+                }
+            }
+        }
+
+    }
+
+    private static boolean usesEdge(List<Node<Vec2>> path
+            , Node<Vec2> a, Node<Vec2> b) {
+
+        for (int i = 0; i < path.size() - 1; i++) {
+            Node<Vec2> n0 = path.get(i);
+            Node<Vec2> n1 = path.get(i + 1);
+            if ((n0 == a && n1 == b) || (n0 == b && n1 == a)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
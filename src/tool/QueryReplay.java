@@ -0,0 +1,450 @@
+package tool;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import math.Vec2;
+import path.finder.a_star.Graph;
+import path.finder.a_star.Node;
+import path.finder.a_star.SearchMode;
+import path.navmesh.Face;
+import path.navmesh.NavMesh2D;
+
+/**
+ * QueryReplay class.
+ *
+ * Headless driver that runs a trace of point to point queries against a
+ * NavMesh2D on a number of threads and prints the throughput, the latency
+ * percentiles and the number of expanded nodes. By default a query is a
+ * call to NavMesh2D.findPath(from, to, path), the API an agent uses; with
+ * --api faces it is what the demo does on a click instead: locate both
+ * points with findFace and search the graph between the two faces.
+ *
+ * usage: java tool.QueryReplay --mesh mesh [options]
+ *
+ * --mesh m           OBJ or compiled (.nav) file, or a classpath resource
+ *                    such as /res/path_test.obj
+ * --scale s --tx x --ty y
+ *                    transform applied to an OBJ mesh (default 1 0 0)
+ * --trace file       replay the queries of file, one "startX startY
+ *                    targetX targetY" per line (# starts a comment)
+ * --generate n       generate n random queries inside the mesh instead
+ * --seed s           seed of the generated queries (default 1)
+ * --record file      write the queries to file, in trace format
+ * --threads n        number of searching threads (default 1)
+ * --warmup n         unmeasured runs of the whole trace (default 1)
+ * --api a            points (default) or faces
+ * --mode m           unidirectional or bidirectional, faces only
+ */
+public class QueryReplay {
+
+    public enum Api { POINTS, FACES }
+
+    private final NavMesh2D navMesh;
+    private final double[] queries;
+    private final int queryCount;
+    private final Api api;
+    private final SearchMode mode;
+
+    // results of the measured run, indexed by query
+    private final long[] latencies;
+    private final int[] expandedCounts;
+    private final byte[] outcomes;
+
+    private static final byte FOUND = 0;
+    private static final byte NO_PATH = 1;
+    private static final byte OUTSIDE = 2;
+
+    public QueryReplay(NavMesh2D navMesh, double[] queries, Api api
+            , SearchMode mode) {
+
+        if (api == Api.POINTS && mode != SearchMode.UNIDIRECTIONAL) {
+            throw new IllegalArgumentException(
+                "the points api only searches unidirectionally");
+        }
+        this.navMesh = navMesh;
+        this.queries = queries;
+        this.queryCount = queries.length / 4;
+        this.api = api;
+        this.mode = mode;
+        this.latencies = new long[queryCount];
+        this.expandedCounts = new int[queryCount];
+        this.outcomes = new byte[queryCount];
+    }
+
+    /**
+     * Runs every query once on threadCount threads and returns the wall
+     * time in nanoseconds. Threads take the next query from a shared
+     * counter, so a slow query doesn't hold back the others.
+     */
+    public long run(int threadCount) throws Exception {
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            long startTime = System.nanoTime();
+            for (int t = 0; t < threadCount; t++) {
+                futures.add(executor.submit(() -> {
+                    List<Node<Vec2>> path = new ArrayList<>();
+                    Vec2 from = new Vec2(0, 0);
+                    Vec2 to = new Vec2(0, 0);
+                    int i;
+                    while ((i = next.getAndIncrement()) < queryCount) {
+                        if (api == Api.POINTS) {
+                            queryPoints(i, from, to, path);
+                        }
+                        else {
+                            queryFaces(i, path);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            return System.nanoTime() - startTime;
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    private void queryPoints(int i, Vec2 from, Vec2 to
+            , List<Node<Vec2>> path) {
+
+        from.set(queries[4 * i], queries[4 * i + 1]);
+        to.set(queries[4 * i + 2], queries[4 * i + 3]);
+        long startTime = System.nanoTime();
+        navMesh.findPath(from, to, path);
+        latencies[i] = System.nanoTime() - startTime;
+        // both points in one face give [face node, face node] unsearched
+        boolean searched = path.size() > 2 || path.isEmpty();
+        expandedCounts[i] = searched 
+            ? navMesh.getGraph().getExpandedCount() : 0;
+        
+        if (!path.isEmpty()) {
+            outcomes[i] = FOUND;
+        }
+        // outside of the measured time, findPath doesn't tell why it failed
+        else if (navMesh.findFace(from.x, from.y) == null 
+                || navMesh.findFace(to.x, to.y) == null) {
+            
+            outcomes[i] = OUTSIDE;
+            expandedCounts[i] = 0;
+        }
+        else {
+            outcomes[i] = NO_PATH;
+            // a blocked target face isn't searched either
+            if (navMesh.findFace(to.x, to.y).getNodeInsideFace()
+                    .isBlocked()) {
+                
+                expandedCounts[i] = 0;
+            }
+        }
+    }
+
+    private void queryFaces(int i, List<Node<Vec2>> path) {
+        long startTime = System.nanoTime();
+        Face start = navMesh.findFace(queries[4 * i], queries[4 * i + 1]);
+        Face target = navMesh.findFace(queries[4 * i + 2], queries[4 * i + 3]);
+        if (start == null || target == null) {
+            latencies[i] = System.nanoTime() - startTime;
+            expandedCounts[i] = 0;
+            outcomes[i] = OUTSIDE;
+            return;
+        }
+        Graph<Vec2> graph = navMesh.getGraph();
+        path.clear();
+        graph.findPath(start.getNodeInsideFace()
+            , target.getNodeInsideFace(), path, mode);
+
+        latencies[i] = System.nanoTime() - startTime;
+        expandedCounts[i] = graph.getExpandedCount();
+        outcomes[i] = path.isEmpty() ? NO_PATH : FOUND;
+    }
+
+    /**
+     * Returns the number of queries of the last run whose points are both
+     * inside the mesh but not connected.
+     */
+    public int getNoPathCount() {
+        return count(NO_PATH);
+    }
+
+    /**
+     * Returns the number of queries of the last run with a point outside 
+     * of the mesh.
+     */
+    public int getOutsideCount() {
+        return count(OUTSIDE);
+    }
+
+    public long getExpandedSum() {
+        long expandedSum = 0;
+        for (int i = 0; i < queryCount; i++) {
+            expandedSum += expandedCounts[i];
+        }
+        return expandedSum;
+    }
+
+    private int count(byte outcome) {
+        int count = 0;
+        for (int i = 0; i < queryCount; i++) {
+            count += outcomes[i] == outcome ? 1 : 0;
+        }
+        return count;
+    }
+
+    public void printReport(long wallTime, int threadCount) {
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        long latencySum = 0;
+        for (int i = 0; i < queryCount; i++) {
+            latencySum += latencies[i];
+        }
+        long expandedSum = getExpandedSum();
+        int n = Math.max(queryCount, 1);
+        System.out.printf(Locale.ROOT
+            , "queries: %d, threads: %d, api: %s, mode: %s%n"
+            , queryCount, threadCount, api.name().toLowerCase(Locale.ROOT)
+            , mode.name().toLowerCase(Locale.ROOT));
+
+        System.out.printf(Locale.ROOT
+            , "wall time: %.1f ms, throughput: %.1f queries/s%n"
+            , wallTime / 1e6, queryCount / (wallTime / 1e9));
+
+        System.out.printf(Locale.ROOT, "latency (us): mean %.1f, p50 %.1f"
+            + ", p99 %.1f, p99.9 %.1f, max %.1f%n"
+            , latencySum / 1e3 / n, percentile(sorted, 0.5) / 1e3
+            , percentile(sorted, 0.99) / 1e3
+            , percentile(sorted, 0.999) / 1e3
+            , percentile(sorted, 1) / 1e3);
+
+        System.out.printf(Locale.ROOT
+            , "expanded nodes: mean %.1f, total %d%n"
+            , (double) expandedSum / n, expandedSum);
+
+        System.out.printf(Locale.ROOT, "no path: %d, outside mesh: %d%n"
+            , getNoPathCount(), getOutsideCount());
+    }
+
+    // nearest rank percentile
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(p * sorted.length);
+        return sorted[Math.max(rank, 1) - 1];
+    }
+
+    /**
+     * Returns count random queries, 4 doubles each, with both points
+     * inside random faces of the mesh.
+     */
+    public static double[] generate(NavMesh2D navMesh, int count, long seed) {
+        List<Face> faces = navMesh.getFaces();
+        if (faces.isEmpty()) {
+            throw new IllegalArgumentException("the mesh has no faces");
+        }
+        Random random = new Random(seed);
+        double[] queries = new double[4 * count];
+        for (int i = 0; i < 2 * count; i++) {
+            // a random convex combination of the vertices of a face
+            List<Vec2> points = faces.get(random.nextInt(faces.size()))
+                .getPoints();
+
+            double x = 0;
+            double y = 0;
+            double weightSum = 0;
+            for (Vec2 point : points) {
+                double weight = random.nextDouble() + 1e-3;
+                x += weight * point.x;
+                y += weight * point.y;
+                weightSum += weight;
+            }
+            queries[2 * i] = x / weightSum;
+            queries[2 * i + 1] = y / weightSum;
+        }
+        return queries;
+    }
+
+    public static double[] readTrace(Path file) throws IOException {
+        double[] queries = new double[64];
+        int size = 0;
+        int lineNumber = 0;
+        try (BufferedReader reader
+                = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                int comment = line.indexOf('#');
+                if (comment >= 0) {
+                    line = line.substring(0, comment);
+                }
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                String[] tokens = line.split("[\\s,]+");
+                if (tokens.length != 4) {
+                    throw new IOException(file + ":" + lineNumber
+                        + ": expected startX startY targetX targetY");
+                }
+                if (size + 4 > queries.length) {
+                    queries = Arrays.copyOf(queries, queries.length * 2);
+                }
+                try {
+                    for (String token : tokens) {
+                        queries[size++] = Double.parseDouble(token);
+                    }
+                }
+                catch (NumberFormatException e) {
+                    throw new IOException(file + ":" + lineNumber
+                        + ": " + e.getMessage());
+                }
+            }
+        }
+        return Arrays.copyOf(queries, size);
+    }
+
+    public static void writeTrace(Path file, double[] queries)
+            throws IOException {
+
+        try (PrintWriter out = new PrintWriter(
+                Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+
+            out.println("# startX startY targetX targetY");
+            for (int i = 0; i < queries.length; i += 4) {
+                out.println(queries[i] + " " + queries[i + 1] + " "
+                    + queries[i + 2] + " " + queries[i + 3]);
+            }
+        }
+    }
+
+    public static NavMesh2D loadMesh(String mesh, double scaleFactor
+            , double translateX, double translateY) throws Exception {
+
+        NavMesh2D navMesh = new NavMesh2D();
+        Path file = Paths.get(mesh);
+        if (!Files.isRegularFile(file)) {
+            navMesh.load(mesh, scaleFactor, translateX, translateY);
+        }
+        else if (mesh.endsWith(".nav")) {
+            navMesh.loadCompiled(file);
+        }
+        else {
+            navMesh.load(file, scaleFactor, translateX, translateY);
+        }
+        return navMesh;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String mesh = null;
+        String trace = null;
+        String record = null;
+        int generate = 10000;
+        long seed = 1;
+        int threads = 1;
+        int warmup = 1;
+        double scaleFactor = 1;
+        double translateX = 0;
+        double translateY = 0;
+        Api api = Api.POINTS;
+        SearchMode mode = SearchMode.UNIDIRECTIONAL;
+        try {
+            for (int i = 0; i < args.length; i += 2) {
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException(
+                        "missing value for " + args[i]);
+                }
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "--mesh": mesh = value; break;
+                    case "--trace": trace = value; break;
+                    case "--record": record = value; break;
+                    case "--generate":
+                        generate = Integer.parseInt(value);
+                        break;
+                    case "--seed": seed = Long.parseLong(value); break;
+                    case "--threads": threads = Integer.parseInt(value); break;
+                    case "--warmup": warmup = Integer.parseInt(value); break;
+                    case "--scale":
+                        scaleFactor = Double.parseDouble(value);
+                        break;
+                    case "--tx": translateX = Double.parseDouble(value); break;
+                    case "--ty": translateY = Double.parseDouble(value); break;
+                    case "--api":
+                        api = Api.valueOf(value.toUpperCase(Locale.ROOT));
+                        break;
+                    case "--mode":
+                        mode = SearchMode.valueOf(
+                            value.toUpperCase(Locale.ROOT));
+                        break;
+                    default:
+                        throw new IllegalArgumentException(
+                            "unknown option " + args[i]);
+                }
+            }
+            if (mesh == null) {
+                throw new IllegalArgumentException("--mesh is required");
+            }
+            if (threads < 1 || warmup < 0 || generate < 0) {
+                throw new IllegalArgumentException("invalid option value");
+            }
+            if (api == Api.POINTS && mode != SearchMode.UNIDIRECTIONAL) {
+                throw new IllegalArgumentException(
+                    "--mode needs --api faces");
+            }
+        }
+        catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("usage: java tool.QueryReplay --mesh mesh"
+                + " [--trace file | --generate n [--seed s]]"
+                + " [--record file] [--threads n] [--warmup n]"
+                + " [--api points|faces]"
+                + " [--mode unidirectional|bidirectional]"
+                + " [--scale s --tx x --ty y]");
+            System.exit(2);
+            return;
+        }
+
+        long loadStart = System.nanoTime();
+        NavMesh2D navMesh = loadMesh(mesh, scaleFactor
+            , translateX, translateY);
+
+        System.out.printf(Locale.ROOT
+            , "mesh: %s, %d faces, %d nodes, loaded in %.1f ms%n", mesh
+            , navMesh.getFaces().size(), navMesh.getGraph().getNodes().size()
+            , (System.nanoTime() - loadStart) / 1e6);
+
+        double[] queries = trace != null
+            ? readTrace(Paths.get(trace))
+            : generate(navMesh, generate, seed);
+
+        if (record != null) {
+            writeTrace(Paths.get(record), queries);
+        }
+
+        QueryReplay replay = new QueryReplay(navMesh, queries, api, mode);
+        for (int i = 0; i < warmup; i++) {
+            replay.run(threads);
+        }
+        long wallTime = replay.run(threads);
+        replay.printReport(wallTime, threads);
+    }
+
+}
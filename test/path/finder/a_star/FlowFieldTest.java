@@ -0,0 +1,175 @@
+package path.finder.a_star;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * FlowFieldTest class.
+ */
+public class FlowFieldTest {
+
+    private static final double EPSILON = 1e-9;
+
+    // cost of the cheapest edge between a and b
+    private static double cost(Node<int[]> a, Node<int[]> b) {
+        double cost = Double.POSITIVE_INFINITY;
+        for (Edge<int[]> edge : a.getEdges()) {
+            if (edge.getOppositeNode(a) == b) {
+                cost = Math.min(cost, edge.getG());
+            }
+        }
+        return cost;
+    }
+
+    private static void assertValidPath(FlowField<int[]> field
+            , Node<int[]> start, List<Node<int[]>> path) {
+
+        field.getPath(start, path);
+        double distance = field.getDistance(start);
+        if (distance == Double.POSITIVE_INFINITY) {
+            assertTrue(path.isEmpty());
+            return;
+        }
+        assertSame(start, path.get(0));
+        assertSame(field.getTarget(), path.get(path.size() - 1));
+        double sum = 0;
+        for (int i = 1; i < path.size(); i++) {
+            assertFalse(path.get(i).isBlocked());
+            assertSame(path.get(i), field.getNextHop(path.get(i - 1)));
+            sum += cost(path.get(i - 1), path.get(i));
+        }
+        assertEquals(distance, sum, EPSILON * Math.max(1, distance));
+    }
+
+    private static void assertSameField(FlowField<int[]> field
+            , Graph<int[]> graph) {
+
+        Node<int[]> target = field.getTarget();
+        FlowField<int[]> fresh = new FlowField<>(graph, target);
+        fresh.dispose();
+        // the target is never blocked here, so for every open node the 
+        // distance to it is also the distance from it
+        SearchContext dijkstra = graph.findDistances(target, null);
+        for (Node<int[]> node : graph.getNodes()) {
+            double distance = field.getDistance(node);
+            assertEquals(fresh.getDistance(node), distance
+                , EPSILON * Math.max(1, distance));
+            
+            if (!node.isBlocked()) {
+                double g = dijkstra.getG(node.getId());
+                assertEquals(g == Double.MAX_VALUE 
+                    ? Double.POSITIVE_INFINITY : g, distance
+                    , EPSILON * Math.max(1, distance));
+            }
+        }
+    }
+
+    @Test
+    public void repairMatchesFreshField() {
+        Graph<int[]> graph = LandmarkHeuristicTest.createGrid(25);
+        List<Node<int[]>> nodes = graph.getNodes();
+        Node<int[]> target = nodes.get(312);
+        FlowField<int[]> field = new FlowField<>(graph, target);
+        Random random = new Random(21);
+        List<Node<int[]>> blocked = new ArrayList<>();
+        List<Edge<int[]>> added = new ArrayList<>();
+        List<Node<int[]>> path = new ArrayList<>();
+        long repairExpandedCount = 0;
+        for (int round = 0; round < 150; round++) {
+            int changeCount = 1 + random.nextInt(4);
+            for (int c = 0; c < changeCount; c++) {
+                Node<int[]> node = nodes.get(random.nextInt(nodes.size()));
+                switch (random.nextInt(5)) {
+                    case 0:
+                        if (node != target) {
+                            node.setBlocked(true);
+                            blocked.add(node);
+                        }
+                        break;
+                    case 1:
+                        if (!blocked.isEmpty()) {
+                            blocked.remove(random.nextInt(blocked.size()))
+                                .setBlocked(false);
+                        }
+                        break;
+                    case 2:
+                        Edge<int[]> edge = node.getEdges().get(
+                            random.nextInt(node.getEdges().size()));
+                        
+                        edge.setG(edge.getG() * (0.5 + random.nextDouble()));
+                        break;
+                    case 3:
+                        // a shortcut to any node
+                        Node<int[]> other 
+                            = nodes.get(random.nextInt(nodes.size()));
+                        
+                        if (other != node) {
+                            graph.link(node, other, 1 + random.nextInt(5));
+                            added.add(node.getEdges().get(
+                                node.getEdges().size() - 1));
+                        }
+                        break;
+                    default:
+                        if (!added.isEmpty()) {
+                            graph.unlink(added.remove(
+                                random.nextInt(added.size())));
+                        }
+                        break;
+                }
+            }
+            field.update();
+            repairExpandedCount += field.getExpandedCount();
+            for (int i = 0; i < 20; i++) {
+                assertValidPath(field
+                    , nodes.get(random.nextInt(nodes.size())), path);
+            }
+            if (round % 10 == 0) {
+                assertSameField(field, graph);
+            }
+        }
+        assertSameField(field, graph);
+        // the repairs stay local, far from recomputing the whole field
+        assertTrue(repairExpandedCount < 150 * nodes.size() / 4);
+        field.dispose();
+    }
+
+    @Test
+    public void wallingTheTargetInMakesItUnreachable() {
+        Graph<int[]> graph = LandmarkHeuristicTest.createGrid(10);
+        List<Node<int[]>> nodes = graph.getNodes();
+        Node<int[]> target = nodes.get(55);
+        FlowField<int[]> field = new FlowField<>(graph, target);
+        assertEquals(10, field.getDistance(nodes.get(0)), 0);
+        int[] ring = { 45, 54, 56, 65 };
+        for (int id : ring) {
+            nodes.get(id).setBlocked(true);
+        }
+        assertEquals(Double.POSITIVE_INFINITY
+            , field.getDistance(nodes.get(0)), 0);
+        
+        assertNull(field.getNextHop(nodes.get(0)));
+        // a blocked node may still be left towards the target
+        assertEquals(1, field.getDistance(nodes.get(45)), 0);
+        assertSame(target, field.getNextHop(nodes.get(45)));
+        
+        nodes.get(45).setBlocked(false);
+        assertEquals(10, field.getDistance(nodes.get(0)), 0);
+        assertSameField(field, graph);
+        field.dispose();
+    }
+
+    @Test
+    public void disposedFieldIgnoresChanges() {
+        Graph<int[]> graph = LandmarkHeuristicTest.createGrid(10);
+        List<Node<int[]>> nodes = graph.getNodes();
+        FlowField<int[]> field = new FlowField<>(graph, nodes.get(0));
+        field.dispose();
+        nodes.get(1).setBlocked(true);
+        nodes.get(10).setBlocked(true);
+        assertEquals(18, field.getDistance(nodes.get(99)), 0);
+    }
+
+}
@@ -0,0 +1,224 @@
+package path.finder.a_star;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * IncrementalPathFinderTest class.
+ */
+public class IncrementalPathFinderTest {
+
+    private static final int SIZE = 20;
+
+    /**
+     * Returns the sum of the edge costs along the path, or -1 if it's
+     * empty. Fails if two consecutive nodes are not linked or a node after
+     * the start is blocked.
+     */
+    static <T> double cost(List<Node<T>> path) {
+        if (path.isEmpty()) {
+            return -1;
+        }
+        double cost = 0;
+        for (int i = 1; i < path.size(); i++) {
+            Node<T> a = path.get(i - 1);
+            Node<T> b = path.get(i);
+            assertFalse(b.isBlocked());
+            Edge<T> link = null;
+            for (Edge<T> edge : a.getEdges()) {
+                if (edge.getOppositeNode(a) == b) {
+                    link = edge;
+                }
+            }
+            assertNotNull(link);
+            cost += link.getG();
+        }
+        return cost;
+    }
+
+    /**
+     * Fails if the finder's path doesn't have the cost of a fresh search.
+     */
+    static <T> void assertOptimal(IncrementalPathFinder<T> finder
+            , Node<T> start, Node<T> goal) {
+
+        Graph<T> graph = finder.getGraph();
+        List<Node<T>> expected = new ArrayList<>();
+        List<Node<T>> path = new ArrayList<>();
+        graph.findPath(start, goal, expected);
+        finder.findPath(start, goal, path);
+        assertEquals(cost(expected), cost(path), 1e-9);
+        if (!path.isEmpty()) {
+            assertSame(start, path.get(0));
+            assertSame(goal, path.get(path.size() - 1));
+        }
+    }
+
+    // a random edge of the grid
+    private static Edge<int[]> randomEdge(Graph<int[]> graph, Random random) {
+        List<Node<int[]>> nodes = graph.getNodes();
+        Node<int[]> node = nodes.get(random.nextInt(nodes.size()));
+        return node.getEdges().get(random.nextInt(node.getEdges().size()));
+    }
+
+    @Test
+    public void repairsBlockedAndUnblockedNodes() {
+        Graph<int[]> graph = LandmarkHeuristicTest.createGrid(SIZE);
+        List<Node<int[]>> nodes = graph.getNodes();
+        Node<int[]> start = nodes.get(0);
+        Node<int[]> goal = nodes.get(nodes.size() - 1);
+        IncrementalPathFinder<int[]> finder
+            = new IncrementalPathFinder<>(graph);
+        
+        assertOptimal(finder, start, goal);
+        Random random = new Random(15);
+        for (int round = 0; round < 200; round++) {
+            for (int i = 0; i < 5; i++) {
+                Node<int[]> node = nodes.get(random.nextInt(nodes.size()));
+                if (node != start && node != goal) {
+                    node.setBlocked(!node.isBlocked());
+                }
+            }
+            assertOptimal(finder, start, goal);
+        }
+        finder.dispose();
+    }
+
+    @Test
+    public void repairsRaisedAndLoweredEdgeCosts() {
+        Graph<int[]> graph = LandmarkHeuristicTest.createGrid(SIZE);
+        List<Node<int[]>> nodes = graph.getNodes();
+        Node<int[]> start = nodes.get(SIZE - 1);
+        Node<int[]> goal = nodes.get(nodes.size() - SIZE);
+        IncrementalPathFinder<int[]> finder
+            = new IncrementalPathFinder<>(graph);
+        
+        assertOptimal(finder, start, goal);
+        Random random = new Random(15);
+        for (int round = 0; round < 200; round++) {
+            // costs stay >= 1 so the manhattan heuristic stays consistent
+            for (int i = 0; i < 5; i++) {
+                randomEdge(graph, random).setG(1 + 4 * random.nextDouble());
+            }
+            for (int i = 0; i < 5; i++) {
+                randomEdge(graph, random).setG(1);
+            }
+            assertOptimal(finder, start, goal);
+        }
+        finder.dispose();
+    }
+
+    @Test
+    public void followsStartMovingAlongThePath() {
+        Graph<int[]> graph = LandmarkHeuristicTest.createGrid(SIZE);
+        List<Node<int[]>> nodes = graph.getNodes();
+        Node<int[]> start = nodes.get(0);
+        Node<int[]> goal = nodes.get(nodes.size() - 1);
+        IncrementalPathFinder<int[]> finder
+            = new IncrementalPathFinder<>(graph);
+        
+        List<Node<int[]>> path = new ArrayList<>();
+        finder.findPath(start, goal, path);
+        Random random = new Random(15);
+        while (start != goal) {
+            // the world changes while the agent walks
+            for (int i = 0; i < 3; i++) {
+                Node<int[]> node = nodes.get(random.nextInt(nodes.size()));
+                if (node != goal && !path.contains(node)) {
+                    node.setBlocked(!node.isBlocked());
+                }
+                randomEdge(graph, random).setG(1 + random.nextDouble());
+            }
+            assertOptimal(finder, start, goal);
+            finder.findPath(start, goal, path);
+            start = path.get(1);
+        }
+        finder.findPath(goal, goal, path);
+        assertEquals(1, path.size());
+        finder.dispose();
+    }
+
+    @Test
+    public void clearsPathToUnreachableGoal() {
+        Graph<int[]> graph = LandmarkHeuristicTest.createGrid(SIZE);
+        List<Node<int[]>> nodes = graph.getNodes();
+        Node<int[]> start = nodes.get(0);
+        Node<int[]> goal = nodes.get(nodes.size() - 1);
+        IncrementalPathFinder<int[]> finder
+            = new IncrementalPathFinder<>(graph);
+        
+        List<Node<int[]>> path = new ArrayList<>();
+        finder.findPath(start, goal, path);
+        assertFalse(path.isEmpty());
+
+        // walls the goal in, then opens the wall again
+        Node<int[]> left = nodes.get(nodes.size() - 2);
+        Node<int[]> below = nodes.get(nodes.size() - 1 - SIZE);
+        left.setBlocked(true);
+        below.setBlocked(true);
+        finder.findPath(start, goal, path);
+        assertTrue(path.isEmpty());
+        below.setBlocked(false);
+        assertOptimal(finder, start, goal);
+
+        // blocked goal
+        goal.setBlocked(true);
+        finder.findPath(start, goal, path);
+        assertTrue(path.isEmpty());
+        goal.setBlocked(false);
+        assertOptimal(finder, start, goal);
+        finder.dispose();
+    }
+
+    @Test
+    public void startsOverForNewGoalsAndNodes() {
+        Graph<int[]> graph = LandmarkHeuristicTest.createGrid(SIZE);
+        List<Node<int[]>> nodes = graph.getNodes();
+        IncrementalPathFinder<int[]> finder
+            = new IncrementalPathFinder<>(graph);
+        
+        Random random = new Random(15);
+        for (int i = 0; i < 20; i++) {
+            assertOptimal(finder, nodes.get(random.nextInt(nodes.size()))
+                , nodes.get(random.nextInt(nodes.size())));
+        }
+
+        // a new node linked to the corner, the goal keeps its tree
+        Node<int[]> goal = finder.getGoal();
+        Node<int[]> node = new Node<>(new int[] { -1, 0 });
+        graph.addNode(node);
+        graph.link(node, nodes.get(0), 1);
+        assertOptimal(finder, node, goal);
+        assertSame(goal, finder.getGoal());
+        finder.dispose();
+    }
+
+    @Test
+    public void disposedFinderStopsListening() {
+        Graph<int[]> graph = LandmarkHeuristicTest.createGrid(SIZE);
+        List<Node<int[]>> nodes = graph.getNodes();
+        IncrementalPathFinder<int[]> finder
+            = new IncrementalPathFinder<>(graph);
+        
+        IncrementalPathFinder<int[]> other
+            = new IncrementalPathFinder<>(graph);
+        
+        List<Node<int[]>> path = new ArrayList<>();
+        finder.findPath(nodes.get(0), nodes.get(5), path);
+        finder.dispose();
+        nodes.get(3).setBlocked(true);
+        assertOptimal(other, nodes.get(0), nodes.get(5));
+        try {
+            finder.findPath(nodes.get(0), nodes.get(5), path);
+            fail();
+        }
+        catch (IllegalStateException e) {
+            // expected
+        }
+        other.dispose();
+    }
+
+}
@@ -0,0 +1,156 @@
+package path.finder.a_star;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * IndexedDaryHeapTest class.
+ */
+public class IndexedDaryHeapTest {
+
+    private static final int[] ARITIES = { 2, 4, 8 };
+
+    // polls every id, fails if the keys don't come out in order
+    private static double[] pollAll(IndexedDaryHeap heap) {
+        double[] keys = new double[heap.size()];
+        for (int i = 0; i < keys.length; i++) {
+            int id = heap.peek();
+            assertEquals(id, heap.poll());
+            assertFalse(heap.contains(id));
+            keys[i] = heap.getKey(id);
+            if (i > 0) {
+                assertTrue(keys[i - 1] <= keys[i]);
+            }
+        }
+        assertTrue(heap.isEmpty());
+        return keys;
+    }
+
+    @Test
+    public void pollsInKeyOrder() {
+        Random random = new Random(5);
+        for (int arity : ARITIES) {
+            IndexedDaryHeap heap = new IndexedDaryHeap(arity);
+            assertEquals(arity, heap.getArity());
+            heap.ensureCapacity(1000);
+            double[] expected = new double[1000];
+            for (int id = 0; id < expected.length; id++) {
+                // few distinct keys, so there are ties
+                expected[id] = random.nextInt(100);
+                heap.add(id, expected[id]);
+                assertTrue(heap.contains(id));
+            }
+            assertEquals(1000, heap.size());
+            Arrays.sort(expected);
+            assertArrayEquals(expected, pollAll(heap), 0);
+        }
+    }
+
+    @Test
+    public void decreasesKeyOfInnerElement() {
+        for (int arity : ARITIES) {
+            IndexedDaryHeap heap = new IndexedDaryHeap(arity);
+            heap.ensureCapacity(100);
+            for (int id = 0; id < 100; id++) {
+                heap.add(id, id);
+            }
+            // a leaf and an id in the middle of the heap move to the top
+            heap.decreaseKey(99, -1);
+            assertEquals(99, heap.peek());
+            heap.decreaseKey(40, -2);
+            assertEquals(40, heap.peek());
+            heap.decreaseKey(70, 10.5);
+            assertEquals(40, heap.poll());
+            assertEquals(99, heap.poll());
+            double[] keys = pollAll(heap);
+            assertEquals(98, keys.length);
+            assertEquals(10.5, keys[11], 0);
+        }
+    }
+
+    @Test
+    public void canBeReusedAfterClear() {
+        for (int arity : ARITIES) {
+            IndexedDaryHeap heap = new IndexedDaryHeap(arity);
+            heap.ensureCapacity(50);
+            for (int id = 0; id < 50; id++) {
+                heap.add(id, 50 - id);
+            }
+            heap.poll();
+            heap.clear();
+            assertTrue(heap.isEmpty());
+            for (int id = 0; id < 50; id++) {
+                assertFalse(heap.contains(id));
+            }
+            // the same ids can be added again
+            heap.add(7, 3);
+            heap.add(0, 1);
+            heap.add(49, 2);
+            assertEquals(3, heap.size());
+            assertEquals(0, heap.poll());
+            assertEquals(49, heap.poll());
+            assertEquals(7, heap.poll());
+        }
+    }
+
+    @Test
+    public void growsKeepingQueuedIds() {
+        IndexedDaryHeap heap = new IndexedDaryHeap();
+        assertEquals(IndexedDaryHeap.DEFAULT_ARITY, heap.getArity());
+        heap.ensureCapacity(10);
+        for (int id = 0; id < 10; id++) {
+            heap.add(id, 10 - id);
+        }
+        heap.ensureCapacity(1000);
+        // new ids are not in the heap, old ones are still ordered
+        assertFalse(heap.contains(999));
+        heap.add(999, 0);
+        heap.add(500, 5.5);
+        assertEquals(12, heap.size());
+        assertEquals(999, heap.poll());
+        assertEquals(9, heap.poll());
+        // smaller capacities keep the arrays
+        heap.ensureCapacity(5);
+        assertTrue(heap.contains(500));
+        assertEquals(10, pollAll(heap).length);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsIdAddedTwice() {
+        IndexedDaryHeap heap = new IndexedDaryHeap();
+        heap.ensureCapacity(10);
+        heap.add(3, 1);
+        heap.add(3, 2);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsDecreaseKeyOfMissingId() {
+        IndexedDaryHeap heap = new IndexedDaryHeap();
+        heap.ensureCapacity(10);
+        heap.add(3, 1);
+        heap.poll();
+        heap.decreaseKey(3, 0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsPollOfEmptyHeap() {
+        IndexedDaryHeap heap = new IndexedDaryHeap();
+        heap.ensureCapacity(10);
+        heap.add(3, 1);
+        heap.poll();
+        heap.poll();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsPeekOfEmptyHeap() {
+        new IndexedDaryHeap().peek();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsArityBelowTwo() {
+        new IndexedDaryHeap(1);
+    }
+
+}
@@ -0,0 +1,164 @@
+package path.finder.a_star;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * LandmarkHeuristicTest class.
+ */
+public class LandmarkHeuristicTest {
+
+    /**
+     * Returns a size x size 4-connected grid of unit cost, whose node ids 
+     * are y * size + x and whose objects are {x, y}.
+     */
+    static Graph<int[]> createGrid(int size) {
+        Graph<int[]> graph = new Graph<>((start, target, current) -> {
+            // manhattan distance
+            return Math.abs(target.getObj()[0] - current.getObj()[0])
+                + Math.abs(target.getObj()[1] - current.getObj()[1]);
+        });
+        List<Node<int[]>> nodes = graph.getNodes();
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                graph.addNode(new Node<>(new int[] { x, y }));
+                if (x > 0) {
+                    graph.link(nodes.get(nodes.size() - 2)
+                        , nodes.get(nodes.size() - 1), 1);
+                }
+                if (y > 0) {
+                    graph.link(nodes.get(nodes.size() - 1 - size)
+                        , nodes.get(nodes.size() - 1), 1);
+                }
+            }
+        }
+        return graph;
+    }
+
+    private static double cost(List<Node<int[]>> path) {
+        return path.isEmpty() ? -1 : path.size() - 1;
+    }
+
+    private static byte[] save(LandmarkHeuristic<int[]> heuristic)
+            throws IOException {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        heuristic.save(out);
+        return out.toByteArray();
+    }
+
+    private static LandmarkHeuristic<int[]> load(byte[] data
+            , Graph<int[]> graph) throws IOException {
+
+        return LandmarkHeuristic.load(new ByteArrayInputStream(data)
+            , graph, graph.getHeuristic());
+    }
+
+    @Test
+    public void findsShortestPathsAroundWalls() {
+        Graph<int[]> graph = createGrid(20);
+        List<Node<int[]>> nodes = graph.getNodes();
+        // a wall across the grid with a gap at the bottom
+        for (int y = 0; y < 18; y++) {
+            nodes.get(y * 20 + 10).setBlocked(true);
+        }
+        Heuristic<int[]> base = graph.getHeuristic();
+        LandmarkHeuristic<int[]> alt = LandmarkHeuristic.create(graph, 4
+            , base);
+        
+        Random random = new Random(5);
+        List<Node<int[]>> expected = new ArrayList<>();
+        List<Node<int[]>> path = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Node<int[]> start = nodes.get(random.nextInt(nodes.size()));
+            Node<int[]> target = nodes.get(random.nextInt(nodes.size()));
+            graph.setHeuristic(base);
+            expected.clear();
+            graph.findPath(start, target, expected);
+            graph.setHeuristic(alt);
+            for (SearchMode mode : SearchMode.values()) {
+                path.clear();
+                graph.findPath(start, target, path, mode);
+                assertEquals(cost(expected), cost(path), 0);
+            }
+        }
+    }
+
+    @Test
+    public void staysFiniteBetweenDisconnectedParts() {
+        Graph<int[]> graph = createGrid(10);
+        List<Node<int[]>> nodes = graph.getNodes();
+        for (int y = 0; y < 10; y++) {
+            nodes.get(y * 10 + 5).setBlocked(true);
+        }
+        LandmarkHeuristic<int[]> alt = LandmarkHeuristic.create(graph, 3
+            , graph.getHeuristic());
+        
+        graph.setHeuristic(alt);
+        Node<int[]> left = nodes.get(0);
+        Node<int[]> right = nodes.get(9);
+        assertEquals(9, alt.calculate(left, right, left), 0);
+        for (SearchMode mode : SearchMode.values()) {
+            List<Node<int[]>> path = new ArrayList<>();
+            graph.findPath(left, right, path, mode);
+            assertTrue(path.isEmpty());
+        }
+    }
+
+    @Test
+    public void loadsSavedTables() throws IOException {
+        Graph<int[]> graph = createGrid(8);
+        LandmarkHeuristic<int[]> alt = LandmarkHeuristic.create(graph, 3
+            , graph.getHeuristic());
+        
+        LandmarkHeuristic<int[]> loaded = load(save(alt), graph);
+        assertEquals(alt.getLandmarkCount(), loaded.getLandmarkCount());
+        List<Node<int[]>> nodes = graph.getNodes();
+        for (Node<int[]> a : nodes) {
+            assertEquals(alt.calculate(a, nodes.get(7), a)
+                , loaded.calculate(a, nodes.get(7), a), 0);
+        }
+    }
+
+    @Test
+    public void rejectsCorruptedTables() throws IOException {
+        Graph<int[]> graph = createGrid(8);
+        byte[] data = save(LandmarkHeuristic.create(graph, 3
+            , graph.getHeuristic()));
+
+        // header: magic, version, node count, landmark count, landmarks
+        byte[][] corrupted = new byte[5][];
+        corrupted[0] = Arrays.copyOf(data, data.length - 1);
+        corrupted[1] = data.clone();
+        ByteBuffer.wrap(corrupted[1]).putInt(12, 65);
+        corrupted[2] = data.clone();
+        ByteBuffer.wrap(corrupted[2]).putInt(16, 64);
+        corrupted[3] = data.clone();
+        ByteBuffer.wrap(corrupted[3]).putInt(16, -1);
+        corrupted[4] = data.clone();
+        ByteBuffer.wrap(corrupted[4]).putFloat(28, Float.NaN);
+        for (byte[] bytes : corrupted) {
+            try {
+                load(bytes, graph);
+                fail("loaded a corrupted table");
+            }
+            catch (IOException expected) {
+            }
+        }
+        try {
+            load(data, createGrid(9));
+            fail("loaded a table of another graph");
+        }
+        catch (IOException expected) {
+        }
+    }
+
+}
@@ -0,0 +1,79 @@
+package path.finder.a_star;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * NodePathTest class.
+ */
+public class NodePathTest {
+
+    @Test
+    public void matchesListPathsInBothModes() {
+        Graph<int[]> graph = LandmarkHeuristicTest.createGrid(30);
+        List<Node<int[]>> nodes = graph.getNodes();
+        Random random = new Random(4);
+        for (int i = 0; i < 200; i++) {
+            nodes.get(random.nextInt(nodes.size())).setBlocked(true);
+        }
+        List<Node<int[]>> expected = new ArrayList<>();
+        NodePath path = new NodePath();
+        for (SearchMode mode : SearchMode.values()) {
+            for (int i = 0; i < 300; i++) {
+                Node<int[]> start = nodes.get(random.nextInt(nodes.size()));
+                Node<int[]> target 
+                    = nodes.get(random.nextInt(nodes.size()));
+                
+                expected.clear();
+                graph.findPath(start, target, expected, mode);
+                // the same instance is reused, so stale entries would show
+                graph.findPath(start, target, path, mode);
+                assertEquals(expected.size(), path.size());
+                for (int j = 0; j < path.size(); j++) {
+                    assertEquals(expected.get(j).getId(), path.get(j));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void isClearedWhenThereIsNoPath() {
+        Graph<int[]> graph = LandmarkHeuristicTest.createGrid(5);
+        List<Node<int[]>> nodes = graph.getNodes();
+        NodePath path = new NodePath();
+        graph.findPath(nodes.get(0), nodes.get(24), path);
+        assertEquals(9, path.size());
+        nodes.get(24).setBlocked(true);
+        graph.findPath(nodes.get(0), nodes.get(24), path);
+        assertTrue(path.isEmpty());
+    }
+
+    @Test
+    public void growsPastInitialCapacity() {
+        NodePath path = new NodePath();
+        for (int i = 0; i < 100; i++) {
+            path.add(i);
+        }
+        assertEquals(100, path.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, path.get(i));
+        }
+        path.setSize(1000);
+        path.set(999, 7);
+        assertEquals(7, path.get(999));
+        assertEquals(99, path.get(99));
+        path.clear();
+        assertTrue(path.isEmpty());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rejectsIndexPastSize() {
+        NodePath path = new NodePath();
+        path.add(1);
+        path.get(1);
+    }
+
+}
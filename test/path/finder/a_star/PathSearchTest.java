@@ -0,0 +1,195 @@
+package path.finder.a_star;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * PathSearchTest class.
+ */
+public class PathSearchTest {
+
+    // a 30 x 30 grid with random blocked nodes, corners kept open
+    private static Graph<int[]> createGrid() {
+        Graph<int[]> graph = LandmarkHeuristicTest.createGrid(30);
+        List<Node<int[]>> nodes = graph.getNodes();
+        Random random = new Random(11);
+        for (int i = 0; i < 150; i++) {
+            nodes.get(random.nextInt(nodes.size())).setBlocked(true);
+        }
+        nodes.get(0).setBlocked(false);
+        nodes.get(899).setBlocked(false);
+        return graph;
+    }
+
+    @Test
+    public void steppedSearchMatchesFindPath() {
+        Graph<int[]> graph = createGrid();
+        List<Node<int[]>> nodes = graph.getNodes();
+        Random random = new Random(12);
+        List<Node<int[]>> expected = new ArrayList<>();
+        List<Node<int[]>> path = new ArrayList<>();
+        NodePath ids = new NodePath();
+        for (int i = 0; i < 100; i++) {
+            Node<int[]> start = nodes.get(random.nextInt(nodes.size()));
+            Node<int[]> target = nodes.get(random.nextInt(nodes.size()));
+            expected.clear();
+            graph.findPath(start, target, expected);
+            int expandedCount = graph.getExpandedCount();
+
+            PathSearch<int[]> search = graph.startSearch(start, target);
+            int steps = 0;
+            while (!search.step(7)) {
+                steps++;
+            }
+            assertTrue(steps >= (expandedCount - 1) / 7);
+            assertEquals(!expected.isEmpty(), search.isFound());
+            assertEquals(expandedCount, search.getExpandedCount());
+            path.clear();
+            search.getPath(path);
+            assertEquals(expected, path);
+            search.getPath(ids);
+            assertEquals(expected.size(), ids.size());
+        }
+    }
+
+    @Test
+    public void schedulerSharesBudgetFairly() {
+        Graph<int[]> graph = LandmarkHeuristicTest.createGrid(30);
+        List<Node<int[]>> nodes = graph.getNodes();
+        SearchScheduler<int[]> scheduler = new SearchScheduler<>(10);
+        List<PathSearch<int[]>> searches = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            // corner to corner, far more than one frame of expansions
+            PathSearch<int[]> search 
+                = graph.startSearch(nodes.get(i), nodes.get(899 - i));
+            
+            searches.add(search);
+            scheduler.add(search);
+        }
+        assertEquals(50, scheduler.run(50));
+        for (PathSearch<int[]> search : searches) {
+            assertEquals(10, search.getExpandedCount());
+        }
+        assertEquals(25, scheduler.run(25));
+        // the order carried over: two full slices and what was left
+        int[] expandedCounts = { 20, 20, 15, 10, 10 };
+        for (int i = 0; i < 5; i++) {
+            assertEquals(expandedCounts[i]
+                , searches.get(i).getExpandedCount());
+        }
+
+        int frames = 0;
+        while (!scheduler.isEmpty()) {
+            assertTrue(scheduler.run(100) <= 100);
+            frames++;
+        }
+        assertTrue(frames > 1);
+        List<Node<int[]>> expected = new ArrayList<>();
+        List<Node<int[]>> path = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            PathSearch<int[]> search = searches.get(i);
+            assertTrue(search.isDone());
+            expected.clear();
+            graph.findPath(nodes.get(i), nodes.get(899 - i), expected);
+            search.getPath(path);
+            assertEquals(expected, path);
+        }
+    }
+
+    @Test
+    public void runUntilFinishesEverySearch() {
+        Graph<int[]> graph = createGrid();
+        List<Node<int[]>> nodes = graph.getNodes();
+        SearchScheduler<int[]> scheduler = new SearchScheduler<>();
+        List<PathSearch<int[]>> searches = new ArrayList<>();
+        Random random = new Random(13);
+        for (int i = 0; i < 40; i++) {
+            PathSearch<int[]> search = graph.startSearch(
+                nodes.get(random.nextInt(nodes.size()))
+                , nodes.get(random.nextInt(nodes.size())));
+            
+            searches.add(search);
+            scheduler.add(search);
+        }
+        while (!scheduler.isEmpty()) {
+            scheduler.runUntil(System.nanoTime() + 100000);
+        }
+        List<Node<int[]>> expected = new ArrayList<>();
+        List<Node<int[]>> path = new ArrayList<>();
+        for (PathSearch<int[]> search : searches) {
+            expected.clear();
+            graph.findPath(search.getStart(), search.getTarget(), expected);
+            path.clear();
+            search.getPath(path);
+            assertEquals(expected, path);
+        }
+    }
+
+    @Test
+    public void stepUntilMakesProgressPastDeadline() {
+        Graph<int[]> graph = LandmarkHeuristicTest.createGrid(30);
+        List<Node<int[]>> nodes = graph.getNodes();
+        PathSearch<int[]> search 
+            = graph.startSearch(nodes.get(0), nodes.get(899));
+        
+        assertFalse(search.stepUntil(System.nanoTime() - 1000000));
+        assertTrue(search.getExpandedCount() > 0);
+        while (!search.stepUntil(System.nanoTime() + 1000000)) {
+        }
+        assertTrue(search.isFound());
+    }
+
+    @Test
+    public void notifiesListenerOnce() {
+        Graph<int[]> graph = LandmarkHeuristicTest.createGrid(20);
+        List<Node<int[]>> nodes = graph.getNodes();
+        int[] calls = new int[1];
+        graph.setSearchListener((context, found, elapsedTime) -> {
+            calls[0]++;
+            assertFalse(found);
+        });
+        nodes.get(399).setBlocked(true);
+        PathSearch<int[]> search 
+            = graph.startSearch(nodes.get(0), nodes.get(399));
+        
+        while (!search.step(5)) {
+            assertEquals(0, calls[0]);
+        }
+        search.step(5);
+        assertEquals(1, calls[0]);
+        assertFalse(search.isFound());
+        NodePath path = new NodePath();
+        path.add(1);
+        search.getPath(path);
+        assertTrue(path.isEmpty());
+    }
+
+    @Test
+    public void cancelEndsSearchWithoutPath() {
+        Graph<int[]> graph = LandmarkHeuristicTest.createGrid(20);
+        PathSearch<int[]> search = graph.startSearch(
+            graph.getNodes().get(0), graph.getNodes().get(399));
+        
+        search.step(3);
+        search.cancel();
+        assertTrue(search.isDone());
+        assertFalse(search.isFound());
+        assertTrue(search.step(3));
+        assertEquals(3, search.getExpandedCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsNodesAddedDuringSearch() {
+        Graph<int[]> graph = LandmarkHeuristicTest.createGrid(20);
+        PathSearch<int[]> search = graph.startSearch(
+            graph.getNodes().get(0), graph.getNodes().get(399));
+        
+        search.step(3);
+        graph.addNode(new Node<>(new int[] { 20, 20 }));
+        search.step(3);
+    }
+
+}
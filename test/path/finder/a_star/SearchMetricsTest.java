@@ -0,0 +1,163 @@
+package path.finder.a_star;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * SearchMetricsTest class.
+ */
+public class SearchMetricsTest {
+
+    @Test
+    public void listenerSeesTheCountsOfEachSearch() {
+        Graph<int[]> graph = LandmarkHeuristicTest.createGrid(20);
+        List<Node<int[]>> nodes = graph.getNodes();
+        int[] calls = new int[1];
+        boolean[] found = new boolean[1];
+        int[] expanded = new int[1];
+        graph.setSearchListener((context, pathFound, elapsedTime) -> {
+            calls[0]++;
+            found[0] = pathFound;
+            expanded[0] = context.getExpandedCount();
+            if (pathFound) {
+                assertTrue(context.getPushCount() >= 1);
+                assertTrue(context.getRelaxationCount() 
+                    >= context.getExpandedCount() - 1);
+            }
+
+            assertTrue(elapsedTime >= 0);
+        });
+        List<Node<int[]>> path = new ArrayList<>();
+        graph.findPath(nodes.get(0), nodes.get(399), path);
+        assertEquals(1, calls[0]);
+        assertTrue(found[0]);
+        assertEquals(graph.getExpandedCount(), expanded[0]);
+
+        nodes.get(399).setBlocked(true);
+        graph.findPath(nodes.get(0), nodes.get(399), path
+            , SearchMode.BIDIRECTIONAL);
+
+        assertEquals(2, calls[0]);
+        assertFalse(found[0]);
+
+        graph.setSearchListener(null);
+        graph.findPath(nodes.get(0), nodes.get(20), path);
+        assertEquals(2, calls[0]);
+    }
+
+    @Test
+    public void sumsSearchesOfSeveralThreads() throws Exception {
+        Graph<int[]> graph = LandmarkHeuristicTest.createGrid(30);
+        List<Node<int[]>> nodes = graph.getNodes();
+        // walls the last node in, so some searches fail
+        nodes.get(898).setBlocked(true);
+        nodes.get(869).setBlocked(true);
+        SearchMetrics metrics = new SearchMetrics();
+        graph.setSearchListener(metrics);
+
+        int threadCount = 4;
+        int searchCount = 200;
+        long[] expanded = new long[threadCount];
+        int[] notFound = new int[threadCount];
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            int thread = t;
+            threads[t] = new Thread(() -> {
+                Random random = new Random(thread);
+                List<Node<int[]>> path = new ArrayList<>();
+                for (int i = 0; i < searchCount; i++) {
+                    Node<int[]> target = i % 10 == 0 ? nodes.get(899)
+                        : nodes.get(random.nextInt(nodes.size()));
+
+                    path.clear();
+                    graph.findPath(nodes.get(random.nextInt(nodes.size()))
+                        , target, path);
+
+                    expanded[thread] += graph.getExpandedCount();
+                    notFound[thread] += path.isEmpty() ? 1 : 0;
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(threadCount * searchCount, metrics.getSearchCount());
+        assertEquals(Arrays.stream(notFound).sum()
+            , metrics.getNotFoundCount());
+
+        assertEquals(Arrays.stream(expanded).sum()
+            , metrics.getExpandedCount());
+
+        assertEquals(threadCount * searchCount
+            , Arrays.stream(metrics.getExpandedCountHistogram()).sum());
+
+        assertEquals(threadCount * searchCount
+            , Arrays.stream(metrics.getTimeHistogram()).sum());
+
+        assertTrue(metrics.getPushCount() >= metrics.getSearchCount());
+        assertTrue(metrics.getRelaxationCount() > 0);
+
+        metrics.reset();
+        assertEquals(0, metrics.getSearchCount());
+        assertEquals(0, metrics.getExpandedCount());
+        assertEquals(0, metrics.getExpandedCountPercentile99());
+    }
+
+    @Test
+    public void percentilesAreBucketUpperBounds() {
+        Graph<int[]> graph = LandmarkHeuristicTest.createGrid(40);
+        List<Node<int[]>> nodes = graph.getNodes();
+        SearchMetrics metrics = new SearchMetrics();
+        graph.setSearchListener(metrics);
+        Random random = new Random(2);
+        List<Node<int[]>> path = new ArrayList<>();
+        int[] expanded = new int[301];
+        for (int i = 0; i < expanded.length; i++) {
+            graph.findPath(nodes.get(random.nextInt(nodes.size()))
+                , nodes.get(random.nextInt(nodes.size())), path);
+
+            expanded[i] = graph.getExpandedCount();
+        }
+        Arrays.sort(expanded);
+        int median = expanded[expanded.length / 2];
+        long p50 = metrics.getExpandedCountPercentile50();
+        // the upper bound of the bucket, at most twice the real value
+        assertTrue(p50 >= median);
+        assertTrue(p50 < 2 * median);
+        assertTrue(metrics.getExpandedCountPercentile99() >= p50);
+        assertEquals((double) Arrays.stream(expanded).sum() / expanded.length
+            , metrics.getMeanExpandedCount(), 1e-9);
+    }
+
+    @Test
+    public void registersInPlatformMBeanServer() throws Exception {
+        Graph<int[]> graph = LandmarkHeuristicTest.createGrid(10);
+        SearchMetrics metrics = new SearchMetrics();
+        graph.setSearchListener(metrics);
+        graph.findPath(graph.getNodes().get(0), graph.getNodes().get(99)
+            , new ArrayList<>());
+
+        ObjectName name = metrics.register(
+            "path.finder.a_star:type=SearchMetrics,name=test");
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            assertEquals(1L, server.getAttribute(name, "SearchCount"));
+            assertEquals(metrics.getExpandedCount()
+                , server.getAttribute(name, "ExpandedCount"));
+        }
+        finally {
+            server.unregisterMBean(name);
+        }
+    }
+
+}
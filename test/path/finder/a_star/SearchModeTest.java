@@ -0,0 +1,119 @@
+package path.finder.a_star;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static path.finder.a_star.SearchMode.*;
+
+/**
+ * SearchModeTest class.
+ */
+public class SearchModeTest {
+
+    private static final int SIZE = 30;
+
+    // finds the path in both modes with a NodePath and a list, fails if
+    // they don't agree, returns the cost or -1 if there is no path
+    private static double assertSameCost(Graph<int[]> graph
+            , Node<int[]> start, Node<int[]> target) {
+
+        List<Node<int[]>> expected = new ArrayList<>();
+        List<Node<int[]>> path = new ArrayList<>();
+        NodePath ids = new NodePath();
+        graph.findPath(start, target, expected, UNIDIRECTIONAL);
+        // the list is left as is when there is no path
+        path.add(target);
+        graph.findPath(start, target, path, BIDIRECTIONAL);
+        if (expected.isEmpty()) {
+            assertEquals(1, path.size());
+            path.clear();
+        }
+        graph.findPath(start, target, ids, BIDIRECTIONAL);
+        double cost = IncrementalPathFinderTest.cost(path);
+        assertEquals(IncrementalPathFinderTest.cost(expected), cost, 1e-9);
+        assertEquals(path.size(), ids.size());
+        for (int i = 0; i < path.size(); i++) {
+            assertEquals(path.get(i).getId(), ids.get(i));
+        }
+        if (!path.isEmpty()) {
+            assertSame(start, path.get(0));
+            assertSame(target, path.get(path.size() - 1));
+        }
+        return cost;
+    }
+
+    @Test
+    public void findsSameCostAsUnidirectionalSearch() {
+        Graph<int[]> graph = LandmarkHeuristicTest.createGrid(SIZE);
+        List<Node<int[]>> nodes = graph.getNodes();
+        Random random = new Random(11);
+        // costs >= 1 keep the manhattan heuristic consistent
+        for (Node<int[]> node : nodes) {
+            for (Edge<int[]> edge : node.getEdges()) {
+                edge.setG(1 + 3 * random.nextDouble());
+            }
+        }
+        for (int i = 0; i < 150; i++) {
+            nodes.get(random.nextInt(nodes.size())).setBlocked(true);
+        }
+        int noPathCount = 0;
+        for (int i = 0; i < 500; i++) {
+            Node<int[]> start = nodes.get(random.nextInt(nodes.size()));
+            Node<int[]> target = nodes.get(random.nextInt(nodes.size()));
+            if (assertSameCost(graph, start, target) < 0) {
+                noPathCount++;
+            }
+        }
+        assertTrue(noPathCount < 500);
+    }
+
+    @Test
+    public void handlesStartEqualToTarget() {
+        Graph<int[]> graph = LandmarkHeuristicTest.createGrid(SIZE);
+        Node<int[]> node = graph.getNodes().get(42);
+        assertEquals(0, assertSameCost(graph, node, node), 0);
+        NodePath ids = new NodePath();
+        graph.findPath(node, node, ids, BIDIRECTIONAL);
+        assertEquals(1, ids.size());
+    }
+
+    @Test
+    public void findsNoPathToBlockedTarget() {
+        Graph<int[]> graph = LandmarkHeuristicTest.createGrid(SIZE);
+        List<Node<int[]>> nodes = graph.getNodes();
+        nodes.get(SIZE + 1).setBlocked(true);
+        assertEquals(-1, assertSameCost(graph, nodes.get(0)
+            , nodes.get(SIZE + 1)), 0);
+        
+        // a blocked start can still be left
+        assertEquals(2, assertSameCost(graph, nodes.get(SIZE + 1)
+            , nodes.get(2)), 0);
+    }
+
+    @Test
+    public void findsNoPathToDisconnectedTarget() {
+        Graph<int[]> graph = LandmarkHeuristicTest.createGrid(SIZE);
+        List<Node<int[]>> nodes = graph.getNodes();
+        // a separate pair of nodes next to the grid
+        Node<int[]> a = new Node<>(new int[] { SIZE, 0 });
+        Node<int[]> b = new Node<>(new int[] { SIZE + 1, 0 });
+        graph.addNode(a);
+        graph.addNode(b);
+        graph.link(a, b, 1);
+        assertEquals(-1, assertSameCost(graph, nodes.get(0), b), 0);
+        assertEquals(-1, assertSameCost(graph, a, nodes.get(0)), 0);
+        assertEquals(1, assertSameCost(graph, a, b), 0);
+
+        // a wall around the corner, both sides run out of nodes
+        nodes.get(1).setBlocked(true);
+        nodes.get(SIZE).setBlocked(true);
+        assertEquals(-1, assertSameCost(graph, nodes.get(0)
+            , nodes.get(nodes.size() - 3)), 0);
+        
+        assertEquals(-1, assertSameCost(graph, nodes.get(SIZE * 2)
+            , nodes.get(0)), 0);
+    }
+
+}
@@ -0,0 +1,170 @@
+package path.finder.a_star;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * VirtualNodeTest class.
+ */
+public class VirtualNodeTest {
+
+    private static final double EPSILON = 1e-9;
+
+    private static int manhattan(int[] a, int[] b) {
+        return Math.abs(a[0] - b[0]) + Math.abs(a[1] - b[1]);
+    }
+
+    // cost of the path including the links of both virtual nodes
+    private static double cost(VirtualNode<int[]> start
+            , VirtualNode<int[]> target, List<Node<int[]>> path) {
+
+        // unit cost edges
+        return start.getCostTo(path.get(0).getId()) + path.size() - 1
+            + target.getCostTo(path.get(path.size() - 1).getId());
+    }
+
+    // cheapest start link + path + target link over every pair of links
+    private static double bruteForce(Graph<int[]> graph
+            , VirtualNode<int[]> start, VirtualNode<int[]> target) {
+
+        List<Node<int[]>> nodes = graph.getNodes();
+        double best = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < start.size(); i++) {
+            Node<int[]> from = nodes.get(start.getId(i));
+            if (from.isBlocked()) {
+                continue;
+            }
+            SearchContext distances = graph.findDistances(from, null);
+            for (int j = 0; j < target.size(); j++) {
+                double g = distances.getG(target.getId(j));
+                if (g != Double.MAX_VALUE) {
+                    best = Math.min(best
+                        , start.getCost(i) + g + target.getCost(j));
+                }
+            }
+        }
+        return best;
+    }
+
+    // links node to a few random nodes, no cheaper than the heuristic
+    private static void link(VirtualNode<int[]> virtualNode
+            , List<Node<int[]>> nodes, Random random) {
+
+        virtualNode.clear();
+        int count = 1 + random.nextInt(4);
+        for (int i = 0; i < count; i++) {
+            Node<int[]> node = nodes.get(random.nextInt(nodes.size()));
+            virtualNode.link(node, manhattan(node.getObj()
+                , virtualNode.getObj()) + 3 * random.nextDouble());
+        }
+    }
+
+    @Test
+    public void findsShortestPathOverAllLinks() {
+        Graph<int[]> graph = LandmarkHeuristicTest.createGrid(20);
+        List<Node<int[]>> nodes = graph.getNodes();
+        Random random = new Random(51);
+        for (int i = 0; i < 60; i++) {
+            nodes.get(random.nextInt(nodes.size())).setBlocked(true);
+        }
+        List<Node<int[]>> path = new ArrayList<>();
+        NodePath ids = new NodePath();
+        int noPathCount = 0;
+        for (int q = 0; q < 300; q++) {
+            VirtualNode<int[]> start = new VirtualNode<>(
+                new int[] { random.nextInt(20), random.nextInt(20) });
+            
+            VirtualNode<int[]> target = new VirtualNode<>(
+                new int[] { random.nextInt(20), random.nextInt(20) });
+            
+            link(start, nodes, random);
+            link(target, nodes, random);
+            graph.findPath(start, target, path);
+            graph.findPath(start, target, ids);
+            double expected = bruteForce(graph, start, target);
+            assertEquals(path.size(), ids.size());
+            if (expected == Double.POSITIVE_INFINITY) {
+                assertTrue(path.isEmpty());
+                noPathCount++;
+                continue;
+            }
+            assertFalse(path.isEmpty());
+            for (int i = 0; i < path.size(); i++) {
+                assertFalse(path.get(i).isBlocked());
+                assertEquals(path.get(i).getId(), ids.get(i));
+                if (i > 0) {
+                    assertEquals(1, manhattan(path.get(i - 1).getObj()
+                        , path.get(i).getObj()));
+                }
+            }
+            assertEquals(expected, cost(start, target, path), EPSILON);
+        }
+        assertTrue(noPathCount < 300);
+    }
+
+    @Test
+    public void terminatesWhenTargetIsUnreachable() {
+        Graph<int[]> graph = LandmarkHeuristicTest.createGrid(10);
+        List<Node<int[]>> nodes = graph.getNodes();
+        // walls the corner node 99 in
+        nodes.get(89).setBlocked(true);
+        nodes.get(98).setBlocked(true);
+        VirtualNode<int[]> start = new VirtualNode<>(new int[] { 0, 0 });
+        VirtualNode<int[]> target = new VirtualNode<>(new int[] { 9, 9 });
+        start.link(nodes.get(0), 0);
+        target.link(nodes.get(99), 0);
+        List<Node<int[]>> path = new ArrayList<>();
+        path.add(nodes.get(5));
+        graph.findPath(start, target, path);
+        assertTrue(path.isEmpty());
+        // every open node is expanded once, then the search gives up
+        assertEquals(97, graph.getExpandedCount());
+
+        // no links at all
+        start.clear();
+        graph.findPath(start, target, path);
+        assertTrue(path.isEmpty());
+        assertEquals(0, graph.getExpandedCount());
+    }
+
+    @Test
+    public void stopsOnceNoOpenNodeCanBeatTheBestPath() {
+        Graph<int[]> graph = LandmarkHeuristicTest.createGrid(30);
+        List<Node<int[]>> nodes = graph.getNodes();
+        VirtualNode<int[]> start = new VirtualNode<>(new int[] { 0, 0 });
+        VirtualNode<int[]> target = new VirtualNode<>(new int[] { 3, 0 });
+        start.link(nodes.get(0), 0);
+        target.link(nodes.get(3), 0);
+        // a far link can't be the best one
+        target.link(nodes.get(899), 100);
+        List<Node<int[]>> path = new ArrayList<>();
+        graph.findPath(start, target, path);
+        assertEquals(4, path.size());
+        assertSame(nodes.get(3), path.get(3));
+        // only the straight line, not the whole grid
+        assertTrue(graph.getExpandedCount() <= 4);
+    }
+
+    @Test
+    public void reusedInstanceKeepsNoOldLinks() {
+        VirtualNode<int[]> virtualNode = new VirtualNode<>(new int[2]);
+        Graph<int[]> graph = LandmarkHeuristicTest.createGrid(5);
+        for (Node<int[]> node : graph.getNodes()) {
+            virtualNode.link(node, node.getId());
+        }
+        assertEquals(25, virtualNode.size());
+        assertEquals(24, virtualNode.getCostTo(24), 0);
+        virtualNode.clear();
+        assertEquals(0, virtualNode.size());
+        assertEquals(Double.POSITIVE_INFINITY, virtualNode.getCostTo(24), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNodesOutsideOfAGraph() {
+        new VirtualNode<>(new int[2]).link(new Node<>(new int[2]), 1);
+    }
+
+}
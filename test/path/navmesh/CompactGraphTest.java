@@ -0,0 +1,62 @@
+package path.navmesh;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import math.Vec2;
+import org.junit.Test;
+import path.finder.a_star.Node;
+import static org.junit.Assert.*;
+
+/**
+ * CompactGraphTest class.
+ */
+public class CompactGraphTest {
+
+    @Test
+    public void findsSameCostsAsGraph() throws Exception {
+        NavMesh2D navMesh = new NavMesh2D();
+        navMesh.load("/res/path_test.obj", 1, 0, 0);
+        List<Node<Vec2>> nodes = navMesh.getGraph().getNodes();
+        Random random = new Random(6);
+        for (int i = 0; i < nodes.size() / 20; i++) {
+            nodes.get(random.nextInt(nodes.size())).setBlocked(true);
+        }
+        CompactGraph compactGraph = CompactGraph.create(navMesh);
+        assertEquals(nodes.size(), compactGraph.getNodeCount());
+
+        List<Node<Vec2>> expected = new ArrayList<>();
+        List<Node<Vec2>> path = new ArrayList<>();
+        PathBuffer buffer = new PathBuffer();
+        int noPathCount = 0;
+        for (int q = 0; q < 500; q++) {
+            Node<Vec2> start = nodes.get(random.nextInt(nodes.size()));
+            Node<Vec2> target = nodes.get(random.nextInt(nodes.size()));
+            expected.clear();
+            navMesh.getGraph().findPath(start, target, expected);
+            int[] ids = compactGraph.findPath(start.getId(), target.getId());
+            compactGraph.findPath(start.getId(), target.getId(), buffer);
+            assertEquals(ids.length, buffer.size());
+            if (expected.isEmpty()) {
+                assertEquals(0, ids.length);
+                noPathCount++;
+                continue;
+            }
+            path.clear();
+            for (int i = 0; i < ids.length; i++) {
+                assertEquals(ids[i], buffer.get(i));
+                assertEquals(compactGraph.getX(ids[i]), buffer.getX(i), 0);
+                assertEquals(compactGraph.getY(ids[i]), buffer.getY(i), 0);
+                path.add(nodes.get(ids[i]));
+                // the start may be blocked, the other nodes not
+                assertTrue(i == 0 || !compactGraph.isBlocked(ids[i]));
+            }
+            assertSame(start, path.get(0));
+            assertSame(target, path.get(path.size() - 1));
+            assertEquals(HierarchicalPathFinderTest.cost(expected)
+                , HierarchicalPathFinderTest.cost(path), 1e-9);
+        }
+        assertTrue(noPathCount > 0 && noPathCount < 500);
+    }
+
+}
@@ -0,0 +1,162 @@
+package path.navmesh;
+
+import java.awt.geom.Path2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import math.Vec2;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * FaceTest class.
+ */
+public class FaceTest {
+
+    private static final double[][] TRIANGLE = { { 0, 0 }, { 4, 1 }
+        , { 1, 3 } };
+    
+    private static final double[][] HEXAGON = { { 2, 0 }, { 4, 1 }
+        , { 4, 3 }, { 2, 4 }, { 0, 3 }, { 0, 1 } };
+    
+    private static final double[][] L_SHAPE = { { 0, 0 }, { 3, 0 }
+        , { 3, 1 }, { 1, 1 }, { 1, 3 }, { 0, 3 } };
+    
+    private static final double[][] ARROW = { { 0, 0 }, { 2, 1 }
+        , { 4, 0 }, { 2, 4 } };
+
+    // a mesh with the polygon as its only face, optionally reversed
+    private static Face createFace(double[][] polygon, boolean reversed) {
+        NavMesh2D navMesh = new NavMesh2D();
+        int[] indices = new int[polygon.length];
+        for (int i = 0; i < polygon.length; i++) {
+            double[] point = polygon[reversed ? polygon.length - 1 - i : i];
+            indices[i] = navMesh.addVertex(point[0], point[1]);
+        }
+        return navMesh.addFace(indices);
+    }
+
+    private static Path2D toPath(List<Vec2> points) {
+        Path2D path = new Path2D.Double(Path2D.WIND_EVEN_ODD);
+        path.moveTo(points.get(0).x, points.get(0).y);
+        for (int i = 1; i < points.size(); i++) {
+            path.lineTo(points.get(i).x, points.get(i).y);
+        }
+        path.closePath();
+        return path;
+    }
+
+    // distance from (x, y) to the nearest edge of the polygon
+    private static double edgeDistance(List<Vec2> points
+            , double x, double y) {
+
+        double distance = Double.MAX_VALUE;
+        for (int i = 0; i < points.size(); i++) {
+            Vec2 a = points.get(i);
+            Vec2 b = points.get((i + 1) % points.size());
+            double dx = b.x - a.x;
+            double dy = b.y - a.y;
+            double t = ((x - a.x) * dx + (y - a.y) * dy) / (dx * dx + dy * dy);
+            t = Math.max(0, Math.min(1, t));
+            distance = Math.min(distance
+                , Math.hypot(x - a.x - t * dx, y - a.y - t * dy));
+        }
+        return distance;
+    }
+
+    private static void assertMatchesPath2D(Face face) {
+        Path2D path = toPath(face.getPoints());
+        Random random = new Random(41);
+        for (int i = 0; i < 20000; i++) {
+            double x = -1 + 6 * random.nextDouble();
+            double y = -1 + 6 * random.nextDouble();
+            // Path2D doesn't define which border points are inside
+            if (edgeDistance(face.getPoints(), x, y) > 1e-9) {
+                assertEquals(x + ", " + y, path.contains(x, y)
+                    , face.isInside(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void convexFacesMatchPath2D() {
+        for (double[][] polygon : new double[][][] { TRIANGLE, HEXAGON }) {
+            for (boolean reversed : new boolean[] { false, true }) {
+                Face face = createFace(polygon, reversed);
+                assertTrue(face.isConvex());
+                assertMatchesPath2D(face);
+            }
+        }
+    }
+
+    @Test
+    public void concaveFacesMatchPath2D() {
+        for (double[][] polygon : new double[][][] { L_SHAPE, ARROW }) {
+            for (boolean reversed : new boolean[] { false, true }) {
+                Face face = createFace(polygon, reversed);
+                assertFalse(face.isConvex());
+                assertMatchesPath2D(face);
+            }
+        }
+    }
+
+    @Test
+    public void bordersOfConvexFacesAreInside() {
+        for (boolean reversed : new boolean[] { false, true }) {
+            Face face = createFace(HEXAGON, reversed);
+            List<Vec2> points = face.getPoints();
+            for (int i = 0; i < points.size(); i++) {
+                Vec2 a = points.get(i);
+                Vec2 b = points.get((i + 1) % points.size());
+                assertTrue(face.isInside(a.x, a.y));
+                assertTrue(face.isInside((a.x + b.x) / 2, (a.y + b.y) / 2));
+            }
+            assertFalse(face.isInside(4 + 1e-9, 2));
+            assertFalse(face.isInside(2, -1e-9));
+        }
+    }
+
+    @Test
+    public void findFaceMatchesPath2DOnUnscaledMesh() throws Exception {
+        // unscaled, so the coordinates have fractional parts
+        NavMesh2D navMesh = new NavMesh2D();
+        navMesh.load("/res/path_test_2.obj", 1, 0, 0);
+        List<Path2D> paths = new ArrayList<>();
+        double minX = Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
+        for (Face face : navMesh.getFaces()) {
+            paths.add(toPath(face.getPoints()));
+            for (Vec2 point : face.getPoints()) {
+                minX = Math.min(minX, point.x);
+                minY = Math.min(minY, point.y);
+                maxX = Math.max(maxX, point.x);
+                maxY = Math.max(maxY, point.y);
+            }
+        }
+        Random random = new Random(42);
+        int found = 0;
+        for (int i = 0; i < 5000; i++) {
+            double x = minX + (maxX - minX) * random.nextDouble();
+            double y = minY + (maxY - minY) * random.nextDouble();
+            boolean nearEdge = false;
+            boolean inside = false;
+            for (int f = 0; f < paths.size(); f++) {
+                List<Vec2> points = navMesh.getFaces().get(f).getPoints();
+                nearEdge |= edgeDistance(points, x, y) < 1e-9;
+                inside |= paths.get(f).contains(x, y);
+            }
+            if (!nearEdge) {
+                Face face = navMesh.findFace(x, y);
+                assertEquals(inside, face != null);
+                if (face != null) {
+                    assertTrue(toPath(face.getPoints()).contains(x, y));
+                    found++;
+                }
+            }
+        }
+        assertTrue(found > 0);
+    }
+
+}
@@ -0,0 +1,100 @@
+package path.navmesh;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import math.Vec2;
+import org.junit.Test;
+import path.finder.a_star.Node;
+import path.finder.a_star.NodePath;
+import static org.junit.Assert.*;
+
+/**
+ * FunnelTest class.
+ */
+public class FunnelTest {
+
+    private static final double EPSILON = 1e-9;
+
+    // three unit squares in an L: (0, 0) to (2, 1) and (1, 1) to (2, 2)
+    static NavMesh2D createL() {
+        NavMesh2D navMesh = new NavMesh2D();
+        double[][] points = { { 0, 0 }, { 1, 0 }, { 2, 0 }, { 0, 1 }
+            , { 1, 1 }, { 2, 1 }, { 1, 2 }, { 2, 2 } };
+        
+        for (double[] point : points) {
+            navMesh.addVertex(point[0], point[1]);
+        }
+        navMesh.addFace(new int[] { 0, 1, 4, 3 });
+        navMesh.addFace(new int[] { 1, 2, 5, 4 });
+        navMesh.addFace(new int[] { 4, 5, 7, 6 });
+        return navMesh;
+    }
+
+    private static List<Node<Vec2>> findPath(NavMesh2D navMesh
+            , double sx, double sy, double tx, double ty) {
+
+        List<Node<Vec2>> path = new ArrayList<>();
+        navMesh.findPath(navMesh.findFace(sx, sy).getNodeInsideFace()
+            , navMesh.findFace(tx, ty).getNodeInsideFace(), path);
+        
+        return path;
+    }
+
+    @Test
+    public void pullsPathTautAroundCorner() {
+        NavMesh2D navMesh = createL();
+        List<Node<Vec2>> path = findPath(navMesh, 0.2, 0.8, 1.8, 1.8);
+        double[] out = new double[16];
+        int count = new Funnel(navMesh).stringPull(0.2, 0.8, 1.8, 1.8
+            , path, out);
+        
+        assertEquals(3, count);
+        assertArrayEquals(new double[] { 0.2, 0.8, 1, 1, 1.8, 1.8 }
+            , Arrays.copyOf(out, 6), EPSILON);
+    }
+
+    @Test
+    public void keepsStraightLineInsideCorridor() {
+        NavMesh2D navMesh = createL();
+        List<Node<Vec2>> path = findPath(navMesh, 0.5, 0.5, 1.5, 0.5);
+        double[] out = new double[16];
+        int count = new Funnel(navMesh).stringPull(0.5, 0.5, 1.5, 0.5
+            , path, out);
+        
+        assertEquals(2, count);
+    }
+
+    @Test
+    public void returnsFullCountWhenOutIsTooSmall() {
+        NavMesh2D navMesh = createL();
+        List<Node<Vec2>> path = findPath(navMesh, 0.2, 0.8, 1.8, 1.8);
+        double[] out = new double[2];
+        int count = new Funnel(navMesh).stringPull(0.2, 0.8, 1.8, 1.8
+            , path, out);
+        
+        assertEquals(3, count);
+        assertEquals(0.2, out[0], EPSILON);
+        assertEquals(0.8, out[1], EPSILON);
+    }
+
+    @Test
+    public void returnsNoPointsWithoutRoute() {
+        NavMesh2D navMesh = createL();
+        navMesh.findFace(1.5, 1.5).getNodeInsideFace().setBlocked(true);
+        List<Node<Vec2>> path = findPath(navMesh, 0.2, 0.8, 1.8, 1.8);
+        assertTrue(path.isEmpty());
+        double[] out = new double[16];
+        Arrays.fill(out, -1);
+        Funnel funnel = new Funnel(navMesh);
+        assertEquals(0, funnel.stringPull(0.2, 0.8, 1.8, 1.8, path, out));
+        assertEquals(0, funnel.stringPull(0.2, 0.8, 1.8, 1.8
+            , new NodePath(), out));
+        
+        // nothing written
+        for (double value : out) {
+            assertEquals(-1, value, 0);
+        }
+    }
+
+}
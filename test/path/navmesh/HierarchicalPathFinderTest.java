@@ -0,0 +1,173 @@
+package path.navmesh;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import math.Vec2;
+import org.junit.Test;
+import path.finder.a_star.Edge;
+import path.finder.a_star.Node;
+import static org.junit.Assert.*;
+
+/**
+ * HierarchicalPathFinderTest class.
+ */
+public class HierarchicalPathFinderTest {
+
+    // fails if two consecutive nodes are not linked or a node after the
+    // start is blocked
+    private static void assertValid(List<Node<Vec2>> path) {
+        for (int i = 0; i < path.size() - 1; i++) {
+            Node<Vec2> a = path.get(i);
+            Node<Vec2> b = path.get(i + 1);
+            assertFalse(b.isBlocked());
+            boolean linked = false;
+            for (Edge<Vec2> edge : a.getEdges()) {
+                linked |= edge.getOppositeNode(a) == b;
+            }
+            assertTrue(linked);
+        }
+    }
+
+    static double cost(List<Node<Vec2>> path) {
+        double cost = 0;
+        for (int i = 0; i < path.size() - 1; i++) {
+            Node<Vec2> a = path.get(i);
+            for (Edge<Vec2> edge : a.getEdges()) {
+                if (edge.getOppositeNode(a) == path.get(i + 1)) {
+                    cost += edge.getG();
+                    break;
+                }
+            }
+        }
+        return cost;
+    }
+
+    // random queries give the same cost as a search of the whole graph
+    private static void assertSameCosts(NavMesh2D navMesh
+            , HierarchicalPathFinder finder, Random random) {
+
+        List<Face> faces = navMesh.getFaces();
+        List<Node<Vec2>> expected = new ArrayList<>();
+        List<Node<Vec2>> path = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Node<Vec2> start = faces.get(random.nextInt(faces.size()))
+                .getNodeInsideFace();
+            
+            Node<Vec2> target = faces.get(random.nextInt(faces.size()))
+                .getNodeInsideFace();
+            
+            expected.clear();
+            navMesh.getGraph().findPath(start, target, expected);
+            finder.findPath(start, target, path);
+            assertEquals(expected.isEmpty(), path.isEmpty());
+            assertValid(path);
+            assertEquals(cost(expected), cost(path), 1e-9);
+        }
+    }
+
+    @Test
+    public void findsPathAcrossClusters() throws IOException {
+        NavMesh2D navMesh = NavMesh2DTest.loadGrid(20);
+        HierarchicalPathFinder finder = new HierarchicalPathFinder(navMesh, 16);
+        assertTrue(finder.getClusterCount() > 4);
+        Node<Vec2> start = navMesh.findFace(0.5, 0.5).getNodeInsideFace();
+        Node<Vec2> target = navMesh.findFace(19.5, 19.5).getNodeInsideFace();
+        List<Node<Vec2>> path = new ArrayList<>();
+        finder.findPath(start, target, path);
+        assertSame(start, path.get(0));
+        assertSame(target, path.get(path.size() - 1));
+        assertValid(path);
+    }
+
+    @Test
+    public void fallsBackWhenLegGetsBlocked() throws IOException {
+        NavMesh2D navMesh = NavMesh2DTest.loadGrid(20);
+        HierarchicalPathFinder finder = new HierarchicalPathFinder(navMesh, 16);
+        Node<Vec2> start = navMesh.findFace(0.5, 0.5).getNodeInsideFace();
+        Node<Vec2> target = navMesh.findFace(19.5, 19.5).getNodeInsideFace();
+        List<Node<Vec2>> path = new ArrayList<>();
+        finder.findPath(start, target, path);
+
+        // blocks the middle of the path, inside a leg between two portals
+        Node<Vec2> blocked = path.get(path.size() / 2);
+        blocked.setBlocked(true);
+        assertTrue(finder.getStaleClusterCount() > 0);
+        finder.findPath(start, target, path);
+        assertFalse(path.isEmpty());
+        assertFalse(path.contains(blocked));
+        assertSame(target, path.get(path.size() - 1));
+        assertValid(path);
+        finder.dispose();
+    }
+
+    @Test
+    public void agreesWithGraphOnReachability() throws IOException {
+        NavMesh2D navMesh = NavMesh2DTest.loadGrid(20);
+        HierarchicalPathFinder finder = new HierarchicalPathFinder(navMesh, 16);
+        List<Face> faces = navMesh.getFaces();
+        Random random = new Random(4);
+        List<Node<Vec2>> expected = new ArrayList<>();
+        List<Node<Vec2>> path = new ArrayList<>();
+        for (int round = 0; round < 5; round++) {
+            // walls of blocked faces appear after the build
+            for (int i = 0; i < 25; i++) {
+                faces.get(random.nextInt(faces.size())).getNodeInsideFace()
+                    .setBlocked(true);
+            }
+            for (int i = 0; i < 100; i++) {
+                Node<Vec2> start = faces.get(random.nextInt(faces.size()))
+                    .getNodeInsideFace();
+                
+                Node<Vec2> target = faces.get(random.nextInt(faces.size()))
+                    .getNodeInsideFace();
+                
+                expected.clear();
+                navMesh.getGraph().findPath(start, target, expected);
+                finder.findPath(start, target, path);
+                assertEquals(expected.isEmpty(), path.isEmpty());
+                assertValid(path);
+            }
+        }
+    }
+
+    @Test
+    public void searchesMeshChangedAfterTheBuild() throws IOException {
+        NavMesh2D navMesh = NavMesh2DTest.loadGrid(20);
+        HierarchicalPathFinder finder = new HierarchicalPathFinder(navMesh, 16);
+        Random random = new Random(16);
+        assertSameCosts(navMesh, finder, random);
+
+        // a face with new nodes below the first one
+        int v = navMesh.getVertices().size();
+        navMesh.getVertices().add(new Vec2(0, -1));
+        navMesh.getVertices().add(new Vec2(1, -1));
+        Face added = navMesh.addFace(new int[] { v, v + 1, 1, 0 });
+        assertEquals(-1, finder.getCluster(added));
+        Node<Vec2> start = added.getNodeInsideFace();
+        Node<Vec2> target = navMesh.findFace(19.5, 19.5).getNodeInsideFace();
+        List<Node<Vec2>> path = new ArrayList<>();
+        finder.findPath(start, target, path);
+        assertSame(start, path.get(0));
+        assertSame(target, path.get(path.size() - 1));
+        assertValid(path);
+        finder.findPath(target, start, path);
+        assertSame(start, path.get(path.size() - 1));
+        assertSameCosts(navMesh, finder, random);
+
+        // removed faces free their nodes, added faces reuse them
+        for (int i = 0; i < 10; i++) {
+            List<Face> faces = navMesh.getFaces();
+            Face face = faces.get(random.nextInt(faces.size()));
+            int[] indices = face.getVertexIndices();
+            navMesh.removeFace(face);
+            assertSameCosts(navMesh, finder, random);
+            Face readded = navMesh.addFace(indices);
+            assertEquals(-1, finder.getCluster(readded));
+            assertSameCosts(navMesh, finder, random);
+        }
+        finder.dispose();
+    }
+
+}
@@ -0,0 +1,323 @@
+package path.navmesh;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import math.Vec2;
+import org.junit.Test;
+import path.finder.a_star.IncrementalPathFinder;
+import path.finder.a_star.Node;
+import path.finder.a_star.SearchContext;
+import static org.junit.Assert.*;
+
+/**
+ * NavMesh2DTest class.
+ *
+ * Loading and editing of navigation meshes.
+ */
+public class NavMesh2DTest {
+
+    // a quadratic edge lookup takes minutes on this mesh, a linear one 
+    // well under a second
+    private static final long MAX_LOAD_TIME_MS = 10000;
+
+    /**
+     * Returns an OBJ of size x size unit quads in the x z plane.
+     */
+    static String createGridObj(int size) {
+        StringBuilder sb = new StringBuilder();
+        for (int z = 0; z <= size; z++) {
+            for (int x = 0; x <= size; x++) {
+                sb.append("v ").append(x).append(" 0 ").append(z)
+                    .append('\n');
+            }
+        }
+        // obj indices start at 1
+        for (int z = 0; z < size; z++) {
+            for (int x = 0; x < size; x++) {
+                int v = z * (size + 1) + x + 1;
+                sb.append("f ").append(v).append(' ').append(v + 1)
+                    .append(' ').append(v + size + 2).append(' ')
+                    .append(v + size + 1).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    static NavMesh2D loadGrid(int size) throws IOException {
+        NavMesh2D navMesh = new NavMesh2D();
+        navMesh.load(new ByteArrayInputStream(createGridObj(size)
+            .getBytes(StandardCharsets.US_ASCII)), 1, 0, 0);
+        
+        return navMesh;
+    }
+
+    @Test
+    public void loadsLargeMeshInLinearTime() throws IOException {
+        int size = 320;
+        byte[] obj = createGridObj(size).getBytes(StandardCharsets.US_ASCII);
+        NavMesh2D navMesh = new NavMesh2D();
+        long startTime = System.nanoTime();
+        navMesh.load(new ByteArrayInputStream(obj), 1, 0, 0);
+        long loadTime = (System.nanoTime() - startTime) / 1000000;
+
+        int faceCount = size * size;
+        int edgeCount = 2 * size * (size + 1);
+        assertTrue(faceCount >= 100000);
+        assertEquals((size + 1) * (size + 1), navMesh.getVertices().size());
+        assertEquals(faceCount, navMesh.getFaces().size());
+        assertEquals(edgeCount, navMesh.getEdgeNodes().size());
+        assertEquals(faceCount + edgeCount
+            , navMesh.getGraph().getNodes().size());
+        
+        assertTrue("load took " + loadTime + " ms"
+            , loadTime < MAX_LOAD_TIME_MS);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static List<Node<Vec2>>[] newPaths(int count) {
+        return new List[count];
+    }
+
+    @Test
+    public void findPathsMatchesSingleQueries() throws IOException {
+        NavMesh2D navMesh = loadGrid(30);
+        navMesh.setPathCache(new PathCache(64));
+        Random random = new Random(1);
+        List<Face> faces = navMesh.getFaces();
+        for (int i = 0; i < 150; i++) {
+            faces.get(random.nextInt(faces.size())).getNodeInsideFace()
+                .setBlocked(true);
+        }
+        int count = 500;
+        Face[] starts = new Face[count];
+        Face[] targets = new Face[count];
+        for (int i = 0; i < count; i++) {
+            starts[i] = faces.get(random.nextInt(faces.size()));
+            targets[i] = faces.get(random.nextInt(faces.size()));
+        }
+        starts[0] = null;
+        List<Node<Vec2>>[] paths = newPaths(count);
+        navMesh.findPaths(new ForkJoinPool(4), starts, targets, paths);
+
+        assertTrue(paths[0].isEmpty());
+        List<Node<Vec2>> path = new ArrayList<>();
+        for (int i = 1; i < count; i++) {
+            navMesh.findPath(starts[i].getNodeInsideFace()
+                , targets[i].getNodeInsideFace(), path);
+            
+            assertEquals(path, paths[i]);
+        }
+    }
+
+    @Test
+    public void incrementalPathFinderFollowsFaceEdits() throws IOException {
+        NavMesh2D navMesh = loadGrid(10);
+        IncrementalPathFinder<Vec2> finder
+            = new IncrementalPathFinder<>(navMesh.getGraph());
+        
+        Node<Vec2> start = navMesh.findFace(0.5, 0.5).getNodeInsideFace();
+        Node<Vec2> goal = navMesh.findFace(9.5, 9.5).getNodeInsideFace();
+        List<Node<Vec2>> expected = new ArrayList<>();
+        List<Node<Vec2>> path = new ArrayList<>();
+        Random random = new Random(15);
+        for (int round = 0; round < 40; round++) {
+            List<Face> faces = navMesh.getFaces();
+            Face face = faces.get(random.nextInt(faces.size()));
+            if (face.getNodeInsideFace() == start 
+                    || face.getNodeInsideFace() == goal) {
+                
+                continue;
+            }
+            // removed and added faces reuse the node ids, the count only
+            // grows for the new faces outside of the grid
+            int[] indices = face.getVertexIndices();
+            navMesh.removeFace(face);
+            expected.clear();
+            navMesh.getGraph().findPath(start, goal, expected);
+            finder.findPath(start, goal, path);
+            assertEquals(HierarchicalPathFinderTest.cost(expected)
+                , HierarchicalPathFinderTest.cost(path), 1e-9);
+            
+            navMesh.addFace(indices);
+            if (round % 10 == 0) {
+                // below the bottom row, whose vertices are 0 .. 10
+                int x = round / 10;
+                List<Vec2> vertices = navMesh.getVertices();
+                int v = vertices.size();
+                vertices.add(new Vec2(x, -1));
+                vertices.add(new Vec2(x + 1, -1));
+                navMesh.addFace(new int[] { v, v + 1, x + 1, x });
+            }
+            expected.clear();
+            navMesh.getGraph().findPath(start, goal, expected);
+            finder.findPath(start, goal, path);
+            assertFalse(path.isEmpty());
+            assertEquals(HierarchicalPathFinderTest.cost(expected)
+                , HierarchicalPathFinderTest.cost(path), 1e-9);
+        }
+        finder.dispose();
+    }
+
+    @Test
+    public void sharesEdgeNodesBetweenNeighbors() throws IOException {
+        NavMesh2D navMesh = loadGrid(2);
+        Face a = navMesh.findFace(0.5, 0.5);
+        Face b = navMesh.findFace(1.5, 0.5);
+        assertNotSame(a, b);
+        assertSame(navMesh.getEdge(1, 4), navMesh.getEdge(4, 1));
+        assertTrue(a.getEdgeNodes().contains(navMesh.getEdge(1, 4)));
+        assertTrue(b.getEdgeNodes().contains(navMesh.getEdge(1, 4)));
+    }
+
+    private static double distance(Vec2 a, Vec2 b) {
+        return Math.hypot(b.x - a.x, b.y - a.y);
+    }
+
+    // from, the edge nodes crossed, to
+    private static double cost(Vec2 from, Vec2 to, List<Node<Vec2>> path) {
+        double cost = 0;
+        Vec2 previous = from;
+        for (int i = 1; i < path.size() - 1; i++) {
+            cost += distance(previous, path.get(i).getObj());
+            previous = path.get(i).getObj();
+        }
+        return cost + distance(previous, to);
+    }
+
+    // cheapest path over every pair of edge nodes of the two faces
+    private static double bruteForce(NavMesh2D navMesh, Vec2 from, Vec2 to) {
+        Face startFace = navMesh.findFace(from.x, from.y);
+        Face targetFace = navMesh.findFace(to.x, to.y);
+        if (startFace == targetFace) {
+            return distance(from, to);
+        }
+        double best = Double.POSITIVE_INFINITY;
+        for (Node<Vec2> start : startFace.getEdgeNodes()) {
+            SearchContext distances 
+                = navMesh.getGraph().findDistances(start, null);
+            
+            for (Node<Vec2> target : targetFace.getEdgeNodes()) {
+                double g = distances.getG(target.getId());
+                if (g != Double.MAX_VALUE) {
+                    best = Math.min(best, distance(from, start.getObj()) 
+                        + g + distance(target.getObj(), to));
+                }
+            }
+        }
+        return best;
+    }
+
+    // a random point of the first triangle of a random face, which may be 
+    // outside of a concave face
+    private static Vec2 randomPoint(NavMesh2D navMesh, Random random) {
+        List<Face> faces = navMesh.getFaces();
+        while (true) {
+            List<Vec2> points = faces.get(random.nextInt(faces.size()))
+                .getPoints();
+
+            double a = random.nextDouble();
+            double b = random.nextDouble();
+            if (a + b > 1) {
+                a = 1 - a;
+                b = 1 - b;
+            }
+            Vec2 p0 = points.get(0);
+            Vec2 p1 = points.get(1);
+            Vec2 p2 = points.get(2);
+            Vec2 point = new Vec2(p0.x + a * (p1.x - p0.x) 
+                + b * (p2.x - p0.x), p0.y + a * (p1.y - p0.y) 
+                + b * (p2.y - p0.y));
+
+            if (navMesh.findFace(point.x, point.y) != null) {
+                return point;
+            }
+        }
+    }
+
+    @Test
+    public void pointQueriesFindShortestPaths() throws Exception {
+        NavMesh2D navMesh = new NavMesh2D();
+        navMesh.load("/res/path_test.obj", 1, 0, 0);
+        List<Face> faces = navMesh.getFaces();
+        Vec2[] centers = new Vec2[faces.size()];
+        for (int i = 0; i < centers.length; i++) {
+            Vec2 center = faces.get(i).getPointInsideFace();
+            centers[i] = new Vec2(center.x, center.y);
+        }
+        Random random = new Random(25);
+        int count = 200;
+        Vec2[] starts = new Vec2[count];
+        Vec2[] targets = new Vec2[count];
+        double[] costs = new double[count];
+        List<Node<Vec2>> path = new ArrayList<>();
+        PathBuffer buffer = new PathBuffer();
+        for (int i = 0; i < count; i++) {
+            Vec2 from = starts[i] = randomPoint(navMesh, random);
+            Vec2 to = targets[i] = randomPoint(navMesh, random);
+            navMesh.findPath(from, to, path);
+            navMesh.findPath(from, to, buffer);
+            assertEquals(path.size(), buffer.size());
+            double expected = bruteForce(navMesh, from, to);
+            if (expected == Double.POSITIVE_INFINITY) {
+                assertTrue(path.isEmpty());
+                costs[i] = -1;
+                continue;
+            }
+            // the virtual nodes never show up, the face nodes do
+            assertSame(navMesh.findFace(from.x, from.y).getNodeInsideFace()
+                , path.get(0));
+            assertSame(navMesh.findFace(to.x, to.y).getNodeInsideFace()
+                , path.get(path.size() - 1));
+            
+            costs[i] = cost(from, to, path);
+            assertEquals(expected, costs[i], 1e-6 * Math.max(1, expected));
+            for (int k = 0; k < path.size(); k++) {
+                assertEquals(path.get(k).getId(), buffer.get(k));
+            }
+            assertEquals(from.x, buffer.getX(0), 0);
+            assertEquals(from.y, buffer.getY(0), 0);
+            assertEquals(to.x, buffer.getX(buffer.size() - 1), 0);
+            assertEquals(to.y, buffer.getY(buffer.size() - 1), 0);
+        }
+
+        // each thread has its own virtual nodes
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            int mismatches = pool.submit(() -> 
+                IntStream.range(0, 4 * count).parallel()
+                    .filter(k -> {
+                        int i = k % count;
+                        List<Node<Vec2>> p = new ArrayList<>();
+                        navMesh.findPath(starts[i], targets[i], p);
+                        double c = p.isEmpty() 
+                            ? -1 : cost(starts[i], targets[i], p);
+                        
+                        return c != costs[i];
+                    }).count()).get().intValue();
+
+            assertEquals(0, mismatches);
+        }
+        finally {
+            pool.shutdown();
+        }
+
+        // the mesh isn't changed by the queries
+        for (int i = 0; i < centers.length; i++) {
+            Vec2 center = faces.get(i).getPointInsideFace();
+            assertEquals(centers[i].x, center.x, 0);
+            assertEquals(centers[i].y, center.y, 0);
+        }
+        Vec2 point = faces.get(0).getPointInsideFace();
+        navMesh.findPath(point, point, path);
+        assertEquals(2, path.size());
+        assertSame(faces.get(0).getNodeInsideFace(), path.get(0));
+        assertSame(path.get(0), path.get(1));
+    }
+
+}
@@ -0,0 +1,173 @@
+package path.navmesh;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import math.Vec2;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import path.finder.a_star.Node;
+import static org.junit.Assert.*;
+
+/**
+ * NavMeshFileTest class.
+ */
+public class NavMeshFileTest {
+
+    private Path file;
+
+    @Before
+    public void createFile() throws IOException {
+        file = Files.createTempFile("navmesh", ".nav");
+    }
+
+    @After
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    private static int[] ids(List<Node<Vec2>> path) {
+        int[] ids = new int[path.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = path.get(i).getId();
+        }
+        return ids;
+    }
+
+    @Test
+    public void compiledMeshFindsSamePaths() throws IOException {
+        NavMesh2D navMesh = NavMesh2DTest.loadGrid(12);
+        navMesh.findFace(5.5, 5.5).getNodeInsideFace().setBlocked(true);
+        NavMeshFile.write(navMesh, file);
+        NavMesh2D compiled = new NavMesh2D();
+        compiled.loadCompiled(file);
+        CompactGraph compact = CompactGraph.load(file);
+        assertEquals(navMesh.getFaces().size(), compiled.getFaces().size());
+        assertEquals(navMesh.getEdgeNodes().size()
+            , compiled.getEdgeNodes().size());
+        
+        Random random = new Random(6);
+        List<Face> faces = navMesh.getFaces();
+        List<Node<Vec2>> expected = new ArrayList<>();
+        List<Node<Vec2>> path = new ArrayList<>();
+        List<Node<Vec2>> nodes = compiled.getGraph().getNodes();
+        for (int i = 0; i < 100; i++) {
+            int s = faces.get(random.nextInt(faces.size()))
+                .getNodeInsideFace().getId();
+            
+            int t = faces.get(random.nextInt(faces.size()))
+                .getNodeInsideFace().getId();
+            
+            // Graph.findPath leaves the list as is if there's no path
+            expected.clear();
+            navMesh.getGraph().findPath(navMesh.getGraph().getNodes().get(s)
+                , navMesh.getGraph().getNodes().get(t), expected);
+            
+            compiled.findPath(nodes.get(s), nodes.get(t), path);
+            assertArrayEquals(ids(expected), ids(path));
+            assertArrayEquals(ids(expected), compact.findPath(s, t));
+        }
+    }
+
+    @Test
+    public void keepsFreeNodesOfRemovedFaces() throws IOException {
+        NavMesh2D navMesh = NavMesh2DTest.loadGrid(4);
+        int nodeCount = navMesh.getGraph().getNodes().size();
+        // a corner face, so two of its edge nodes are freed with it
+        Face face = navMesh.findFace(0.5, 0.5);
+        int[] indices = face.getVertexIndices().clone();
+        navMesh.removeFace(face);
+        NavMeshFile.write(navMesh, file);
+        NavMesh2D compiled = new NavMesh2D();
+        compiled.loadCompiled(file);
+        assertEquals(sortedIds(navMesh.getEdgeNodes())
+            , sortedIds(compiled.getEdgeNodes()));
+        
+        for (Node<Vec2> edgeNode : compiled.getEdgeNodes()) {
+            assertFalse(edgeNode.getEdges().isEmpty());
+        }
+        
+        Face added = compiled.addFace(indices);
+        navMesh.addFace(indices);
+        assertEquals(nodeCount, compiled.getGraph().getNodes().size());
+        assertEquals(nodeCount, navMesh.getGraph().getNodes().size());
+        assertEquals(sortedIds(navMesh.getEdgeNodes())
+            , sortedIds(compiled.getEdgeNodes()));
+        
+        List<Node<Vec2>> path = new ArrayList<>();
+        compiled.findPath(added.getNodeInsideFace()
+            , compiled.findFace(3.5, 3.5).getNodeInsideFace(), path);
+        
+        assertEquals(13, path.size());
+    }
+
+    private static List<Integer> sortedIds(List<Node<Vec2>> nodes) {
+        List<Integer> ids = new ArrayList<>();
+        for (Node<Vec2> node : nodes) {
+            ids.add(node.getId());
+        }
+        ids.sort(null);
+        return ids;
+    }
+
+    @Test
+    public void rejectsCorruptedFiles() throws IOException {
+        NavMesh2D navMesh = NavMesh2DTest.loadGrid(3);
+        NavMeshFile.write(navMesh, file);
+        byte[] data = Files.readAllBytes(file);
+        ByteBuffer header = ByteBuffer.wrap(data);
+        int vertexCount = header.getInt(8);
+        int faceCount = header.getInt(12);
+        int nodeCount = header.getInt(16);
+        int slotCount = header.getInt(20);
+        int slotCosts = 48 + 16 * vertexCount + 16 * nodeCount;
+        int faceOffsets = slotCosts + 8 * slotCount;
+        int faceVertices = faceOffsets + 4 * (faceCount + 1);
+        int faceNodes = faceVertices + 4 * slotCount;
+        int slotNodes = faceNodes + 4 * faceCount;
+
+        List<byte[]> corrupted = new ArrayList<>();
+        corrupted.add(Arrays.copyOf(data, data.length - 1));
+        corrupted.add(Arrays.copyOf(data, 20));
+        corrupted.add(with(data, 0, 0));
+        corrupted.add(with(data, 16, nodeCount + 1));
+        corrupted.add(with(data, faceOffsets + 4, 9));
+        corrupted.add(with(data, faceOffsets + 4 * faceCount, slotCount - 1));
+        corrupted.add(with(data, faceVertices, vertexCount));
+        corrupted.add(with(data, faceNodes + 4, -1));
+        corrupted.add(with(data, slotNodes + 8, nodeCount));
+        byte[] nanCost = data.clone();
+        ByteBuffer.wrap(nanCost).putDouble(slotCosts, Double.NaN);
+        corrupted.add(nanCost);
+
+        for (byte[] bytes : corrupted) {
+            Files.write(file, bytes);
+            try {
+                new NavMesh2D().loadCompiled(file);
+                fail("loaded a corrupted mesh");
+            }
+            catch (IOException expected) {
+            }
+            try {
+                CompactGraph.load(file);
+                fail("loaded a corrupted graph");
+            }
+            catch (IOException expected) {
+            }
+        }
+    }
+
+    // copy of data with the int at position replaced
+    private static byte[] with(byte[] data, int position, int value) {
+        byte[] copy = data.clone();
+        ByteBuffer.wrap(copy).putInt(position, value);
+        return copy;
+    }
+
+}
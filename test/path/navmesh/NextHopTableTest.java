@@ -0,0 +1,201 @@
+package path.navmesh;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import math.Vec2;
+import org.junit.Test;
+import path.finder.a_star.Edge;
+import path.finder.a_star.Node;
+import path.finder.a_star.NodePath;
+import static org.junit.Assert.*;
+
+/**
+ * NextHopTableTest class.
+ */
+public class NextHopTableTest {
+
+    private static final double EPSILON = 1e-9;
+
+    private static double cost(List<Node<Vec2>> path) {
+        double sum = 0;
+        for (int i = 1; i < path.size(); i++) {
+            Node<Vec2> a = path.get(i - 1);
+            Node<Vec2> b = path.get(i);
+            double cost = Double.NaN;
+            for (Edge<Vec2> edge : a.getEdges()) {
+                if (edge.getOppositeNode(a) == b) {
+                    cost = edge.getG();
+                }
+            }
+            sum += cost;
+        }
+        return sum;
+    }
+
+    // a grid with a few blocked faces, so some pairs have no path
+    private static NavMesh2D createMesh() throws IOException {
+        NavMesh2D navMesh = NavMesh2DTest.loadGrid(10);
+        Random random = new Random(31);
+        List<Face> faces = navMesh.getFaces();
+        for (int i = 0; i < 12; i++) {
+            faces.get(random.nextInt(faces.size())).getNodeInsideFace()
+                .setBlocked(true);
+        }
+        return navMesh;
+    }
+
+    private static void assertSameRoutes(NavMesh2D navMesh
+            , NextHopTable expected, NextHopTable table) {
+
+        List<Node<Vec2>> expectedPath = new ArrayList<>();
+        List<Node<Vec2>> path = new ArrayList<>();
+        for (Face start : navMesh.getFaces()) {
+            for (Face target : navMesh.getFaces()) {
+                expected.findPath(start.getNodeInsideFace()
+                    , target.getNodeInsideFace(), expectedPath);
+
+                table.findPath(start.getNodeInsideFace()
+                    , target.getNodeInsideFace(), path);
+
+                assertEquals(expectedPath, path);
+            }
+        }
+    }
+
+    @Test
+    public void walkMatchesGraphSearch() throws IOException {
+        NavMesh2D navMesh = createMesh();
+        NextHopTable table = NextHopTable.create(navMesh);
+        assertEquals(navMesh.getFaces().size(), table.getFaceCount());
+        List<Node<Vec2>> expected = new ArrayList<>();
+        List<Node<Vec2>> path = new ArrayList<>();
+        NodePath ids = new NodePath();
+        int noPathCount = 0;
+        for (Face startFace : navMesh.getFaces()) {
+            for (Face targetFace : navMesh.getFaces()) {
+                Node<Vec2> start = startFace.getNodeInsideFace();
+                Node<Vec2> target = targetFace.getNodeInsideFace();
+                expected.clear();
+                navMesh.getGraph().findPath(start, target, expected);
+                table.findPath(start, target, path);
+                table.findPath(start, target, ids);
+                assertEquals(expected.isEmpty(), path.isEmpty());
+                assertEquals(path.size(), ids.size());
+                for (int i = 0; i < ids.size(); i++) {
+                    assertEquals(path.get(i).getId(), ids.get(i));
+                }
+                if (path.isEmpty()) {
+                    noPathCount++;
+                    continue;
+                }
+                // ties may be broken differently, the cost is the same
+                assertSame(start, path.get(0));
+                assertSame(target, path.get(path.size() - 1));
+                for (Node<Vec2> node : path.subList(1, path.size())) {
+                    assertFalse(node.isBlocked());
+                }
+                assertEquals(cost(expected), cost(path)
+                    , EPSILON * Math.max(1, cost(expected)));
+            }
+        }
+        assertTrue(noPathCount > 0);
+        table.dispose();
+    }
+
+    @Test
+    public void readsWrittenTable() throws IOException {
+        NavMesh2D navMesh = createMesh();
+        NextHopTable table = NextHopTable.create(navMesh);
+        Path file = Files.createTempFile("table", ".nht");
+        try {
+            table.write(file);
+            NextHopTable read = NextHopTable.read(navMesh, file);
+            assertFalse(read.isStale());
+            assertSameRoutes(navMesh, table, read);
+            read.dispose();
+        }
+        finally {
+            Files.delete(file);
+        }
+        table.dispose();
+    }
+
+    @Test
+    public void rejectsFilesOfOtherMeshes() throws IOException {
+        NavMesh2D navMesh = createMesh();
+        NextHopTable table = NextHopTable.create(navMesh);
+        table.dispose();
+        Path file = Files.createTempFile("table", ".nht");
+        try {
+            table.write(file);
+            byte[] data = Files.readAllBytes(file);
+            int failures = 0;
+            List<byte[]> corrupted = new ArrayList<>();
+            corrupted.add(new byte[] { 1, 2, 3 });
+            corrupted.add(Arrays.copyOf(data, data.length - 1));
+            byte[] badSlot = data.clone();
+            // the route from face 1 to face 0 through a slot face 1 lacks
+            badSlot[16 + 1] = 100;
+            corrupted.add(badSlot);
+            for (byte[] bytes : corrupted) {
+                Files.write(file, bytes);
+                try {
+                    NextHopTable.read(navMesh, file);
+                }
+                catch (IOException expected) {
+                    failures++;
+                }
+            }
+            assertEquals(corrupted.size(), failures);
+            
+            Files.write(file, data);
+            try {
+                NextHopTable.read(NavMesh2DTest.loadGrid(9), file);
+                fail("read the table of another mesh");
+            }
+            catch (IOException expected) {
+            }
+        }
+        finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void meshFallsBackToSearchWhenStale() throws IOException {
+        NavMesh2D navMesh = NavMesh2DTest.loadGrid(6);
+        NextHopTable table = NextHopTable.create(navMesh);
+        navMesh.setNextHopTable(table);
+        Node<Vec2> start = navMesh.findFace(0.5, 0.5).getNodeInsideFace();
+        Node<Vec2> target = navMesh.findFace(0.5, 5.5).getNodeInsideFace();
+        List<Node<Vec2>> path = new ArrayList<>();
+        navMesh.findPath(start, target, path);
+        assertEquals(11, path.size());
+
+        // a wall across the grid but one face
+        for (int x = 0; x < 5; x++) {
+            navMesh.findFace(x + 0.5, 3.5).getNodeInsideFace()
+                .setBlocked(true);
+        }
+        assertTrue(table.isStale());
+        navMesh.findPath(start, target, path);
+        for (Node<Vec2> node : path) {
+            assertFalse(node.isBlocked());
+        }
+        // around the wall: 15 face moves instead of 5
+        assertEquals(31, path.size());
+        navMesh.setNextHopTable(null);
+        table.dispose();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void refusesMeshesOverTheCeiling() throws IOException {
+        NextHopTable.create(NavMesh2DTest.loadGrid(4), 15);
+    }
+
+}
@@ -0,0 +1,206 @@
+package path.navmesh;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * ObjParserTest class.
+ */
+public class ObjParserTest {
+
+    private static class Recorder implements ObjParser.Handler {
+
+        private final List<double[]> vertices = new ArrayList<>();
+        private final List<int[]> faces = new ArrayList<>();
+
+        @Override
+        public void vertex(double x, double y, double z) {
+            vertices.add(new double[] { x, y, z });
+        }
+
+        @Override
+        public void face(int[] indices, int count) {
+            faces.add(Arrays.copyOf(indices, count));
+        }
+
+    }
+
+    // hands out at most chunkSize bytes per read
+    private static InputStream chunked(byte[] bytes, int chunkSize) {
+        return new FilterInputStream(new ByteArrayInputStream(bytes)) {
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, chunkSize));
+            }
+
+        };
+    }
+
+    private static Recorder parse(String obj) throws IOException {
+        Recorder recorder = new Recorder();
+        new ObjParser(recorder).parse(new ByteArrayInputStream(
+            obj.getBytes(StandardCharsets.US_ASCII)));
+        
+        return recorder;
+    }
+
+    @Test
+    public void acceptsTabsRunsOfSpacesAndCrlf() throws IOException {
+        Recorder obj = parse("# comment\r\n"
+            + "v\t1 2   3\r\n"
+            + "  v 4\t\t5 \t 6  \r\n"
+            + "vt 0.5 0.5\r\n"
+            + "vn 0 1 0\r\n"
+            + "o name\r\n"
+            + "\r\n"
+            + "v 7 8 9\r\n"
+            + "f\t1  2\t\t3 \r\n"
+            + "f 3 2 1 # comment\r\n"
+            + "g group");
+        
+        assertEquals(3, obj.vertices.size());
+        assertArrayEquals(new double[] { 4, 5, 6 }, obj.vertices.get(1), 0);
+        assertArrayEquals(new double[] { 7, 8, 9 }, obj.vertices.get(2), 0);
+        assertEquals(2, obj.faces.size());
+        assertArrayEquals(new int[] { 0, 1, 2 }, obj.faces.get(0));
+        assertArrayEquals(new int[] { 2, 1, 0 }, obj.faces.get(1));
+    }
+
+    @Test
+    public void skipsTextureAndNormalIndices() throws IOException {
+        Recorder obj = parse("v 0 0 0\nv 1 0 0\nv 1 0 1\nv 0 0 1\n"
+            + "f 1/1 2/2 3/3\n"
+            + "f 1//1 2//2 3//3 4//4\n"
+            + "f 4/1/1 3/2/2 2/3/3\n"
+            + "f 1/-1/-1 2//-2 -1/3\n");
+        
+        assertEquals(4, obj.faces.size());
+        assertArrayEquals(new int[] { 0, 1, 2 }, obj.faces.get(0));
+        assertArrayEquals(new int[] { 0, 1, 2, 3 }, obj.faces.get(1));
+        assertArrayEquals(new int[] { 3, 2, 1 }, obj.faces.get(2));
+        assertArrayEquals(new int[] { 0, 1, 3 }, obj.faces.get(3));
+    }
+
+    @Test
+    public void resolvesNegativeIndices() throws IOException {
+        Recorder obj = parse("v 0 0 0\nv 1 0 0\nv 1 0 1\n"
+            + "f -3 -2 -1\n"
+            + "v 0 0 1\n"
+            + "f -4 -2 -1\n");
+        
+        assertArrayEquals(new int[] { 0, 1, 2 }, obj.faces.get(0));
+        // relative to the vertices read so far
+        assertArrayEquals(new int[] { 0, 2, 3 }, obj.faces.get(1));
+    }
+
+    @Test
+    public void parsesNumbersLikeParseDouble() throws IOException {
+        String[] numbers = { "0", "-0", "+1", "1.", ".5", "-.25", "0.1"
+            , "3.14159", "1e3", "1E-3", "-2.5e+2", "123456789012345"
+            , "0.000000000000000000001", "1e22", "1e23", "1e-300"
+            // more than 15 significant digits, parsed by parseDouble
+            , "0.1234567890123456789", "12345678901234567890123"
+            , "-9007199254740993", "3.141592653589793238462643" };
+        
+        StringBuilder sb = new StringBuilder();
+        for (String number : numbers) {
+            sb.append("v ").append(number).append(" 0 ")
+                .append(number).append('\n');
+        }
+        Recorder obj = parse(sb.toString());
+        assertEquals(numbers.length, obj.vertices.size());
+        for (int i = 0; i < numbers.length; i++) {
+            double expected = Double.parseDouble(numbers[i]);
+            assertEquals(numbers[i], Double.doubleToLongBits(expected)
+                , Double.doubleToLongBits(obj.vertices.get(i)[0]));
+            
+            assertEquals(expected, obj.vertices.get(i)[2], 0);
+        }
+    }
+
+    @Test
+    public void joinsLinesSplitBetweenReads() throws IOException {
+        // more than one 64 KiB buffer, with a line longer than the buffer
+        StringBuilder sb = new StringBuilder();
+        int vertexCount = 0;
+        while (sb.length() < 200000) {
+            sb.append("v ").append(vertexCount).append(".125 0 -")
+                .append(vertexCount).append(".5\r\n");
+            
+            vertexCount++;
+            if (vertexCount == 1000) {
+                sb.append('#');
+                for (int i = 0; i < 70000; i++) {
+                    sb.append('x');
+                }
+                sb.append('\n');
+            }
+        }
+        for (int v = 1; v + 2 <= vertexCount; v += 3) {
+            sb.append("f ").append(v).append(' ').append(v + 1)
+                .append(' ').append(v + 2).append('\n');
+        }
+        byte[] bytes = sb.toString().getBytes(StandardCharsets.US_ASCII);
+        for (int chunkSize : new int[] { 7, 4096, 1 << 20 }) {
+            Recorder obj = new Recorder();
+            new ObjParser(obj).parse(chunked(bytes, chunkSize));
+            assertEquals(vertexCount, obj.vertices.size());
+            for (int v = 0; v < vertexCount; v++) {
+                assertEquals(v + 0.125, obj.vertices.get(v)[0], 0);
+                assertEquals(-v - 0.5, obj.vertices.get(v)[2], 0);
+            }
+            assertEquals(vertexCount / 3, obj.faces.size());
+            assertArrayEquals(new int[] { 3, 4, 5 }, obj.faces.get(1));
+        }
+
+        // the same file memory-mapped
+        Path file = Files.createTempFile("obj-parser-test", ".obj");
+        try {
+            Files.write(file, bytes);
+            Recorder obj = new Recorder();
+            new ObjParser(obj).parse(file);
+            assertEquals(vertexCount, obj.vertices.size());
+            assertEquals(vertexCount / 3, obj.faces.size());
+        }
+        finally {
+            Files.delete(file);
+        }
+    }
+
+    // fails if obj parses
+    private static void assertRejected(String obj, String message) {
+        try {
+            parse(obj);
+            fail(obj);
+        }
+        catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith(message));
+        }
+    }
+
+    @Test
+    public void rejectsInvalidFaces() {
+        String vertices = "v 0 0 0\nv 1 0 0\nv 1 0 1\n";
+        assertRejected(vertices + "f 0 1 2\n", "invalid vertex index 0");
+        assertRejected(vertices + "f 1 2 4\n", "invalid vertex index 4");
+        assertRejected(vertices + "f 1 2 -4\n", "invalid vertex index -4");
+        assertRejected(vertices + "f 1 2\n", "face with less than 3");
+        assertRejected(vertices + "f 1 2 x\n", "integer expected");
+        assertRejected("v 0 0\n", "number expected at line 1");
+        assertRejected("v 0 0 1x\n", "invalid number");
+        assertRejected(vertices + "\nf 1 2 99999999999\n"
+            , "integer too large at line 5");
+    }
+
+}
@@ -0,0 +1,117 @@
+package path.navmesh;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import math.Vec2;
+import org.junit.Test;
+import path.finder.a_star.Node;
+import path.finder.a_star.SearchMode;
+import static org.junit.Assert.*;
+
+/**
+ * PathBufferTest class.
+ */
+public class PathBufferTest {
+
+    private static void assertSamePath(List<Node<Vec2>> expected
+            , PathBuffer path) {
+
+        assertEquals(expected.size(), path.size());
+        for (int i = 0; i < path.size(); i++) {
+            Node<Vec2> node = expected.get(i);
+            assertEquals(node.getId(), path.get(i));
+            assertEquals(node.getObj().x, path.getX(i), 0);
+            assertEquals(node.getObj().y, path.getY(i), 0);
+        }
+    }
+
+    @Test
+    public void matchesListPaths() throws IOException {
+        NavMesh2D navMesh = NavMesh2DTest.loadGrid(16);
+        List<Face> faces = navMesh.getFaces();
+        Random random = new Random(8);
+        for (int i = 0; i < 30; i++) {
+            faces.get(random.nextInt(faces.size())).getNodeInsideFace()
+                .setBlocked(true);
+        }
+        CompactGraph compactGraph = CompactGraph.create(navMesh);
+        List<Node<Vec2>> expected = new ArrayList<>();
+        PathBuffer path = new PathBuffer();
+        PathBuffer compactPath = new PathBuffer();
+        for (int i = 0; i < 300; i++) {
+            Node<Vec2> start = faces.get(random.nextInt(faces.size()))
+                .getNodeInsideFace();
+            
+            Node<Vec2> target = faces.get(random.nextInt(faces.size()))
+                .getNodeInsideFace();
+            
+            navMesh.findPath(start, target, expected);
+            navMesh.findPath(start, target, path);
+            assertSamePath(expected, path);
+            compactGraph.findPath(start.getId(), target.getId()
+                , compactPath);
+            
+            assertSamePath(expected, compactPath);
+            // ties may be broken differently, so against the same mode
+            expected.clear();
+            navMesh.getGraph().findPath(start, target, expected
+                , SearchMode.BIDIRECTIONAL);
+            
+            navMesh.findPath(start, target, path, SearchMode.BIDIRECTIONAL);
+            assertSamePath(expected, path);
+        }
+    }
+
+    @Test
+    public void pointPathEndsAtThePoints() throws IOException {
+        NavMesh2D navMesh = NavMesh2DTest.loadGrid(8);
+        Random random = new Random(9);
+        List<Node<Vec2>> expected = new ArrayList<>();
+        PathBuffer path = new PathBuffer();
+        for (int i = 0; i < 100; i++) {
+            Vec2 from = new Vec2(8 * random.nextDouble()
+                , 8 * random.nextDouble());
+            
+            Vec2 to = new Vec2(8 * random.nextDouble()
+                , 8 * random.nextDouble());
+            
+            navMesh.findPath(from, to, expected);
+            navMesh.findPath(from, to, path);
+            assertEquals(expected.size(), path.size());
+            int last = path.size() - 1;
+            assertEquals(from.x, path.getX(0), 0);
+            assertEquals(from.y, path.getY(0), 0);
+            assertEquals(to.x, path.getX(last), 0);
+            assertEquals(to.y, path.getY(last), 0);
+            for (int j = 1; j < last; j++) {
+                assertEquals(expected.get(j).getObj().x, path.getX(j), 0);
+                assertEquals(expected.get(j).getObj().y, path.getY(j), 0);
+            }
+        }
+        navMesh.findPath(new Vec2(1, 1), new Vec2(100, 1), path);
+        assertTrue(path.isEmpty());
+    }
+
+    @Test
+    public void funnelGivesSamePointsForIdsAndNodes() {
+        NavMesh2D navMesh = FunnelTest.createL();
+        Funnel funnel = new Funnel(navMesh);
+        Node<Vec2> start = navMesh.findFace(0.5, 0.5).getNodeInsideFace();
+        Node<Vec2> target = navMesh.findFace(1.5, 1.5).getNodeInsideFace();
+        List<Node<Vec2>> nodes = new ArrayList<>();
+        PathBuffer ids = new PathBuffer();
+        navMesh.findPath(start, target, nodes);
+        navMesh.findPath(start, target, ids);
+        double[] expected = new double[16];
+        double[] out = new double[16];
+        int count = funnel.stringPull(0.2, 0.5, 1.5, 1.8, nodes, expected);
+        assertEquals(count
+            , funnel.stringPull(0.2, 0.5, 1.5, 1.8, ids, out));
+        
+        assertEquals(3, count);
+        assertArrayEquals(expected, out, 0);
+    }
+
+}
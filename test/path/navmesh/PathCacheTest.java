@@ -0,0 +1,124 @@
+package path.navmesh;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import math.Vec2;
+import org.junit.Test;
+import path.finder.a_star.Node;
+import static org.junit.Assert.*;
+
+/**
+ * PathCacheTest class.
+ */
+public class PathCacheTest {
+
+    private static Node<Vec2> faceNode(NavMesh2D navMesh, double x, double y) {
+        return navMesh.findFace(x, y).getNodeInsideFace();
+    }
+
+    @Test
+    public void blockingNodeDropsPathsThroughIt() throws IOException {
+        NavMesh2D navMesh = NavMesh2DTest.loadGrid(5);
+        PathCache cache = new PathCache(16);
+        navMesh.setPathCache(cache);
+        Node<Vec2> start = faceNode(navMesh, 0.5, 0.5);
+        Node<Vec2> target = faceNode(navMesh, 4.5, 0.5);
+        List<Node<Vec2>> path = new ArrayList<>();
+        navMesh.findPath(start, target, path);
+        navMesh.findPath(start, target, path);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.size());
+
+        Node<Vec2> blocked = path.get(path.size() / 2);
+        blocked.setBlocked(true);
+        assertEquals(0, cache.size());
+        navMesh.findPath(start, target, path);
+        assertFalse(path.contains(blocked));
+    }
+
+    @Test
+    public void ignoresPathComputedBeforeChange() throws IOException {
+        NavMesh2D navMesh = NavMesh2DTest.loadGrid(3);
+        PathCache cache = new PathCache(16);
+        navMesh.setPathCache(cache);
+        Node<Vec2> start = faceNode(navMesh, 0.5, 0.5);
+        Node<Vec2> target = faceNode(navMesh, 2.5, 2.5);
+        List<Node<Vec2>> path = new ArrayList<>();
+        long version = cache.getVersion();
+        navMesh.getGraph().findPath(start, target, path);
+        faceNode(navMesh, 1.5, 1.5).setBlocked(true);
+        cache.put(start, target, path, version);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void staysWithinCapacity() throws IOException {
+        NavMesh2D navMesh = NavMesh2DTest.loadGrid(10);
+        PathCache cache = new PathCache(20);
+        navMesh.setPathCache(cache);
+        List<Face> faces = navMesh.getFaces();
+        List<Node<Vec2>> path = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            navMesh.findPath(faces.get(i).getNodeInsideFace()
+                , faces.get(99 - i).getNodeInsideFace(), path);
+        }
+        assertEquals(20, cache.size());
+        assertEquals(80, cache.getEvictions());
+    }
+
+    @Test
+    public void concurrentQueriesMatchUncachedSearch() throws Exception {
+        NavMesh2D navMesh = NavMesh2DTest.loadGrid(20);
+        navMesh.setPathCache(new PathCache(100));
+        List<Face> faces = navMesh.getFaces();
+        Random random = new Random(2);
+        int count = 400;
+        Node<Vec2>[][] pairs = newPairs(count);
+        List<List<Node<Vec2>>> expected = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            // few distinct pairs, so the threads hit the cache
+            int s = random.nextInt(30);
+            int t = faces.size() - 1 - random.nextInt(30);
+            pairs[i][0] = faces.get(s).getNodeInsideFace();
+            pairs[i][1] = faces.get(t).getNodeInsideFace();
+            List<Node<Vec2>> path = new ArrayList<>();
+            navMesh.getGraph().findPath(pairs[i][0], pairs[i][1], path);
+            expected.add(path);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                results.add(executor.submit(() -> {
+                    int mismatches = 0;
+                    List<Node<Vec2>> path = new ArrayList<>();
+                    for (int i = 0; i < count; i++) {
+                        navMesh.findPath(pairs[i][0], pairs[i][1], path);
+                        if (!path.equals(expected.get(i))) {
+                            mismatches++;
+                        }
+                    }
+                    return mismatches;
+                }));
+            }
+            for (Future<Integer> result : results) {
+                assertEquals(0, (int) result.get());
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+        assertTrue(navMesh.getPathCache().getHits() > 0);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Node<Vec2>[][] newPairs(int count) {
+        return new Node[count][2];
+    }
+
+}
@@ -0,0 +1,81 @@
+package tool;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Test;
+import path.finder.a_star.SearchMode;
+import path.navmesh.NavMesh2D;
+import static org.junit.Assert.*;
+
+/**
+ * QueryReplayTest class.
+ */
+public class QueryReplayTest {
+
+    private static NavMesh2D loadMesh() throws Exception {
+        return QueryReplay.loadMesh("/res/path_test.obj", 1, 0, 0);
+    }
+
+    @Test
+    public void bothApisAnswerGeneratedQueries() throws Exception {
+        NavMesh2D navMesh = loadMesh();
+        double[] queries = QueryReplay.generate(navMesh, 500, 3);
+        for (QueryReplay.Api api : QueryReplay.Api.values()) {
+            QueryReplay replay = new QueryReplay(navMesh, queries, api
+                , SearchMode.UNIDIRECTIONAL);
+
+            replay.run(2);
+            assertEquals(0, replay.getNoPathCount());
+            assertEquals(0, replay.getOutsideCount());
+            assertTrue(replay.getExpandedSum() > 0);
+        }
+    }
+
+    @Test
+    public void countsQueriesOutsideOfTheMesh() throws Exception {
+        NavMesh2D navMesh = loadMesh();
+        double[] queries = QueryReplay.generate(navMesh, 2, 5);
+        queries[2] = 1e6;
+        for (QueryReplay.Api api : QueryReplay.Api.values()) {
+            QueryReplay replay = new QueryReplay(navMesh, queries, api
+                , SearchMode.UNIDIRECTIONAL);
+
+            replay.run(1);
+            assertEquals(1, replay.getOutsideCount());
+            assertEquals(0, replay.getNoPathCount());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void pointsApiRejectsBidirectionalMode() throws Exception {
+        new QueryReplay(loadMesh(), new double[0], QueryReplay.Api.POINTS
+            , SearchMode.BIDIRECTIONAL);
+    }
+
+    @Test
+    public void replaysRecordedTrace() throws Exception {
+        double[] queries = QueryReplay.generate(loadMesh(), 50, 7);
+        Path file = Files.createTempFile("trace", ".txt");
+        try {
+            QueryReplay.writeTrace(file, queries);
+            assertArrayEquals(queries, QueryReplay.readTrace(file), 0);
+        }
+        finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsMalformedTrace() throws Exception {
+        Path file = Files.createTempFile("trace", ".txt");
+        try {
+            Files.write(file, "1 2 3\n".getBytes("UTF-8"));
+            QueryReplay.readTrace(file);
+        }
+        finally {
+            Files.delete(file);
+        }
+    }
+
+}